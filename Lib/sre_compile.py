@@ -507,6 +507,9 @@ def compile(p, flags=0):
     # internal: convert pattern list to internal format
 
     if isstring(p):
+        compiled = _sre.getcached(p, flags)
+        if compiled is not None:
+            return compiled
         import sre_parse
         pattern = p
         p = sre_parse.parse(p, flags)
@@ -529,8 +532,11 @@ def compile(p, flags=0):
     for k, i in groupindex.items():
         indexgroup[i] = k
 
-    return _sre.compile(
+    compiled = _sre.compile(
         pattern, flags | p.pattern.flags, code,
         p.pattern.groups-1,
         groupindex, indexgroup
         )
+    if pattern is not None:
+        _sre.putcached(pattern, flags, compiled)
+    return compiled
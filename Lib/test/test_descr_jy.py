@@ -353,13 +353,196 @@ class GetAttrTestCase(unittest.TestCase):
         except AttributeError, e:
             self.assertEquals("Custom message", str(e))
 
+    def test_getattr_default(self):
+        class Foo(object):
+            pass
+        class Bar(str):
+            pass
+        for obj in Foo(), Bar():
+            self.assertEqual(getattr(obj, 'missing', 42), 42)
+            self.assert_(not hasattr(obj, 'missing'))
+            try:
+                getattr(obj, 'missing')
+                self.assert_(False) # Previous line should raise AttributeError
+            except AttributeError, e:
+                self.assert_("'missing'" in str(e))
+
+    def test_getattribute_fallback(self):
+        class Foo(object):
+            def __getattribute__(self, name):
+                if name == 'x':
+                    raise AttributeError('no x')
+                return object.__getattribute__(self, name)
+        class Bar(Foo):
+            def __getattr__(self, name):
+                return name.upper()
+        self.assertEqual(Bar().x, 'X')
+        self.assertEqual(getattr(Foo(), 'x', 1), 1)
+        try:
+            Foo().x
+            self.assert_(False) # Previous line should raise AttributeError
+        except AttributeError, e:
+            self.assertEquals('no x', str(e))
+
+
+
+class LookupCacheTestCase(unittest.TestCase):
+
+    def test_base_setattr(self):
+        class Foo(object):
+            def hello(self):
+                return 'foo'
+        class Bar(Foo):
+            pass
+        bar = Bar()
+        self.assertEqual(bar.hello(), 'foo')
+        Foo.hello = lambda self: 'foo2'
+        self.assertEqual(bar.hello(), 'foo2')
+        Bar.hello = lambda self: 'bar'
+        self.assertEqual(bar.hello(), 'bar')
+        del Bar.hello
+        self.assertEqual(bar.hello(), 'foo2')
+        del Foo.hello
+        self.assert_(not hasattr(bar, 'hello'))
+
+    def test_bases_assignment(self):
+        class Foo(object):
+            def hello(self):
+                return 'foo'
+        class Baz(object):
+            def hello(self):
+                return 'baz'
+        class Bar(Foo):
+            pass
+        class Qux(Bar):
+            pass
+        qux = Qux()
+        self.assertEqual(qux.hello(), 'foo')
+        Bar.__bases__ = (Baz,)
+        self.assertEqual(qux.hello(), 'baz')
+
+    def test_classic_base(self):
+        class Foo:
+            def hello(self):
+                return 'foo'
+        class Bar(object, Foo):
+            pass
+        bar = Bar()
+        self.assertEqual(bar.hello(), 'foo')
+        Foo.hello = lambda self: 'foo2'
+        self.assertEqual(bar.hello(), 'foo2')
+
+
+class AttributeSiteTestCase(unittest.TestCase):
+
+    def test_instance_shadows_method(self):
+        class Foo(object):
+            def hello(self, *args):
+                return ('foo',) + args
+        foo = Foo()
+        for i in range(3):
+            self.assertEqual(foo.hello(i), ('foo', i))
+        foo.hello = lambda *args: ('instance',) + args
+        self.assertEqual(foo.hello(1), ('instance', 1))
+        del foo.hello
+        self.assertEqual(foo.hello(1, 2, 3, 4, 5), ('foo', 1, 2, 3, 4, 5))
+
+    def test_method_fetched_before_args(self):
+        class Foo(object):
+            def hello(self, arg):
+                return 'foo'
+        def replace():
+            Foo.hello = lambda self, arg: 'replaced'
+        foo = Foo()
+        self.assertEqual(foo.hello(replace()), 'foo')
+        self.assertEqual(foo.hello(None), 'replaced')
+
+    def test_polymorphic_site(self):
+        class Foo(object):
+            def name(self):
+                return 'foo'
+        class Bar(Foo):
+            def name(self):
+                return 'bar'
+        class Baz:
+            def name(self):
+                return 'baz'
+        objs = [Foo(), Bar(), Baz(), [1], 'abc', (1,), Foo(), Bar()]
+        names = [getattr(obj, 'name', None) and obj.name() for obj in objs]
+        self.assertEqual(names, ['foo', 'bar', 'baz', None, None, None, 'foo', 'bar'])
+
+    def test_getattr_hook(self):
+        class Foo(object):
+            def _get(self):
+                raise AttributeError('prop')
+            prop = property(_get)
+            def __getattr__(self, name):
+                return 'hook:' + name
+        foo = Foo()
+        self.assertEqual(foo.prop, 'hook:prop')
+        self.assertEqual(foo.missing, 'hook:missing')
+
+    def test_classic_base_changed(self):
+        class Mixin:
+            pass
+        class D(object, Mixin):
+            pass
+        Mixin.foo = lambda self: 'old'
+        d = D()
+        # The same call site before and after the change
+        call = lambda: d.foo()
+        results = [call(), call()]
+        Mixin.foo = lambda self: 'new'
+        results += [call(), call()]
+        self.assertEqual(results, ['old', 'old', 'new', 'new'])
+
+
+class SlotsTestCase(unittest.TestCase):
+
+    def test_slots(self):
+        class P(object):
+            __slots__ = ('x', 'y')
+        p = P()
+        self.assertRaises(AttributeError, getattr, p, 'x')
+        p.x, p.y = 1, 2
+        self.assertEqual((p.x, p.y), (1, 2))
+        del p.x
+        self.assertRaises(AttributeError, getattr, p, 'x')
+        self.assertRaises(AttributeError, setattr, p, 'z', 3)
+        self.assertEqual(P.y.__get__(p), 2)
+
+    def test_subclasses(self):
+        class P(object):
+            __slots__ = ('x',)
+        class Q(P):
+            __slots__ = ('y', 'z')
+        class R(P):
+            pass
+        q = Q()
+        q.x, q.y, q.z = 1, 2, 3
+        self.assertEqual((q.x, q.y, q.z), (1, 2, 3))
+        r = R()
+        r.x, r.w = 4, 5
+        self.assertEqual((r.x, r.__dict__), (4, {'w': 5}))
+
+    def test_many_slots(self):
+        names = ['s%d' % i for i in range(100)]
+        C = type('C', (object,), {'__slots__': names})
+        c = C()
+        for i, name in enumerate(names):
+            setattr(c, name, i)
+        self.assertEqual([getattr(c, name) for name in names], range(100))
+
 
 def test_main():
     test_support.run_unittest(TestDescrTestCase,
                               SubclassDescrTestCase,
                               InPlaceTestCase,
                               DescrExceptionsTestCase,
-                              GetAttrTestCase)
+                              GetAttrTestCase,
+                              LookupCacheTestCase,
+                              AttributeSiteTestCase,
+                              SlotsTestCase)
 
 if __name__ == '__main__':
     test_main()
@@ -1,4 +1,6 @@
 from test import test_support
+import thread
+import time
 import unittest
 
 class DictInitTest(unittest.TestCase):
@@ -93,9 +95,84 @@ class DerivedDictTest(unittest.TestCase):
                 raise CustomKeyError("custom message")
         self.assertRaises(CustomKeyError, lambda: DerivedDict()['foo'])
 
+class DictSharingTest(unittest.TestCase):
+    "Dicts move to a concurrent table when a second thread uses them"
+
+    def test_shared_updates(self):
+        d = dict((i, i) for i in range(100))
+        del d[0]
+        done = []
+        def work(base):
+            for i in range(base, base + 500):
+                d[i] = i
+            done.append(base)
+        for base in 1000, 2000, 3000:
+            thread.start_new_thread(work, (base,))
+        for i in range(100, 500):
+            d[i] = i
+        while len(done) < 3:
+            time.sleep(0.01)
+        self.assertEqual(len(d), 1999)
+        expected = range(1, 500)
+        for base in 1000, 2000, 3000:
+            expected += range(base, base + 500)
+        self.assertEqual(sorted(d), expected)
+
+    def test_many_deletions(self):
+        d = {}
+        for i in range(1000):
+            d[i] = i
+            del d[i]
+        self.assertEqual(d, {})
+        d.update(dict.fromkeys(range(50)))
+        while d:
+            d.popitem()
+        self.assertEqual(len(d), 0)
+
+class InstanceDictTest(unittest.TestCase):
+    "Instance dicts share their keys with the other instances of the class"
+
+    def check_instances(self, cls):
+        a, b = cls(), cls()
+        a.x = 1
+        a.y = 2
+        b.y = 3
+        b.z = 4
+        self.assertEqual(a.__dict__, {'x': 1, 'y': 2})
+        self.assertEqual(b.__dict__, {'y': 3, 'z': 4})
+        del a.x
+        self.assertEqual(a.__dict__, {'y': 2})
+        self.assertRaises(AttributeError, getattr, a, 'x')
+        self.assertEqual(sorted(b.__dict__.items()), [('y', 3), ('z', 4)])
+
+        # keys that can't be shared
+        a.__dict__[1] = 'one'
+        self.assertEqual(a.__dict__, {'y': 2, 1: 'one'})
+        a.x = 5
+        self.assertEqual(a.x, 5)
+        for i in range(40):
+            setattr(b, 'attr%d' % i, i)
+        self.assertEqual(b.attr39, 39)
+        self.assertEqual(len(b.__dict__), 42)
+        c = cls()
+        c.attr1 = 1
+        c.other = 2
+        self.assertEqual(c.__dict__, {'attr1': 1, 'other': 2})
+
+    def test_new_style(self):
+        class C(object):
+            pass
+        self.check_instances(C)
+
+    def test_classic(self):
+        class C:
+            pass
+        self.check_instances(C)
+
 
 def test_main():
-    test_support.run_unittest(DictInitTest, DictCmpTest, DerivedDictTest)
+    test_support.run_unittest(DictInitTest, DictCmpTest, DerivedDictTest,
+                              DictSharingTest, InstanceDictTest)
 
 if __name__ == '__main__':
     test_main()
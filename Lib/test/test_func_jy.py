@@ -2,6 +2,7 @@
 
 Made for Jython.
 """
+import sys
 import types
 import unittest
 from test import test_support
@@ -48,9 +49,134 @@ class MethodHashCodeTestCase(unittest.TestCase):
         self.assertNotEqual(hash(foo.bar), hash(Foo().bar))
 
 
+class SimpleFunctionTestCase(unittest.TestCase):
+
+    def test_exc_info_preserved(self):
+        def simple(x):
+            return x + 1
+        def catches():
+            try:
+                raise ValueError
+            except ValueError:
+                pass
+        try:
+            raise KeyError
+        except KeyError:
+            self.assertEqual(simple(1), 2)
+            self.assertEqual(sys.exc_info()[0], KeyError)
+            catches()
+            self.assertEqual(sys.exc_info()[0], KeyError)
+
+    def test_exc_clear(self):
+        def clears():
+            sys.exc_clear()
+        try:
+            raise KeyError
+        except KeyError:
+            clears()
+            self.assertEqual(sys.exc_info()[0], KeyError)
+
+    def test_traceback(self):
+        def inner():
+            raise ValueError
+        def outer():
+            return inner()
+        try:
+            outer()
+        except ValueError:
+            tb = sys.exc_info()[2]
+        names = []
+        while tb is not None:
+            names.append(tb.tb_frame.f_code.co_name)
+            tb = tb.tb_next
+        self.assertEqual(names, ['test_traceback', 'outer', 'inner'])
+
+    def test_getframe(self):
+        def simple():
+            return sys._getframe(1).f_code.co_name
+        self.assertEqual(simple(), 'test_getframe')
+
+
+DIRECT_CALLS_SOURCE = """
+import sys
+def add(a, b):
+    return a + b
+def scaled(x, factor=2):
+    return x * factor
+def boom(x):
+    return 1 / x
+def gen(n):
+    yield n
+def total(n):
+    s = 0
+    for i in range(n):
+        s = add(s, i)
+    return s
+def call_boom():
+    return boom(0)
+def call_scaled():
+    return scaled(3), scaled(3, 3)
+def call_gen():
+    return list(gen(5))
+def call_add_badly():
+    return add(1)
+"""
+
+class DirectCallTestCase(unittest.TestCase):
+
+    def setUp(self):
+        from org.python.core import Options
+        self.options = Options
+        self.saved = Options.directCalls
+        Options.directCalls = True
+        self.ns = {}
+        exec compile(DIRECT_CALLS_SOURCE, '<direct>', 'exec') in self.ns
+
+    def tearDown(self):
+        self.options.directCalls = self.saved
+
+    def test_calls(self):
+        self.assertEqual(self.ns['total'](10), 45)
+        self.assertEqual(self.ns['call_scaled'](), (6, 9))
+        self.assertEqual(self.ns['call_gen'](), [5])
+
+    def test_rebound(self):
+        self.ns['add'] = lambda a, b: a * b
+        self.assertEqual(self.ns['total'](3), 0)
+
+    def test_arity_error(self):
+        self.assertRaises(TypeError, self.ns['call_add_badly'])
+
+    def test_traceback(self):
+        try:
+            self.ns['call_boom']()
+        except ZeroDivisionError:
+            tb = sys.exc_info()[2]
+        names = []
+        while tb is not None:
+            names.append(tb.tb_frame.f_code.co_name)
+            tb = tb.tb_next
+        self.assertEqual(names, ['test_traceback', 'call_boom', 'boom'])
+
+    def test_trace(self):
+        calls = []
+        def tracer(frame, event, arg):
+            if event == 'call':
+                calls.append(frame.f_code.co_name)
+            return None
+        sys.settrace(tracer)
+        try:
+            self.ns['total'](2)
+        finally:
+            sys.settrace(None)
+        self.assertEqual(calls, ['total', 'add', 'add'])
+
+
 def test_main():
     test_support.run_unittest(FunctionTypeTestCase,
-                              MethodHashCodeTestCase)
+                              MethodHashCodeTestCase,
+                              SimpleFunctionTestCase,
+                              DirectCallTestCase)
 
 if __name__ == '__main__':
     test_main()
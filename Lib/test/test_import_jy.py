@@ -7,6 +7,7 @@ import os
 import shutil
 import sys
 import tempfile
+import time
 import unittest
 from test import test_support
 from test_chdir import read, safe_mktemp, COMPILED_SUFFIX
@@ -97,8 +98,65 @@ class MislabeledImportTestCase(unittest.TestCase):
                           'bytecode was recompiled')
 
 
+class ImportCacheTestCase(unittest.TestCase):
+
+    def setUp(self):
+        self.dir = tempfile.mkdtemp()
+        self.orig_syspath = sys.path[:]
+        sys.path.insert(0, self.dir)
+        self.orig_importcache = sys.getimportcache()
+        sys.setimportcache(True)
+
+    def tearDown(self):
+        sys.setimportcache(self.orig_importcache)
+        shutil.rmtree(self.dir)
+        sys.path = self.orig_syspath
+
+    def age(self, path):
+        # Listings of directories modified just now aren't cached
+        old = time.time() - 60
+        os.utime(path, (old, old))
+
+    def write(self, name, source):
+        fp = open(os.path.join(self.dir, name), 'w')
+        fp.write(source)
+        fp.close()
+
+    def test_negative_and_invalidated(self):
+        self.age(self.dir)
+        misses = sys.getimportcachestats()['misses']
+        self.assertRaises(ImportError, __import__, 'cached_missing_mod')
+        self.assert_(sys.getimportcachestats()['misses'] > misses)
+
+        self.write('cached_missing_mod.py', 'x = 1')
+        self.assertEqual(__import__('cached_missing_mod').x, 1)
+        del sys.modules['cached_missing_mod']
+
+    def test_package(self):
+        os.mkdir(os.path.join(self.dir, 'cached_pkg'))
+        self.write(os.path.join('cached_pkg', '__init__.py'), '')
+        self.write(os.path.join('cached_pkg', 'mod.py'), 'y = 2')
+        self.age(os.path.join(self.dir, 'cached_pkg'))
+        self.age(self.dir)
+        mod = __import__('cached_pkg.mod', fromlist=['y'])
+        self.assertEqual(mod.y, 2)
+        self.assertRaises(ImportError, __import__, 'cached_pkg.missing')
+        for name in 'cached_pkg', 'cached_pkg.mod', 'cached_pkg.missing':
+            sys.modules.pop(name, None)
+
+    def test_disabled(self):
+        sys.setimportcache(False)
+        self.assertEqual(sys.getimportcache(), False)
+        self.assertEqual(sys.getimportcachestats()['directories'], 0)
+        self.write('uncached_mod.py', 'z = 3')
+        self.age(self.dir)
+        self.assertEqual(__import__('uncached_mod').z, 3)
+        del sys.modules['uncached_mod']
+
+
 def test_main():
-    test_support.run_unittest(MislabeledImportTestCase)
+    test_support.run_unittest(MislabeledImportTestCase,
+                              ImportCacheTestCase)
 
 if __name__ == '__main__':
     test_main()
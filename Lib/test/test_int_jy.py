@@ -0,0 +1,95 @@
+"""Int arithmetic tests
+
+Made for Jython.
+"""
+import sys
+import unittest
+from test import test_support
+
+class IntArithmeticTestCase(unittest.TestCase):
+
+    def test_overflow(self):
+        big = sys.maxint
+        self.assertEqual(big + 1, 2147483648L)
+        self.assertEqual(type(big + 1), long)
+        self.assertEqual(-big - 2, -2147483649L)
+        self.assertEqual(type(-big - 2), long)
+        self.assertEqual(big * 2, 4294967294L)
+        self.assertEqual(type(65536 * 65536), long)
+        self.assertEqual(type(46340 * 46340), int)
+        x = big
+        x += 1
+        self.assertEqual(x, 2147483648L)
+        x = -big
+        x -= 2
+        self.assertEqual(x, -2147483649L)
+
+    def test_mixed(self):
+        self.assertEqual(1 + 0.5, 1.5)
+        self.assertEqual(0.5 + 1, 1.5)
+        self.assertEqual(1 - 0.5, 0.5)
+        self.assertEqual(0.5 - 1, -0.5)
+        self.assertEqual(3 * 0.5, 1.5)
+        self.assertEqual(True + True, 2)
+        self.assertEqual(1 + 2L, 3L)
+        self.assertEqual(type(1 + 2L), long)
+        self.assertEqual([1] * 3, [1, 1, 1])
+        self.assertEqual(3 * 'a', 'aaa')
+        x = 1
+        x *= 2.5
+        self.assertEqual(x, 2.5)
+
+    def test_comparisons(self):
+        a, b = 1, 2
+        self.assert_(a < b and a <= b and b > a and b >= a)
+        self.assert_(a != b and not a == b)
+        self.assert_((a < b) is True)
+        self.assert_((a > b) is False)
+        self.assert_(1 < 2 < 3)
+        self.assert_(not 1 < 3 < 2)
+        self.assert_(1 < 1.5)
+        self.assert_(2L > 1)
+
+    def test_subclass(self):
+        class Int(int):
+            def __add__(self, other):
+                return 'add'
+            def __lt__(self, other):
+                return 'lt'
+        class Float(float):
+            def __mul__(self, other):
+                return 'mul'
+        self.assertEqual(Int(1) + 1, 'add')
+        self.assertEqual(Int(1) < 2, 'lt')
+        self.assertEqual(Float(1) * 2.0, 'mul')
+        x = Int(1)
+        x += 1
+        self.assertEqual(x, 'add')
+
+
+class IntCacheTestCase(unittest.TestCase):
+
+    def test_shared(self):
+        for i, x in enumerate(range(-100, 900)):
+            self.assert_(x is range(-100, 900)[i])
+        self.assert_(list(enumerate('ab'))[1][0] is 1)
+        self.assertEqual(list(enumerate('ab'))[1], (1, 'b'))
+
+    def test_values(self):
+        self.assertEqual(range(-200, 2000), [i for i in range(-200, 2000)])
+        self.assertEqual(int(5.7), 5)
+        self.assertEqual(int(-0.5), 0)
+        self.assertEqual(str(-0.0 * 1.0)[0], '-')
+
+    def test_characters(self):
+        self.assertEqual(ord(unichr(256)), 256)
+        self.assertEqual(chr(255), '\xff')
+        self.assert_(chr(65) is 'A'[0])
+
+
+def test_main():
+    test_support.run_unittest(IntArithmeticTestCase,
+                              IntCacheTestCase)
+
+if __name__ == '__main__':
+    test_main()
@@ -130,12 +130,69 @@ class DisplayTest(unittest.TestCase):
         self.assertEqual(repr(test2), '"\'bar"')
         self.assertEqual(repr(unicode(test2)), 'u"\'bar"')
 
+class InPlaceAddTest(unittest.TestCase):
+
+    def test_shared_prefix(self):
+        # += appends to a builder shared by the strs built from it, which
+        # mustn't change the strs holding shorter prefixes of it
+        s = 'x' * 300
+        s += 'a'
+        before = s
+        s += 'b'
+        forked = before
+        forked += 'c'
+        s += 'd'
+        self.assertEqual(before, 'x' * 300 + 'a')
+        self.assertEqual(forked, 'x' * 300 + 'ac')
+        self.assertEqual(s, 'x' * 300 + 'abd')
+        self.assertEqual(len(s), 303)
+        self.assertEqual(hash(s), hash('x' * 300 + 'abd'))
+
+    def test_types(self):
+        class S(str):
+            pass
+        s = S('x' * 300)
+        s += 'a'
+        self.assertEqual(type(s), str)
+        s += u'\xe7'
+        self.assertEqual(type(s), unicode)
+        self.assertEqual(s, u'x' * 300 + u'a\xe7')
+        s = 'x' * 300
+        try:
+            s += 1
+        except TypeError:
+            pass
+        else:
+            self.fail('str += int should raise TypeError')
+
+    def test_loop(self):
+        s = ''
+        for i in xrange(10000):
+            s += str(i % 10)
+        self.assertEqual(len(s), 10000)
+        self.assertEqual(s[:12], '012345678901')
+        self.assertEqual(s.count('9'), 1000)
+
+    def test_kept_prefixes(self):
+        # A full builder isn't grown under the strs holding it; the next +=
+        # starts a new one
+        s = 'x' * 256
+        kept = []
+        for i in xrange(2000):
+            s += 'ab'
+            kept.append(s)
+        for i, k in enumerate(kept):
+            self.assertEqual(k[256:], 'ab' * (i + 1))
+        self.assertEqual(s, 'x' * 256 + 'ab' * 2000)
+
+
 def test_main():
     test_support.run_unittest(WrappedStrCmpTest,
         IntToStrTest,
         StringSlicingTest,
         FormatTest,
-        DisplayTest)
+        DisplayTest,
+        InPlaceAddTest)
 
 if __name__ == '__main__':
     test_main()
@@ -0,0 +1,218 @@
+/* Copyright (c) Jython Developers */
+package org.python.compiler;
+
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.python.objectweb.asm.Opcodes;
+
+/**
+ * Generates a ReflectedAccessor reading and writing a Java field or bean property directly,
+ * rather than through Field.get and Field.set or Method.invoke. Values read are converted to
+ * PyObjects in the generated code, primitives straight to the Python type the default adapter
+ * would give them if convertPrimitives is set, and through Py.java2py otherwise. Both get and
+ * set are always emitted; a direction that can't be accessed directly calls back to the
+ * reflective implementation in ReflectedAccessor.
+ */
+public class AccessorMaker implements ClassConstants, Opcodes {
+
+    private static final String ACCESSOR = "org/python/core/ReflectedAccessor";
+
+    private static final String PY = "org/python/core/Py";
+
+    private final Field field;
+
+    private final Method getter, setter;
+
+    private final String className;
+
+    private final boolean convertPrimitives;
+
+    public AccessorMaker(Field field, String className, boolean convertPrimitives) {
+        this(field, null, null, className, convertPrimitives);
+    }
+
+    public AccessorMaker(Method getter, Method setter, String className,
+                         boolean convertPrimitives) {
+        this(null, getter, setter, className, convertPrimitives);
+    }
+
+    private AccessorMaker(Field field, Method getter, Method setter, String className,
+                          boolean convertPrimitives) {
+        this.field = field;
+        this.getter = getter;
+        this.setter = setter;
+        this.className = ClassFile.fixName(className);
+        this.convertPrimitives = convertPrimitives;
+    }
+
+    /**
+     * Returns whether a generated accessor can read field.
+     */
+    public static boolean canGet(Field field) {
+        return Modifier.isPublic(field.getModifiers())
+                && InvokerMaker.isAccessible(field.getDeclaringClass());
+    }
+
+    /**
+     * Returns whether a generated accessor can write field.
+     */
+    public static boolean canSet(Field field) {
+        return canGet(field) && !Modifier.isFinal(field.getModifiers())
+                && InvokerMaker.isAccessible(field.getType());
+    }
+
+    /**
+     * Returns whether a generated accessor can call getter to read a property.
+     */
+    public static boolean canGet(Method getter) {
+        return getter.getParameterTypes().length == 0 && InvokerMaker.canInvoke(getter);
+    }
+
+    /**
+     * Returns whether a generated accessor can call setter to write a property.
+     */
+    public static boolean canSet(Method setter) {
+        return setter.getParameterTypes().length == 1 && InvokerMaker.canInvoke(setter);
+    }
+
+    public void make(OutputStream ostream) throws Exception {
+        ClassFile classfile = new ClassFile(className, ACCESSOR, ACC_PUBLIC);
+
+        Code code = classfile.addMethod("<init>", "()V", ACC_PUBLIC);
+        code.aload(0);
+        code.invokespecial(ACCESSOR, "<init>", "()V");
+        code.return_();
+
+        if (field != null) {
+            addGet(classfile, field, field.getType());
+            if (canSet(field)) {
+                addSet(classfile, field, field.getType());
+            } else {
+                addReflectiveSet(classfile);
+            }
+        } else {
+            if (getter != null) {
+                addGet(classfile, getter, getter.getReturnType());
+            } else {
+                addReflectiveGet(classfile);
+            }
+            if (setter != null) {
+                addSet(classfile, setter, setter.getParameterTypes()[0]);
+            } else {
+                addReflectiveSet(classfile);
+            }
+        }
+
+        classfile.write(ostream);
+    }
+
+    private void addGet(ClassFile classfile, Member member, Class<?> type) throws Exception {
+        Code code = classfile.addMethod("get", "(" + $obj + ")" + $pyObj, ACC_PUBLIC);
+        String owner = ProxyMaker.mapClass(member.getDeclaringClass());
+        boolean isStatic = Modifier.isStatic(member.getModifiers());
+        if (!isStatic) {
+            code.aload(1);
+            code.checkcast(owner);
+        }
+        String typeDesc = ProxyMaker.mapType(type);
+        if (member instanceof Field) {
+            if (isStatic) {
+                code.getstatic(owner, member.getName(), typeDesc);
+            } else {
+                code.getfield(owner, member.getName(), typeDesc);
+            }
+        } else {
+            invoke(code, (Method)member, "()" + typeDesc);
+        }
+        toPy(code, type);
+        code.areturn();
+    }
+
+    private void addSet(ClassFile classfile, Member member, Class<?> type) throws Exception {
+        Code code = classfile.addMethod("set", "(" + $obj + $obj + ")V", ACC_PUBLIC);
+        String owner = ProxyMaker.mapClass(member.getDeclaringClass());
+        boolean isStatic = Modifier.isStatic(member.getModifiers());
+        if (!isStatic) {
+            code.aload(1);
+            code.checkcast(owner);
+        }
+        code.aload(2);
+        InvokerMaker.unbox(code, type);
+        String typeDesc = ProxyMaker.mapType(type);
+        if (member instanceof Field) {
+            if (isStatic) {
+                code.putstatic(owner, member.getName(), typeDesc);
+            } else {
+                code.putfield(owner, member.getName(), typeDesc);
+            }
+        } else {
+            Method method = (Method)member;
+            Class<?> ret = method.getReturnType();
+            invoke(code, method, "(" + typeDesc + ")" + ProxyMaker.mapType(ret));
+            if (ret == Long.TYPE || ret == Double.TYPE) {
+                code.pop2();
+            } else if (ret != Void.TYPE) {
+                code.pop();
+            }
+        }
+        code.return_();
+    }
+
+    private void addReflectiveGet(ClassFile classfile) throws Exception {
+        String sig = "(" + $obj + ")" + $pyObj;
+        Code code = classfile.addMethod("get", sig, ACC_PUBLIC);
+        code.aload(0);
+        code.aload(1);
+        code.invokevirtual(ACCESSOR, "getReflectively", sig);
+        code.areturn();
+    }
+
+    private void addReflectiveSet(ClassFile classfile) throws Exception {
+        String sig = "(" + $obj + $obj + ")V";
+        Code code = classfile.addMethod("set", sig, ACC_PUBLIC);
+        code.aload(0);
+        code.aload(1);
+        code.aload(2);
+        code.invokevirtual(ACCESSOR, "setReflectively", sig);
+        code.return_();
+    }
+
+    private static void invoke(Code code, Method method, String sig) {
+        String owner = ProxyMaker.mapClass(method.getDeclaringClass());
+        if (Modifier.isStatic(method.getModifiers())) {
+            code.invokestatic(owner, method.getName(), sig);
+        } else if (method.getDeclaringClass().isInterface()) {
+            code.invokeinterface(owner, method.getName(), sig);
+        } else {
+            code.invokevirtual(owner, method.getName(), sig);
+        }
+    }
+
+    /**
+     * Emits the conversion of the value of type on the stack to a PyObject.
+     */
+    private void toPy(Code code, Class<?> type) {
+        if (convertPrimitives && type.isPrimitive() && type != Void.TYPE) {
+            String desc = ProxyMaker.mapType(type);
+            if (type == Boolean.TYPE) {
+                code.invokestatic(PY, "newBoolean", "(Z)Lorg/python/core/PyBoolean;");
+            } else if (type == Character.TYPE) {
+                code.invokestatic(PY, "makeCharacter", "(C)" + $pyStr);
+            } else if (type == Long.TYPE) {
+                code.invokestatic(PY, "newLong", "(J)" + $pyLong);
+            } else if (type == Float.TYPE || type == Double.TYPE) {
+                code.invokestatic(PY, "newFloat", "(" + desc + ")" + $pyFloat);
+            } else {
+                // int, short and byte are all ints on the stack
+                code.invokestatic(PY, "newInteger", "(I)" + $pyInteger);
+            }
+            return;
+        }
+        InvokerMaker.box(code, type);
+        code.invokestatic(PY, "java2py", "(" + $obj + ")" + $pyObj);
+    }
+}
@@ -16,6 +16,8 @@ public interface ClassConstants {
     final static String $pyRunnable = "Lorg/python/core/PyRunnable;";
     final static String $pyFuncTbl  = "Lorg/python/core/PyFunctionTable;";
     final static String $pyProxy    = "Lorg/python/core/PyProxy;";
+    final static String $attrSite   = "Lorg/python/core/AttributeSite;";
+    final static String $threadState = "Lorg/python/core/ThreadState;";
 
     final static String $obj       = "Ljava/lang/Object;";
     final static String $objArr    = "[Ljava/lang/Object;";
@@ -409,9 +409,11 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
 
         scope.setup_closure();
         scope.dump();
-        module.PyCode(new Suite(node, node.body), name, true,
-                      className, false, false,
-                      node.getLine(), scope, cflags).get(code);
+        PyCodeConstant codeConstant = module.PyCode(new Suite(node, node.body), name, true,
+                                                    className, false, false,
+                                                    node.getLine(), scope, cflags);
+        module.functionCompiled(node, codeConstant);
+        codeConstant.get(code);
 
         getDocString(node.body);
 
@@ -1400,9 +1402,36 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
         case In:    name = "_in"; break;
         case NotIn: name = "_notin"; break;
         }
+        String fast = null;
+        switch (op) {
+        case Eq:    fast = "eq"; break;
+        case NotEq: fast = "ne"; break;
+        case Lt:    fast = "lt"; break;
+        case LtE:   fast = "le"; break;
+        case Gt:    fast = "gt"; break;
+        case GtE:   fast = "ge"; break;
+        }
+        if (fast != null) {
+            code.invokestatic("org/python/core/NumericOps", fast,
+                              "(" + $pyObj + $pyObj + ")" + $pyObj);
+            return;
+        }
         code.invokevirtual("org/python/core/PyObject", name, "(" + $pyObj + ")" + $pyObj);
     }
 
+    /**
+     * Returns the NumericOps method computing op without boxing through the generic
+     * PyObject operator when both operands are ints or floats, or null if there isn't one.
+     */
+    private static String numericOp(operatorType op) {
+        switch (op) {
+        case Add:  return "add";
+        case Sub:  return "sub";
+        case Mult: return "mul";
+        default:   return null;
+        }
+    }
+
     @Override
     public Object visitBinOp(BinOp node) throws Exception {
         visit(node.left);
@@ -1428,6 +1457,12 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
         if (node.op == operatorType.Div && module.getFutures().areDivisionOn()) {
             name = "_truediv";
         }
+        String fast = numericOp(node.op);
+        if (fast != null) {
+            code.invokestatic("org/python/core/NumericOps", fast,
+                              "(" + $pyObj + $pyObj + ")" + $pyObj);
+            return null;
+        }
         code.invokevirtual("org/python/core/PyObject", name, "(" + $pyObj + ")" + $pyObj);
         return null;
     }
@@ -1476,7 +1511,13 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
         if (node.op == operatorType.Div && module.getFutures().areDivisionOn()) {
             name = "_itruediv";
         }
-        code.invokevirtual("org/python/core/PyObject", name, "(" + $pyObj + ")" + $pyObj);
+        String fast = numericOp(node.op);
+        if (fast != null) {
+            code.invokestatic("org/python/core/NumericOps", "i" + fast,
+                              "(" + $pyObj + $pyObj + ")" + $pyObj);
+        } else {
+            code.invokevirtual("org/python/core/PyObject", name, "(" + $pyObj + ")" + $pyObj);
+        }
         code.freeLocal(target);
 
         temporary = storeTop();
@@ -1508,47 +1549,67 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
         throws Exception
     {
         String name = getName(node.attr);
-        visit(node.value); stackProduce();
-        code.ldc(name);
-        code.invokevirtual("org/python/core/PyObject", "__getattr__", "(" + $str + ")" + $pyObj);
+        Constant site = module.AttributeSite(name);
+        visit(node.value);
+
+        // Fetch the method before evaluating the arguments, leaving either the unbound
+        // function and its self or the bound attribute and null on the stack
+        Label bound = new Label();
+        Label fetched = new Label();
+        code.dup();
+        site.get(code);
+        code.swap();
+        code.invokevirtual("org/python/core/AttributeSite", "getmethod", "(" + $pyObj + ")" + $pyObj);
+        code.dup();
+        code.ifnull(bound);
+        code.swap();
+        code.goto_(fetched);
+        code.label(bound);
+        code.pop();
+        site.get(code);
+        code.swap();
+        code.invokevirtual("org/python/core/AttributeSite", "getattr", "(" + $pyObj + ")" + $pyObj);
+        code.aconst_null();
+        code.label(fetched);
+        stackProduce(); stackProduce();
 
         switch (values.length) {
         case 0:
-            stackConsume(); // target
-            code.invokevirtual("org/python/core/PyObject", "__call__", "()" + $pyObj);
+            stackConsume(2); // callable + self
+            code.invokestatic("org/python/core/AttributeSite", "call", "(" + $pyObj + $pyObj + ")" + $pyObj);
             break;
         case 1:
             visit(values[0]);
-            stackConsume(); // target
-            code.invokevirtual("org/python/core/PyObject", "__call__", "(" + $pyObj + ")" + $pyObj);
+            stackConsume(2); // callable + self
+            code.invokestatic("org/python/core/AttributeSite", "call", "(" + $pyObj + $pyObj + $pyObj + ")" + $pyObj);
             break;
         case 2:
             visit(values[0]); stackProduce();
             visit(values[1]);
-            stackConsume(2); // target + arguments
-            code.invokevirtual("org/python/core/PyObject", "__call__", "(" + $pyObj + $pyObj + ")" + $pyObj);
+            stackConsume(3); // callable + self + arguments
+            code.invokestatic("org/python/core/AttributeSite", "call", "(" + $pyObj + $pyObj + $pyObj + $pyObj + ")" + $pyObj);
             break;
         case 3:
             visit(values[0]); stackProduce();
             visit(values[1]); stackProduce();
             visit(values[2]);
-            stackConsume(3); // target + arguments
-            code.invokevirtual("org/python/core/PyObject", "__call__", "(" + $pyObj + $pyObj + $pyObj + ")" + $pyObj);
+            stackConsume(4); // callable + self + arguments
+            code.invokestatic("org/python/core/AttributeSite", "call", "(" + $pyObj + $pyObj + $pyObj + $pyObj + $pyObj + ")" + $pyObj);
             break;
         case 4:
             visit(values[0]); stackProduce();
             visit(values[1]); stackProduce();
             visit(values[2]); stackProduce();
             visit(values[3]);
-            stackConsume(4); // target + arguments
-            code.invokevirtual("org/python/core/PyObject", "__call__", "(" + $pyObj + $pyObj + $pyObj + $pyObj + ")" + $pyObj);
+            stackConsume(5); // callable + self + arguments
+            code.invokestatic("org/python/core/AttributeSite", "call", "(" + $pyObj + $pyObj + $pyObj + $pyObj + $pyObj + $pyObj + ")" + $pyObj);
             break;
         default:
             int argArray = makeArray(values);
             code.aload(argArray);
             code.freeLocal(argArray);
-            stackConsume(); // target
-            code.invokevirtual("org/python/core/PyObject", "__call__", "(" + $pyObjArr + ")" + $pyObj);
+            stackConsume(2); // callable + self
+            code.invokestatic("org/python/core/AttributeSite", "call", "(" + $pyObj + $pyObj + $pyObjArr + ")" + $pyObj);
             break;
         }
         return null;
@@ -1573,9 +1634,25 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
             return invokeNoKeywords((Attribute) node.func, values);
         }
 
+        String directCall = null;
+        if (keys.length == 0 && node.starargs == null && node.kwargs == null
+            && node.func instanceof Name) {
+            directCall = module.directCall(((Name)node.func).id, values.length);
+        }
+
         visit(node.func); stackProduce();
 
-        if (node.starargs != null || node.kwargs != null) {
+        if (directCall != null) {
+            for (int i = 0; i < values.length; i++) {
+                visit(values[i]); stackProduce();
+            }
+            stackConsume(values.length + 1); // target + arguments
+            StringBuilder sig = new StringBuilder("(" + $pyObj);
+            for (int i = 0; i < values.length; i++) {
+                sig.append($pyObj);
+            }
+            code.invokestatic(module.classfile.name, directCall, sig + ")" + $pyObj);
+        } else if (node.starargs != null || node.kwargs != null) {
             int argArray = makeArray(values);
             int strArray = makeStrings(code, keys, keys.length);
             if (node.starargs == null)
@@ -1760,6 +1837,15 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants //,
     public Object visitAttribute(Attribute node) throws Exception {
 
         expr_contextType ctx = node.ctx;
+        if (ctx == expr_contextType.Load) {
+            Constant site = module.AttributeSite(getName(node.attr));
+            visit(node.value);
+            site.get(code);
+            code.swap();
+            code.invokevirtual("org/python/core/AttributeSite", "getattr", "(" + $pyObj + ")" + $pyObj);
+            return null;
+        }
+
         if (node.ctx == expr_contextType.AugStore && augmode == expr_contextType.Store) {
             restoreAugTmps(node, 2);
             ctx = expr_contextType.Store;
@@ -0,0 +1,135 @@
+/* Copyright (c) Jython Developers */
+package org.python.compiler;
+
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.python.objectweb.asm.Opcodes;
+
+/**
+ * Generates a ReflectedInvoker calling a Java method directly, rather than through
+ * Method.invoke. Like Method.invoke the invoker takes the target and the arguments as
+ * objects, primitives boxed, and returns the result boxed, or null for a void method.
+ */
+public class InvokerMaker implements ClassConstants, Opcodes {
+
+    private static final String INVOKER = "org/python/core/ReflectedInvoker";
+
+    private final Method method;
+
+    private final String className;
+
+    public InvokerMaker(Method method, String className) {
+        this.method = method;
+        this.className = ClassFile.fixName(className);
+    }
+
+    /**
+     * Returns whether code outside the package of c can name it.
+     */
+    public static boolean isAccessible(Class<?> c) {
+        while (c.isArray()) {
+            c = c.getComponentType();
+        }
+        for (; c != null; c = c.getDeclaringClass()) {
+            if (!c.isPrimitive() && !Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a generated invoker can call method.
+     */
+    public static boolean canInvoke(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())
+                || !isAccessible(method.getDeclaringClass())) {
+            return false;
+        }
+        for (Class<?> param : method.getParameterTypes()) {
+            if (!isAccessible(param)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void make(OutputStream ostream) throws Exception {
+        ClassFile classfile = new ClassFile(className, INVOKER, ACC_PUBLIC);
+
+        Code code = classfile.addMethod("<init>", "()V", ACC_PUBLIC);
+        code.aload(0);
+        code.invokespecial(INVOKER, "<init>", "()V");
+        code.return_();
+
+        code = classfile.addMethod("invoke", "(" + $obj + $objArr + ")" + $obj, ACC_PUBLIC);
+        Class<?> declaring = method.getDeclaringClass();
+        String owner = ProxyMaker.mapClass(declaring);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isStatic) {
+            code.aload(1);
+            code.checkcast(owner);
+        }
+        Class<?>[] params = method.getParameterTypes();
+        for (int i = 0; i < params.length; i++) {
+            code.aload(2);
+            code.iconst(i);
+            code.aaload();
+            unbox(code, params[i]);
+        }
+        String sig = ProxyMaker.makeSignature(params, method.getReturnType());
+        if (isStatic) {
+            code.invokestatic(owner, method.getName(), sig);
+        } else if (declaring.isInterface()) {
+            code.invokeinterface(owner, method.getName(), sig);
+        } else {
+            code.invokevirtual(owner, method.getName(), sig);
+        }
+        box(code, method.getReturnType());
+        code.areturn();
+
+        classfile.write(ostream);
+    }
+
+    /**
+     * Emits the conversion of the object on the stack to type, unboxing primitives.
+     */
+    public static void unbox(Code code, Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (type != Object.class) {
+                code.checkcast(ProxyMaker.mapClass(type));
+            }
+            return;
+        }
+        String wrapper = wrapperClass(type);
+        code.checkcast(wrapper);
+        code.invokevirtual(wrapper, type.getName() + "Value", "()" + ProxyMaker.mapType(type));
+    }
+
+    /**
+     * Emits the conversion of the value of type on the stack to an object, boxing primitives and
+     * pushing null for void.
+     */
+    public static void box(Code code, Class<?> type) {
+        if (type == Void.TYPE) {
+            code.aconst_null();
+        } else if (type.isPrimitive()) {
+            String wrapper = wrapperClass(type);
+            code.invokestatic(wrapper, "valueOf",
+                              "(" + ProxyMaker.mapType(type) + ")L" + wrapper + ";");
+        }
+    }
+
+    private static String wrapperClass(Class<?> type) {
+        if (type == Integer.TYPE) {
+            return "java/lang/Integer";
+        } else if (type == Character.TYPE) {
+            return "java/lang/Character";
+        } else {
+            String name = type.getName();
+            return "java/lang/" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+}
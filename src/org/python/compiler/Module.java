@@ -5,7 +5,9 @@ package org.python.compiler;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Vector;
 
@@ -16,8 +18,10 @@ import org.python.core.Py;
 import org.python.core.PyException;
 import org.python.antlr.ParseException;
 import org.python.antlr.PythonTree;
+import org.python.antlr.ast.FunctionDef;
 import org.python.antlr.ast.Suite;
 import org.python.antlr.ast.modType;
+import org.python.antlr.ast.stmtType;
 
 class PyIntegerConstant extends Constant implements ClassConstants, Opcodes
 {
@@ -216,6 +220,30 @@ class PyLongConstant extends Constant implements ClassConstants, Opcodes
     }
 }
 
+class AttributeSiteConstant extends Constant implements ClassConstants, Opcodes
+{
+    String attrName;
+
+    public AttributeSiteConstant(String attrName) {
+        this.attrName = attrName;
+    }
+
+    public void get(Code c) throws IOException {
+        c.getstatic(module.classfile.name, name, $attrSite);
+    }
+
+    public void put(Code c) throws IOException {
+        module.classfile.addField(name, $attrSite, access);
+        c.new_("org/python/core/AttributeSite");
+        c.dup();
+        c.ldc(attrName);
+        c.invokespecial("org/python/core/AttributeSite", "<init>", "(" + $str + ")V");
+        c.putstatic(module.classfile.name, name, $attrSite);
+    }
+
+    // Each site has its own cache, so the identity equals and hashCode are kept
+}
+
 class PyCodeConstant extends Constant implements ClassConstants, Opcodes
 {
     public String co_name;
@@ -352,8 +380,149 @@ public class Module implements Opcodes, ClassConstants, CompilationContext
     public Constant PyLong(String value) {
         return findConstant(new PyLongConstant(value));
     }
+    public Constant AttributeSite(String attrName) {
+        return findConstant(new AttributeSiteConstant(attrName));
+    }
 
     Vector codes;
+
+    // Direct calls, see PyTableCode.directFrame
+
+    /** The most arguments a direct call passes, as PyObject.__call__ has overloads for. */
+    private static final int MAX_DIRECT_ARGS = 4;
+
+    /** The module's top level function definitions by name; null for names defined twice. */
+    private Map<String, FunctionDef> topLevelDefs = new HashMap<String, FunctionDef>();
+
+    private Map<FunctionDef, PyCodeConstant> topLevelCodes =
+            new HashMap<FunctionDef, PyCodeConstant>();
+
+    /** Bridge method name to the called name and argument count. */
+    private Map<String, Object[]> directCalls = new LinkedHashMap<String, Object[]>();
+
+    private void findTopLevelDefs(modType node) {
+        if (!(node instanceof org.python.antlr.ast.Module)) {
+            return;
+        }
+        for (stmtType stmt : ((org.python.antlr.ast.Module)node).body) {
+            if (stmt instanceof FunctionDef) {
+                String name = ((FunctionDef)stmt).name;
+                topLevelDefs.put(name, topLevelDefs.containsKey(name) ? null : (FunctionDef)stmt);
+            }
+        }
+    }
+
+    /**
+     * Called once the code of a function definition is compiled.
+     */
+    public void functionCompiled(FunctionDef node, PyCodeConstant code) {
+        if (topLevelDefs.get(node.name) == node) {
+            topLevelCodes.put(node, code);
+        }
+    }
+
+    /**
+     * Returns the name of a static method of the module class to call, in place of
+     * PyObject.__call__, with the value of name followed by nargs positional arguments, or null
+     * if the call should be compiled as usual.
+     */
+    public String directCall(String name, int nargs) {
+        if (topLevelDefs.get(name) == null || nargs > MAX_DIRECT_ARGS
+            || !isJavaIdentifier(name)) {
+            return null;
+        }
+        String bridge = "call$" + name + "$" + nargs;
+        directCalls.put(bridge, new Object[] {name, nargs});
+        return bridge;
+    }
+
+    private static String directCallSignature(int nargs) {
+        StringBuilder sig = new StringBuilder("(");
+        for (int i = 0; i <= nargs; i++) {
+            sig.append($pyObj);
+        }
+        return sig.append(")").append($pyObj).toString();
+    }
+
+    /**
+     * Writes the bridge methods for the direct calls. A bridge calls the body of the function
+     * it's named for when it's handed that function and the function takes exactly the
+     * arguments passed; otherwise it makes an ordinary call.
+     */
+    public void addDirectCalls() throws IOException {
+        for (Map.Entry<String, Object[]> entry : directCalls.entrySet()) {
+            String name = (String)entry.getValue()[0];
+            int nargs = (Integer)entry.getValue()[1];
+            String sig = directCallSignature(nargs);
+            Code c = classfile.addMethod(entry.getKey(), sig, ACC_PUBLIC | ACC_STATIC);
+
+            PyCodeConstant code = topLevelCodes.get(topLevelDefs.get(name));
+            Label generic = new Label();
+            int frame = -1;
+            if (code != null && code.argcount == nargs && !code.arglist && !code.keywordlist
+                && (code.moreflags & org.python.core.PyTableCode.CO_JY_SIMPLE) != 0) {
+                int ts = c.getLocal($threadState);
+                c.invokestatic("org/python/core/Py", "getThreadState", "()" + $threadState);
+                c.astore(ts);
+                frame = c.getLocal($pyFrame);
+                c.aload(ts);
+                c.aload(0);
+                code.get(c);
+                c.invokestatic("org/python/core/PyTableCode", "directFrame",
+                               "(" + $threadState + $pyObj + $pyCode + ")" + $pyFrame);
+                c.dup();
+                c.astore(frame);
+                c.ifnull(generic);
+
+                c.aload(frame);
+                c.getfield("org/python/core/PyFrame", "f_fastlocals", $pyObjArr);
+                for (int i = 0; i < nargs; i++) {
+                    c.dup();
+                    c.iconst(i);
+                    c.aload(i + 1);
+                    c.aastore();
+                }
+                c.pop();
+
+                Label start = new Label();
+                Label end = new Label();
+                Label handler = new Label();
+                c.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+                c.label(start);
+                c.getstatic(classfile.name, "self", "L" + classfile.name + ";");
+                c.aload(frame);
+                c.invokevirtual(classfile.name, code.fname, "(" + $pyFrame + ")" + $pyObj);
+                c.label(end);
+                int ret = c.getLocal($pyObj);
+                c.astore(ret);
+                c.aload(ts);
+                c.aload(frame);
+                c.aload(ret);
+                c.invokestatic("org/python/core/PyTableCode", "directCallDone",
+                               "(" + $threadState + $pyFrame + $pyObj + ")" + $pyObj);
+                c.areturn();
+
+                c.label(handler);
+                int exc = c.getLocal($throwable);
+                c.astore(exc);
+                c.aload(ts);
+                c.aload(frame);
+                c.aload(exc);
+                c.invokestatic("org/python/core/PyTableCode", "directCallFailed",
+                               "(" + $threadState + $pyFrame + $throwable + ")" + $pyExc);
+                c.athrow();
+            }
+
+            c.label(generic);
+            for (int i = 0; i <= nargs; i++) {
+                c.aload(i);
+            }
+            c.invokevirtual("org/python/core/PyObject", "__call__",
+                            directCallSignature(nargs - 1));
+            c.areturn();
+        }
+    }
+
     private boolean isJavaIdentifier(String s) {
         char[] chars = s.toCharArray();
         if (chars.length == 0)
@@ -504,6 +673,11 @@ public class Module implements Opcodes, ClassConstants, CompilationContext
         if (compiler.my_scope.generator) {
             code.moreflags |= org.python.core.PyTableCode.CO_GENERATOR;
         }
+        if (scope.kind == ScopeConstants.FUNCSCOPE && !scope.generator
+            && !scope.exec && !scope.exc_state && code.cellvars == null
+            && code.freevars == null) {
+            code.moreflags |= org.python.core.PyTableCode.CO_JY_SIMPLE;
+        }
         if (cflags != null) {
             if (cflags.generator_allowed) {
                 code.moreflags |= org.python.core.PyTableCode.CO_GENERATOR_ALLOWED;
@@ -599,6 +773,7 @@ public class Module implements Opcodes, ClassConstants, CompilationContext
         addMain();
 
         addFunctions();
+        addDirectCalls();
 
         classfile.addInterface("org/python/core/PyRunnable");
         if (sfilename != null) {
@@ -647,6 +822,9 @@ public class Module implements Opcodes, ClassConstants, CompilationContext
         }
         module.futures.preprocessFutures(node, cflags);
         new ScopesCompiler(module, module.scopes).parse(node);
+        if (org.python.core.Options.directCalls) {
+            module.findTopLevelDefs(node);
+        }
 
         //Add __doc__ if it exists
         //Add __file__ for filename (if it exists?)
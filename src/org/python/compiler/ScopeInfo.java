@@ -65,6 +65,7 @@ public class ScopeInfo extends Object implements ScopeConstants {
     private boolean hasReturnWithValue;
     public int yield_count;
     public int max_with_count;
+    public boolean exc_state; // scope catches exceptions or clears sys.exc_info
 
     public ArgListCompiler ac;
 
@@ -247,11 +247,23 @@ public class ScopesCompiler extends Visitor implements ScopeConstants {
             }
             cur.addBound(name);
         } else {
+            if (name.equals("exc_clear")) {
+                cur.exc_state = true;
+            }
             cur.addUsed(name);
         }
         return null;
     }
 
+    @Override
+    public Object visitAttribute(Attribute node) throws Exception {
+        if (node.attr.equals("exc_clear")) {
+            cur.exc_state = true;
+        }
+        traverse(node);
+        return null;
+    }
+
     @Override
     public Object visitListComp(ListComp node) throws Exception {
         String tmp = "_[" + node.getLine() + "_" + node.getCharPositionInLine()
@@ -328,9 +340,17 @@ public class ScopesCompiler extends Visitor implements ScopeConstants {
     @Override
     public Object visitWith(With node) throws Exception {
         cur.max_with_count++;
+        cur.exc_state = true;
         traverse(node);
 
         return null;
     }
 
+    @Override
+    public Object visitTryExcept(TryExcept node) throws Exception {
+        cur.exc_state = true;
+        traverse(node);
+        return null;
+    }
+
 }
@@ -0,0 +1,118 @@
+/* Copyright (c) Jython Developers */
+package org.python.compiler;
+
+import java.io.OutputStream;
+
+import org.python.objectweb.asm.Label;
+import org.python.objectweb.asm.Opcodes;
+
+/**
+ * Generates the classes of instances of Python classes that derive from object and define
+ * __slots__. For a given number of slots the instance class is a PyObjectDerived holding each
+ * slot in a field of its own, and its factory a SlotFieldsFactory creating such instances
+ * without reflection. The classes only depend on the number of slots, so all Python classes
+ * with as many slots share them.
+ */
+public class SlotFieldsMaker implements ClassConstants, Opcodes {
+
+    private static final String DERIVED = "org/python/core/PyObjectDerived";
+
+    private static final String FACTORY = "org/python/core/SlotFieldsFactory";
+
+    private static final String $pyType = "Lorg/python/core/PyType;";
+
+    private final int numSlots;
+
+    private final String className;
+
+    public SlotFieldsMaker(int numSlots, String className) {
+        this.numSlots = numSlots;
+        this.className = ClassFile.fixName(className);
+    }
+
+    /**
+     * Returns the name of the factory class for the instance class called className.
+     */
+    public static String factoryName(String className) {
+        return className + "$Factory";
+    }
+
+    /**
+     * Writes the instance class, with fields slot0 to slot<numSlots - 1>.
+     */
+    public void makeInstanceClass(OutputStream ostream) throws Exception {
+        ClassFile classfile = new ClassFile(className, DERIVED, ACC_PUBLIC);
+        for (int i = 0; i < numSlots; i++) {
+            classfile.addField("slot" + i, $pyObj, ACC_PRIVATE);
+        }
+
+        Code code = classfile.addMethod("<init>", "(" + $pyType + ")V", ACC_PUBLIC);
+        code.aload(0);
+        code.aload(1);
+        code.invokespecial(DERIVED, "<init>", "(" + $pyType + ")V");
+        code.return_();
+
+        code = classfile.addMethod("getSlot", "(I)" + $pyObj, ACC_PUBLIC);
+        Label[] cases = switchOnIndex(code);
+        for (int i = 0; i < numSlots; i++) {
+            code.label(cases[i]);
+            code.aload(0);
+            code.getfield(className, "slot" + i, $pyObj);
+            code.areturn();
+        }
+
+        code = classfile.addMethod("setSlot", "(I" + $pyObj + ")V", ACC_PUBLIC);
+        cases = switchOnIndex(code);
+        for (int i = 0; i < numSlots; i++) {
+            code.label(cases[i]);
+            code.aload(0);
+            code.aload(2);
+            code.putfield(className, "slot" + i, $pyObj);
+            code.return_();
+        }
+
+        classfile.write(ostream);
+    }
+
+    /**
+     * Emits a switch on the index argument with a label per slot, throwing an
+     * IndexOutOfBoundsException for any other index.
+     */
+    private Label[] switchOnIndex(Code code) {
+        Label[] cases = new Label[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            cases[i] = new Label();
+        }
+        Label outOfRange = new Label();
+        code.iload(1);
+        code.tableswitch(0, numSlots - 1, outOfRange, cases);
+        code.label(outOfRange);
+        code.new_("java/lang/IndexOutOfBoundsException");
+        code.dup();
+        code.invokespecial("java/lang/IndexOutOfBoundsException", "<init>", "()V");
+        code.athrow();
+        return cases;
+    }
+
+    /**
+     * Writes the factory class, named {@link #factoryName}.
+     */
+    public void makeFactoryClass(OutputStream ostream) throws Exception {
+        String name = factoryName(className);
+        ClassFile classfile = new ClassFile(name, FACTORY, ACC_PUBLIC);
+
+        Code code = classfile.addMethod("<init>", "()V", ACC_PUBLIC);
+        code.aload(0);
+        code.invokespecial(FACTORY, "<init>", "()V");
+        code.return_();
+
+        code = classfile.addMethod("newInstance", "(" + $pyType + ")" + $pyObj, ACC_PUBLIC);
+        code.new_(className);
+        code.dup();
+        code.aload(1);
+        code.invokespecial(className, "<init>", "(" + $pyType + ")V");
+        code.areturn();
+
+        classfile.write(ostream);
+    }
+}
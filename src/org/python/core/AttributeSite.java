@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2008 Jython Developers
+ * Licensed to PSF under a Contributor Agreement.
+ */
+package org.python.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A polymorphic inline cache for a single attribute access or method call site in compiled code.
+ * The compiler stores one of these in a static field of the module class for each
+ * <code>obj.name</code> load and <code>obj.name(args)</code> call it emits.
+ *
+ * The cache remembers, for up to {@link #MAX_ENTRIES} receiver types, the descriptor found by
+ * looking <code>name</code> up through the type's mro. Entries are guarded on the receiver's
+ * Java class, its PyType and the type's version tag, so any change to the type or its bases
+ * invalidates them. Receivers whose attribute lookup is customized (by overriding
+ * __findattr_ex__ in Java or __getattribute__ in Python) always take the generic path, as do
+ * those whose type has classic classes or types other than its bases in its mro, as changes to
+ * those don't change the type's version tag.
+ */
+public class AttributeSite {
+
+    /** The most receiver types cached before the site is considered megamorphic. */
+    static final int MAX_ENTRIES = 4;
+
+    /** Java classes whose instances look attributes up as object.__getattribute__ does. */
+    private static final Map<Class<?>, Boolean> standardLookup =
+            new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private static PyObject objectGetattribute;
+
+    /** The attribute name, interned. */
+    private final String name;
+
+    private volatile Entry[] entries = new Entry[0];
+
+    private volatile boolean megamorphic;
+
+    public AttributeSite(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Equivalent to <code>obj.__getattr__(name)</code>.
+     */
+    public PyObject getattr(PyObject obj) {
+        Entry entry = find(obj);
+        if (entry != null && entry.standard) {
+            PyObject res = entry.getattr(obj, name);
+            if (res != null) {
+                return res;
+            }
+        }
+        return obj.__getattr__(name);
+    }
+
+    /**
+     * Returns the plain function that calling <code>obj.name</code> would bind to obj, or null if
+     * the attribute must be fetched with {@link #getattr}. When this returns a function f,
+     * <code>obj.name(args)</code> is equivalent to <code>f(obj, args)</code>.
+     */
+    public PyObject getmethod(PyObject obj) {
+        Entry entry = find(obj);
+        if (entry == null || !entry.standard || entry.descr == null
+            || entry.descr.getClass() != PyFunction.class) {
+            return null;
+        }
+        PyObject dict = obj.fastGetDict();
+        if (dict != null && dict.__finditem__(name) != null) {
+            return null;
+        }
+        return entry.descr;
+    }
+
+    /**
+     * Calls callable, which is either a function from {@link #getmethod} to be called with self
+     * prepended or, when self is null, an already bound attribute.
+     */
+    public static PyObject call(PyObject callable, PyObject self) {
+        if (self == null) {
+            return callable.__call__();
+        }
+        return callable.__call__(self);
+    }
+
+    public static PyObject call(PyObject callable, PyObject self, PyObject arg1) {
+        if (self == null) {
+            return callable.__call__(arg1);
+        }
+        return callable.__call__(self, arg1);
+    }
+
+    public static PyObject call(PyObject callable, PyObject self, PyObject arg1, PyObject arg2) {
+        if (self == null) {
+            return callable.__call__(arg1, arg2);
+        }
+        return callable.__call__(self, arg1, arg2);
+    }
+
+    public static PyObject call(PyObject callable, PyObject self, PyObject arg1, PyObject arg2,
+                                PyObject arg3) {
+        if (self == null) {
+            return callable.__call__(arg1, arg2, arg3);
+        }
+        return callable.__call__(self, new PyObject[] {arg1, arg2, arg3}, Py.NoKeywords);
+    }
+
+    public static PyObject call(PyObject callable, PyObject self, PyObject arg1, PyObject arg2,
+                                PyObject arg3, PyObject arg4) {
+        if (self == null) {
+            return callable.__call__(arg1, arg2, arg3, arg4);
+        }
+        return callable.__call__(self, new PyObject[] {arg1, arg2, arg3, arg4}, Py.NoKeywords);
+    }
+
+    public static PyObject call(PyObject callable, PyObject self, PyObject[] args) {
+        if (self == null) {
+            return callable.__call__(args);
+        }
+        return callable.__call__(self, args, Py.NoKeywords);
+    }
+
+    private Entry find(PyObject obj) {
+        Class<?> c = obj.getClass();
+        PyType type = obj.getType();
+        Entry[] entries = this.entries;
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = entries[i];
+            if (entry.javaClass == c && entry.type == type
+                && entry.version == type.getVersionTag()) {
+                return entry;
+            }
+        }
+        if (megamorphic) {
+            return null;
+        }
+        return fill(c, type);
+    }
+
+    private Entry fill(Class<?> c, PyType type) {
+        int version = type.getVersionTag();
+        Entry entry;
+        // Types whose version tag doesn't cover every change to their lookups aren't cached
+        if (type.isLookupCacheable() && isStandardLookup(c, type)) {
+            PyObject getattrHook = null;
+            if (Slotted.class.isAssignableFrom(c)) {
+                getattrHook = type.lookup("__getattr__");
+            }
+            entry = new Entry(c, type, version, true, type.lookup(name), getattrHook);
+        } else {
+            // Remember that this receiver type needs the generic path
+            entry = new Entry(c, type, version, false, null, null);
+        }
+
+        // Replace any stale entry for the same receiver type
+        Entry[] entries = this.entries;
+        int n = 0;
+        Entry[] updated = new Entry[entries.length + 1];
+        for (Entry old : entries) {
+            if (old.javaClass != c || old.type != type) {
+                updated[n++] = old;
+            }
+        }
+        if (n >= MAX_ENTRIES) {
+            megamorphic = true;
+            return entry;
+        }
+        updated[n++] = entry;
+        if (n < updated.length) {
+            Entry[] trimmed = new Entry[n];
+            System.arraycopy(updated, 0, trimmed, 0, n);
+            updated = trimmed;
+        }
+        this.entries = updated;
+        return entry;
+    }
+
+    /**
+     * Returns true if instances of c with type find their attributes exactly as
+     * object.__getattribute__ would.
+     */
+    private static boolean isStandardLookup(Class<?> c, PyType type) {
+        Boolean standard = standardLookup.get(c);
+        if (standard == null) {
+            try {
+                Class<?> declaring = c.getMethod("__findattr_ex__", String.class)
+                        .getDeclaringClass();
+                standard = declaring == PyObject.class || Slotted.class.isAssignableFrom(declaring);
+            } catch (NoSuchMethodException e) {
+                standard = false;
+            }
+            standardLookup.put(c, standard);
+        }
+        if (!standard) {
+            return false;
+        }
+        if (!Slotted.class.isAssignableFrom(c)) {
+            return true;
+        }
+        // Derived classes dispatch through the type's __getattribute__
+        if (objectGetattribute == null) {
+            objectGetattribute = PyObject.TYPE.lookup("__getattribute__");
+        }
+        return type.lookup("__getattribute__") == objectGetattribute;
+    }
+
+    private static class Entry {
+
+        final Class<?> javaClass;
+
+        final PyType type;
+
+        final int version;
+
+        /** Whether the receiver uses the standard lookup, otherwise the generic path is taken. */
+        final boolean standard;
+
+        /** The result of type.lookup(name), possibly null. */
+        final PyObject descr;
+
+        /** The type's __getattr__, consulted by Derived classes when lookup fails. */
+        final PyObject getattrHook;
+
+        Entry(Class<?> javaClass, PyType type, int version, boolean standard, PyObject descr,
+              PyObject getattrHook) {
+            this.javaClass = javaClass;
+            this.type = type;
+            this.version = version;
+            this.standard = standard;
+            this.descr = descr;
+            this.getattrHook = getattrHook;
+        }
+
+        /**
+         * Returns the attribute or null when the generic path must be taken.
+         */
+        PyObject getattr(PyObject obj, String name) {
+            try {
+                return findattr(obj, name);
+            } catch (PyException exc) {
+                if (getattrHook == null || !Py.matchException(exc, Py.AttributeError)) {
+                    throw exc;
+                }
+                return getattrHook.__get__(obj, type).__call__(PyString.fromInterned(name));
+            }
+        }
+
+        /**
+         * Mirrors PyObject.object___findattr__ with the type lookup already done.
+         */
+        private PyObject findattr(PyObject obj, String name) {
+            PyObject res;
+            if (descr != null && descr.isDataDescr()) {
+                res = descr.__get__(obj, type);
+                if (res != null) {
+                    return res;
+                }
+            }
+
+            PyObject dict = obj.fastGetDict();
+            if (dict != null) {
+                res = dict.__finditem__(name);
+                if (res != null) {
+                    return res;
+                }
+            }
+
+            if (descr != null) {
+                return descr.__get__(obj, type);
+            }
+            return null;
+        }
+    }
+}
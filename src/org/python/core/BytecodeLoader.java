@@ -1,6 +1,7 @@
 // Copyright (c) Corporation for National Research Initiatives
 package org.python.core;
 
+import java.nio.ByteBuffer;
 import java.security.SecureClassLoader;
 import java.util.List;
 
@@ -71,6 +72,22 @@ public class BytecodeLoader {
         }
     }
 
+    /**
+     * Turn the java byte code for a compiled python module, the remaining bytes of data, into a
+     * java class, without copying them to the heap first. name must be the name the module was
+     * compiled under.
+     */
+    public static PyCode makeCode(String name, ByteBuffer data, String filename) {
+        try {
+            Class<?> c = new Loader().loadClassFromBuffer(name, data);
+            Object o = c.getConstructor(new Class[] {String.class})
+                    .newInstance(new Object[] {filename});
+            return ((PyRunnable)o).getMain();
+        } catch (Exception e) {
+            throw Py.JavaError(e);
+        }
+    }
+
     public static class Loader extends SecureClassLoader {
 
         private List<ClassLoader> parents = Generic.list();
@@ -118,5 +135,12 @@ public class BytecodeLoader {
             Compiler.compileClass(c);
             return c;
         }
+
+        public Class<?> loadClassFromBuffer(String name, ByteBuffer data) {
+            Class<?> c = defineClass(name, data, getClass().getProtectionDomain());
+            resolveClass(c);
+            Compiler.compileClass(c);
+            return c;
+        }
     }
 }
@@ -0,0 +1,141 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process wide cache of the code compiled from strings, so that interpreters compiling the same
+ * source with the same flags share one code object and its class rather than each parsing the
+ * source and generating and defining a class again.
+ * <p>
+ * Entries are keyed by the source text, filename, kind and compiler flags. The least recently used
+ * entry is dropped once there are more than {@link Options#codeCacheSize}. As every compiled class
+ * has a class loader of its own, the class of a dropped entry can be unloaded as soon as nothing
+ * else refers to its code.
+ */
+public class CodeCache {
+
+    private static final int NESTED_SCOPES = 1, DIVISION = 2, GENERATORS = 4, WITH_STATEMENT = 8,
+            ABSOLUTE_IMPORT = 16, DONT_IMPLY_DEDENT = 32, SOURCE_IS_UTF8 = 64;
+
+    private static final Map<Key, Entry> cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > Options.codeCacheSize;
+        }
+    };
+
+    private CodeCache() {}
+
+    /**
+     * Returns the code compiled from data by {@link Py#compile_flags(String, String, String,
+     * CompilerFlags)}, compiling it if it isn't cached. Like compiling, this turns on the future
+     * features the source imports in cflags.
+     */
+    static PyObject compile(String data, String filename, String kind, CompilerFlags cflags) {
+        if (Options.codeCacheSize <= 0 || cflags != null && cflags.only_ast) {
+            return Py.compileString(data, filename, kind, cflags);
+        }
+        Key key = new Key(data, filename, kind, cflags);
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry == null) {
+            PyObject code = Py.compileString(data, filename, kind, cflags);
+            entry = new Entry(code, flags(cflags) & ~key.flags);
+            synchronized (cache) {
+                cache.put(key, entry);
+            }
+        } else if (cflags != null) {
+            cflags.division |= (entry.futures & DIVISION) != 0;
+            cflags.with_statement |= (entry.futures & WITH_STATEMENT) != 0;
+            cflags.absolute_import |= (entry.futures & ABSOLUTE_IMPORT) != 0;
+        }
+        return entry.code;
+    }
+
+    /**
+     * Returns the number of entries cached.
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Drops all the cached code.
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static int flags(CompilerFlags cflags) {
+        if (cflags == null) {
+            return 0;
+        }
+        return (cflags.nested_scopes ? NESTED_SCOPES : 0) | (cflags.division ? DIVISION : 0)
+                | (cflags.generator_allowed ? GENERATORS : 0)
+                | (cflags.with_statement ? WITH_STATEMENT : 0)
+                | (cflags.absolute_import ? ABSOLUTE_IMPORT : 0)
+                | (cflags.dont_imply_dedent ? DONT_IMPLY_DEDENT : 0)
+                | (cflags.source_is_utf8 ? SOURCE_IS_UTF8 : 0);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static class Key {
+
+        private final String data, filename, kind, encoding;
+
+        /** The flags compiled with, or -1 for none at all. */
+        private final int flags;
+
+        private final int hash;
+
+        Key(String data, String filename, String kind, CompilerFlags cflags) {
+            this.data = data;
+            this.filename = filename;
+            this.kind = kind;
+            encoding = cflags == null ? null : cflags.encoding;
+            flags = cflags == null ? -1 : flags(cflags);
+            int h = data.hashCode();
+            h = 31 * h + (filename == null ? 0 : filename.hashCode());
+            h = 31 * h + kind.hashCode();
+            hash = 31 * h + flags;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return hash == other.hash && flags == other.flags && data.equals(other.data)
+                    && equal(filename, other.filename) && kind.equals(other.kind)
+                    && equal(encoding, other.encoding);
+        }
+    }
+
+    private static class Entry {
+
+        final PyObject code;
+
+        /** The future features compiling the code turned on. */
+        final int futures;
+
+        Entry(PyObject code, int futures) {
+            this.code = code;
+            this.futures = futures;
+        }
+    }
+}
@@ -50,7 +50,7 @@ class CollectionProxy {
     }
 
     public PyObject __finditem__(int key) {
-        return __finditem__(new PyInteger(key));
+        return __finditem__(Py.newInteger(key));
     }
 
     public PyObject __finditem__(PyObject key) {
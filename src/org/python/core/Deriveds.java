@@ -0,0 +1,65 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+/**
+ * Helpers shared by the generated *Derived classes.
+ */
+public class Deriveds {
+
+    /** object.__getattribute__, the descriptor nearly all types inherit. */
+    private static final PyObject objectGetattribute = PyObject.TYPE.lookup("__getattribute__");
+
+    /**
+     * The __findattr_ex__ of a Derived class: looks name up through the type's
+     * __getattribute__, falling back to its __getattr__ on AttributeError.
+     *
+     * When the type inherits object.__getattribute__ a missing attribute is reported by a null
+     * return instead, so no AttributeError is built only to be swallowed by __getattr__,
+     * hasattr or getattr with a default.
+     *
+     * @param self the Derived instance
+     * @param name the attribute name, interned
+     * @return the attribute or null
+     */
+    public static PyObject __findattr_ex__(PyObject self, String name) {
+        PyType type = self.getType();
+        PyString pyName = null;
+        PyException firstAttributeError = null;
+        try {
+            PyObject getattribute = type.lookup("__getattribute__");
+            if (getattribute == null) {
+                Py.Warning(String.format("__getattribute__ not found on type %s",
+                                         type.getName()));
+            }
+            if (getattribute == null || getattribute == objectGetattribute) {
+                PyObject ret = self.object___findattr__(name);
+                if (ret != null) {
+                    return ret;
+                } // else: pass through to __getattr__ invocation
+            } else {
+                pyName = PyString.fromInterned(name);
+                return getattribute.__get__(self, type).__call__(pyName);
+            }
+        } catch (PyException e) {
+            if (!Py.matchException(e, Py.AttributeError)) {
+                throw e;
+            } else {
+                // saved to avoid swallowing custom AttributeErrors, and pass through to
+                // __getattr__ invocation
+                firstAttributeError = e;
+            }
+        }
+
+        PyObject getattr = type.lookup("__getattr__");
+        if (getattr != null) {
+            if (pyName == null) {
+                pyName = PyString.fromInterned(name);
+            }
+            return getattr.__get__(self, type).__call__(pyName);
+        }
+        if (firstAttributeError != null) {
+            throw firstAttributeError;
+        }
+        return null;
+    }
+}
@@ -32,7 +32,7 @@ public class FilelikeInputStream extends InputStream {
             return 0;
         }
         String result = ((PyString)filelike.__getattr__("read")
-                .__call__(new PyInteger(len))).string;
+                .__call__(new PyInteger(len))).getString();
         if(result.length() == 0) {
             return -1;
         }
@@ -0,0 +1,206 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the listings of the directories imports search, so that a module missing from a
+ * directory costs a check of the directory's modification time rather than a stat of every
+ * candidate file in it. Names found in a listing are still checked on disk, so the cache only
+ * ever answers negatively on its own.
+ *
+ * A listing is read again when the modification time of its directory changes. Directories
+ * modified in the last {@link #SETTLE_MILLIS} aren't listed, and their files are checked on
+ * disk, as files added within the resolution of the modification time would go unnoticed.
+ */
+public class ImportCache {
+
+    static final long SETTLE_MILLIS = 2000;
+
+    private static final ConcurrentMap<String, Listing> listings =
+            new ConcurrentHashMap<String, Listing>();
+
+    private static final AtomicLong hits = new AtomicLong();
+
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static final AtomicLong reads = new AtomicLong();
+
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    private static class Listing {
+
+        final long lastModified;
+
+        final Set<String> names = new HashSet<String>();
+
+        /** The names in lower case, for Options.caseok. */
+        final Set<String> lowerNames = new HashSet<String>();
+
+        Listing(long lastModified, String[] list) {
+            this.lastModified = lastModified;
+            for (String name : list) {
+                names.add(name);
+                lowerNames.add(name.toLowerCase());
+            }
+        }
+
+        boolean contains(String name) {
+            return Options.caseok ? lowerNames.contains(name.toLowerCase())
+                    : names.contains(name);
+        }
+    }
+
+    private static final int ABSENT = 0, PRESENT = 1, UNKNOWN = 2;
+
+    /**
+     * The entries of a directory, as they were when it was looked up with {@link #get}.
+     */
+    public static class Directory {
+
+        private final File dir;
+
+        private final boolean exists;
+
+        /** The cached listing, or null when the files have to be checked on disk. */
+        private final Listing listing;
+
+        Directory(File dir, boolean exists, Listing listing) {
+            this.dir = dir;
+            this.exists = exists;
+            this.listing = listing;
+        }
+
+        /**
+         * Returns whether name is a file in this directory whose case matches the name on disk,
+         * like <code>file.isFile() && imp.caseok(file, name)</code>.
+         */
+        public boolean isFile(String name) {
+            File file = new File(dir, name);
+            switch (lookup(name)) {
+                case ABSENT:
+                    return false;
+                case PRESENT:
+                    return file.isFile();
+                default:
+                    return file.isFile() && imp.caseok(file, name);
+            }
+        }
+
+        /**
+         * Returns whether name is a directory in this directory whose case matches the name on
+         * disk, like <code>file.isDirectory() && imp.caseok(file, name)</code>.
+         */
+        public boolean isDirectory(String name) {
+            File file = new File(dir, name);
+            switch (lookup(name)) {
+                case ABSENT:
+                    return false;
+                case PRESENT:
+                    return file.isDirectory();
+                default:
+                    return file.isDirectory() && imp.caseok(file, name);
+            }
+        }
+
+        /**
+         * Returns false if this directory certainly has no entry called name, true if it may.
+         */
+        public boolean mayExist(String name) {
+            return lookup(name) != ABSENT;
+        }
+
+        private int lookup(String name) {
+            if (listing == null) {
+                if (exists) {
+                    return UNKNOWN;
+                }
+            } else if (listing.contains(name)) {
+                hits.incrementAndGet();
+                return Options.caseok ? UNKNOWN : PRESENT;
+            }
+            misses.incrementAndGet();
+            return ABSENT;
+        }
+    }
+
+    private ImportCache() {}
+
+    /**
+     * Returns the entries of dir, checking the modification time of dir once. When the cache is
+     * off the entries are checked on disk.
+     */
+    public static Directory get(File dir) {
+        if (!Options.importCache) {
+            return new Directory(dir, true, null);
+        }
+        String key = dir.getPath();
+        long lastModified = dir.lastModified();
+        if (lastModified == 0L) {
+            // The directory doesn't exist (or can't be read), so neither do its files
+            listings.remove(key);
+            return new Directory(dir, false, null);
+        }
+        Listing listing = listings.get(key);
+        if (listing == null || listing.lastModified != lastModified) {
+            if (listing != null) {
+                listings.remove(key);
+                invalidations.incrementAndGet();
+            }
+            listing = null;
+            if (System.currentTimeMillis() - lastModified > SETTLE_MILLIS) {
+                String[] list = dir.list();
+                reads.incrementAndGet();
+                if (list != null) {
+                    listing = new Listing(lastModified, list);
+                    listings.put(key, listing);
+                }
+            }
+        }
+        return new Directory(dir, true, listing);
+    }
+
+    /**
+     * Returns false if file certainly doesn't exist, true if it may.
+     */
+    public static boolean mayExist(File file) {
+        File dir = file.getParentFile();
+        return dir == null || get(dir).mayExist(file.getName());
+    }
+
+    /**
+     * Drops all listings, to be read again when next needed.
+     */
+    public static void clear() {
+        listings.clear();
+    }
+
+    /**
+     * Turns the cache on or off, dropping all listings.
+     */
+    public static void setEnabled(boolean enabled) {
+        Options.importCache = enabled;
+        clear();
+    }
+
+    /**
+     * Returns a dict with the number of lookups answered by a listing positively (hits) and
+     * negatively (misses), of directory listings read (reads), and of listings read again
+     * because their directory changed (invalidations), as well as the number of directories
+     * currently cached.
+     */
+    public static PyObject getStats() {
+        PyDictionary stats = new PyDictionary();
+        stats.__setitem__("hits", Py.newLong(hits.get()));
+        stats.__setitem__("misses", Py.newLong(misses.get()));
+        stats.__setitem__("reads", Py.newLong(reads.get()));
+        stats.__setitem__("invalidations", Py.newLong(invalidations.get()));
+        stats.__setitem__("directories", Py.newInteger(listings.size()));
+        return stats;
+    }
+}
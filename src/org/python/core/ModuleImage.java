@@ -0,0 +1,240 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An importer for modules precompiled into a single image file, installed on sys.meta_path when
+ * the python.image registry property names one. A module found in the image is defined straight
+ * from the memory mapped image, without searching sys.path or reading a $py.class file.
+ *
+ * An image is a snapshot: it isn't checked against the sources it was compiled from, and is
+ * ignored as a whole when it was compiled for another {@link imp#APIVersion}. Images are
+ * written by {@link Builder}, see org.python.util.ParallelCompiler.
+ *
+ * The file holds a header of a magic number, the API version and the number of modules, an
+ * index with the name, package flag, source filename, offset and length of each module, and then
+ * the class files of the modules.
+ */
+public class ModuleImage extends PyObject {
+
+    private static final int MAGIC = 0x4a59494d; // "JYIM"
+
+    private static final String IMPORT_LOG = "import";
+
+    private static class Entry {
+
+        final boolean pkg;
+
+        final String filename;
+
+        final int offset;
+
+        final int length;
+
+        Entry(boolean pkg, String filename, int offset, int length) {
+            this.pkg = pkg;
+            this.filename = filename;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final String path;
+
+    private final Map<String, Entry> index;
+
+    private final ByteBuffer data;
+
+    private ModuleImage(String path, Map<String, Entry> index, ByteBuffer data) {
+        this.path = path;
+        this.index = index;
+        this.data = data;
+    }
+
+    /**
+     * Opens the image at path, returning null if it was compiled for another API version.
+     */
+    public static ModuleImage open(String path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(path)));
+        Map<String, Entry> index;
+        long start;
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a module image: " + path);
+            }
+            if (in.readInt() != imp.APIVersion) {
+                return null;
+            }
+            int count = in.readInt();
+            index = new HashMap<String, Entry>(count * 2);
+            // the class files start after the header and the index
+            start = 12;
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                boolean pkg = in.readBoolean();
+                String filename = in.readUTF();
+                int offset = in.readInt();
+                int length = in.readInt();
+                index.put(name, new Entry(pkg, filename, offset, length));
+                start += utfLength(name) + 1 + utfLength(filename) + 8;
+            }
+        } finally {
+            in.close();
+        }
+
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                          channel.size() - start);
+            return new ModuleImage(path, index, data);
+        } finally {
+            // the mapping stays valid after the file is closed
+            file.close();
+        }
+    }
+
+    /** Returns the number of bytes writeUTF writes for s. */
+    private static int utfLength(String s) {
+        int length = 2;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            length += c >= 0x0001 && c <= 0x007f ? 1 : c <= 0x07ff ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the number of modules in the image.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Find the module for the fully qualified name.
+     *
+     * @param name the fully qualified name of the module
+     * @param path None or the __path__ of the package of the module
+     * @return this if the module is in the image, None otherwise
+     */
+    public PyObject find_module(String name, PyObject path) {
+        return index.containsKey(name) ? this : Py.None;
+    }
+
+    public PyObject find_module(String name) {
+        return find_module(name, Py.None);
+    }
+
+    public PyObject load_module(String name) {
+        Entry entry = index.get(name);
+        if (entry == null) {
+            throw Py.ImportError("No module named " + name + " in " + path);
+        }
+        if (entry.pkg) {
+            // Packages keep their source directory as __path__, so modules that are not
+            // in the image can still be imported from it
+            PyModule m = imp.addModule(name);
+            PyObject dir = new PyString(new File(entry.filename).getParent());
+            m.__dict__.__setitem__("__path__", new PyList(new PyObject[] {dir}));
+            m.__dict__.__setitem__("__file__", new PyString(entry.filename));
+        }
+        ByteBuffer code = data.duplicate();
+        code.position(entry.offset);
+        code.limit(entry.offset + entry.length);
+        Py.writeComment(IMPORT_LOG, "'" + name + "' as " + entry.filename + " in " + path);
+        return imp.createFromCode(name, BytecodeLoader.makeCode(name + "$py", code,
+                                                                entry.filename),
+                                  entry.filename);
+    }
+
+    public String toString() {
+        return "<module image '" + path + "', " + index.size() + " modules>";
+    }
+
+    /**
+     * Collects compiled modules and writes them as an image. Modules may be added from several
+     * threads.
+     */
+    public static class Builder {
+
+        private static class Module {
+
+            final boolean pkg;
+
+            final String filename;
+
+            final byte[] code;
+
+            Module(boolean pkg, String filename, byte[] code) {
+                this.pkg = pkg;
+                this.filename = filename;
+                this.code = code;
+            }
+        }
+
+        private final Map<String, Module> modules = new TreeMap<String, Module>();
+
+        /**
+         * Adds a module, compiled under its fully qualified name, to the image. The first module
+         * added under a name is kept.
+         *
+         * @param name the fully qualified name of the module
+         * @param pkg true if the module is the __init__ of a package
+         * @param filename the source filename, for __file__ and tracebacks
+         * @param code the class file, as returned by {@link imp#compileSource}
+         * @return false if a module called name was already added
+         */
+        public synchronized boolean add(String name, boolean pkg, String filename, byte[] code) {
+            if (modules.containsKey(name)) {
+                return false;
+            }
+            modules.put(name, new Module(pkg, filename, code));
+            return true;
+        }
+
+        public synchronized int size() {
+            return modules.size();
+        }
+
+        public synchronized void write(File file) throws IOException {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(imp.APIVersion);
+                out.writeInt(modules.size());
+                int offset = 0;
+                for (Map.Entry<String, Module> entry : modules.entrySet()) {
+                    Module module = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeBoolean(module.pkg);
+                    out.writeUTF(module.filename);
+                    out.writeInt(offset);
+                    out.writeInt(module.code.length);
+                    offset += module.code.length;
+                }
+                for (Module module : modules.values()) {
+                    out.write(module.code);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
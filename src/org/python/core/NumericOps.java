@@ -0,0 +1,152 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+/**
+ * Binary operations called by compiled code in place of <code>PyObject._add</code> and
+ * friends. When both operands are exactly <code>int</code> or <code>float</code> (subclasses
+ * can override the operators, the builtin types can't be changed) the result is computed
+ * directly on the Java values; everything else takes the generic path. As ints and floats
+ * are immutable their in-place operators are the plain ones.
+ */
+public class NumericOps {
+
+    private NumericOps() {}
+
+    public static PyObject add(PyObject o1, PyObject o2) {
+        Class<?> c1 = o1.getClass();
+        Class<?> c2 = o2.getClass();
+        if (c1 == PyInteger.class && c2 == PyInteger.class) {
+            int a = ((PyInteger)o1).getValue();
+            int b = ((PyInteger)o2).getValue();
+            int x = a + b;
+            if ((x ^ a) >= 0 || (x ^ b) >= 0) {
+                return Py.newInteger(x);
+            }
+            return new PyLong((long)a + (long)b);
+        }
+        if (isFloatPair(c1, c2)) {
+            return new PyFloat(doubleValue(o1) + doubleValue(o2));
+        }
+        return o1._add(o2);
+    }
+
+    public static PyObject sub(PyObject o1, PyObject o2) {
+        Class<?> c1 = o1.getClass();
+        Class<?> c2 = o2.getClass();
+        if (c1 == PyInteger.class && c2 == PyInteger.class) {
+            int a = ((PyInteger)o1).getValue();
+            int b = ((PyInteger)o2).getValue();
+            int x = a - b;
+            if ((x ^ a) >= 0 || (x ^ ~b) >= 0) {
+                return Py.newInteger(x);
+            }
+            return new PyLong((long)a - (long)b);
+        }
+        if (isFloatPair(c1, c2)) {
+            return new PyFloat(doubleValue(o1) - doubleValue(o2));
+        }
+        return o1._sub(o2);
+    }
+
+    public static PyObject mul(PyObject o1, PyObject o2) {
+        Class<?> c1 = o1.getClass();
+        Class<?> c2 = o2.getClass();
+        if (c1 == PyInteger.class && c2 == PyInteger.class) {
+            long x = (long)((PyInteger)o1).getValue() * ((PyInteger)o2).getValue();
+            if (x <= Integer.MAX_VALUE && x >= Integer.MIN_VALUE) {
+                return Py.newInteger((int)x);
+            }
+            return new PyLong(x);
+        }
+        if (isFloatPair(c1, c2)) {
+            return new PyFloat(doubleValue(o1) * doubleValue(o2));
+        }
+        return o1._mul(o2);
+    }
+
+    public static PyObject iadd(PyObject o1, PyObject o2) {
+        if (isNumber(o1.getClass()) && isNumber(o2.getClass())) {
+            return add(o1, o2);
+        }
+        return o1._iadd(o2);
+    }
+
+    public static PyObject isub(PyObject o1, PyObject o2) {
+        if (isNumber(o1.getClass()) && isNumber(o2.getClass())) {
+            return sub(o1, o2);
+        }
+        return o1._isub(o2);
+    }
+
+    public static PyObject imul(PyObject o1, PyObject o2) {
+        if (isNumber(o1.getClass()) && isNumber(o2.getClass())) {
+            return mul(o1, o2);
+        }
+        return o1._imul(o2);
+    }
+
+    // Only int comparisons are done here: float comparisons go through float.__cmp__, whose
+    // treatment of NaN the generic path must keep deciding
+
+    public static PyObject lt(PyObject o1, PyObject o2) {
+        if (o1.getClass() == PyInteger.class && o2.getClass() == PyInteger.class) {
+            return ((PyInteger)o1).getValue() < ((PyInteger)o2).getValue() ? Py.True : Py.False;
+        }
+        return o1._lt(o2);
+    }
+
+    public static PyObject le(PyObject o1, PyObject o2) {
+        if (o1.getClass() == PyInteger.class && o2.getClass() == PyInteger.class) {
+            return ((PyInteger)o1).getValue() <= ((PyInteger)o2).getValue() ? Py.True : Py.False;
+        }
+        return o1._le(o2);
+    }
+
+    public static PyObject gt(PyObject o1, PyObject o2) {
+        if (o1.getClass() == PyInteger.class && o2.getClass() == PyInteger.class) {
+            return ((PyInteger)o1).getValue() > ((PyInteger)o2).getValue() ? Py.True : Py.False;
+        }
+        return o1._gt(o2);
+    }
+
+    public static PyObject ge(PyObject o1, PyObject o2) {
+        if (o1.getClass() == PyInteger.class && o2.getClass() == PyInteger.class) {
+            return ((PyInteger)o1).getValue() >= ((PyInteger)o2).getValue() ? Py.True : Py.False;
+        }
+        return o1._ge(o2);
+    }
+
+    public static PyObject eq(PyObject o1, PyObject o2) {
+        if (o1.getClass() == PyInteger.class && o2.getClass() == PyInteger.class) {
+            return ((PyInteger)o1).getValue() == ((PyInteger)o2).getValue() ? Py.True : Py.False;
+        }
+        return o1._eq(o2);
+    }
+
+    public static PyObject ne(PyObject o1, PyObject o2) {
+        if (o1.getClass() == PyInteger.class && o2.getClass() == PyInteger.class) {
+            return ((PyInteger)o1).getValue() != ((PyInteger)o2).getValue() ? Py.True : Py.False;
+        }
+        return o1._ne(o2);
+    }
+
+    private static boolean isNumber(Class<?> c) {
+        return c == PyInteger.class || c == PyFloat.class;
+    }
+
+    /**
+     * True if one operand is exactly a float and the other exactly a float or int, the mixes
+     * float's own operators handle by converting the int.
+     */
+    private static boolean isFloatPair(Class<?> c1, Class<?> c2) {
+        return (c1 == PyFloat.class && (c2 == PyFloat.class || c2 == PyInteger.class))
+                || (c1 == PyInteger.class && c2 == PyFloat.class);
+    }
+
+    private static double doubleValue(PyObject o) {
+        if (o.getClass() == PyFloat.class) {
+            return ((PyFloat)o).getValue();
+        }
+        return ((PyInteger)o).getValue();
+    }
+}
@@ -92,6 +92,86 @@ public class Options {
      */
     public static int divisionWarning = 0;
 
+    /**
+     * If true, count the hits and misses of the per-type attribute lookup
+     * cache. The counts are available from
+     * <code>_jython.lookup_cache_stats()</code>.
+     */
+    public static boolean lookupCacheStats = false;
+
+    /**
+     * The smallest and largest ints <code>Py.newInteger</code> hands out shared
+     * instances of rather than allocating new ones. The range may hold at most
+     * 65536 ints; a larger or empty one from the registry is ignored.
+     */
+    public static int integerCacheMin = -100;
+
+    public static int integerCacheMax = 899;
+
+    /**
+     * If true, the compiler makes calls by name to a function defined at the
+     * top level of the same module call the function's body directly when the
+     * callee is still that function, bypassing the generic call dispatch.
+     */
+    public static boolean directCalls = false;
+
+    /**
+     * If true, dicts and instance dicts start out as compact tables confined
+     * to the thread that created them, only switching to a concurrent table
+     * when another thread uses them. If false they are always concurrent.
+     */
+    public static boolean compactDicts = true;
+
+    /**
+     * If true, and compactDicts is on, the instance dicts of a class store
+     * their attribute names once in the class and only the values in each
+     * instance.
+     */
+    public static boolean splitDicts = true;
+
+    /**
+     * If true, instances of classes deriving from object with __slots__ keep
+     * each slot in a field of a generated class instead of in an array.
+     */
+    public static boolean slotFields = true;
+
+    /**
+     * If true, imports look names up in cached listings of the directories on
+     * sys.path instead of checking each candidate file on disk. A listing is
+     * read again whenever the modification time of its directory changes.
+     */
+    public static boolean importCache = true;
+
+    /**
+     * If true, Java methods called often, and fields and bean properties
+     * accessed often, are used through generated classes calling and
+     * accessing them directly rather than through reflection.
+     */
+    public static boolean javaInvokers = true;
+
+    /**
+     * The number of code objects compiled from strings, by exec, eval,
+     * compile and PythonInterpreter, that are kept to be handed out again when
+     * the same source is compiled with the same flags. 0 turns the cache off.
+     */
+    public static int codeCacheSize = 256;
+
+    /**
+     * The number of regular expressions compiled by sre_compile that are kept
+     * to be handed out again when the same pattern is compiled with the same
+     * flags, without parsing it again. 0 turns the cache off.
+     */
+    public static int patternCacheSize = 256;
+
+    /**
+     * Whether regular expressions that repeat more than a single character,
+     * and have no backreferences or lookaround assertions, are matched by an
+     * NFA, in time linear in the length of the string, rather than by
+     * backtracking. The NFA sets groups as CPython does, which for some of
+     * these patterns differs from what backtracking sets.
+     */
+    public static boolean linearRegex = true;
+
     //
     // ####### END OF OPTIONS
     //
@@ -116,6 +196,18 @@ public class Options {
         return prop;
     }
 
+    private static int getIntOption(String name, int defaultValue) {
+        String prop = PySystemState.registry.getProperty("python." + name);
+        if (prop == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(prop.trim());
+        } catch (NumberFormatException e) {
+            throw Py.ValueError("Illegal " + name + " option setting: '" + prop + "'");
+        }
+    }
+
     /**
      * Initialize the static fields from the registry options.
      */
@@ -164,6 +256,39 @@ public class Options {
 
         Options.Qnew = getBooleanOption("options.Qnew", Options.Qnew);
 
+        Options.lookupCacheStats = getBooleanOption(
+                "options.lookupCacheStats", Options.lookupCacheStats);
+
+        Options.directCalls = getBooleanOption("options.directCalls", Options.directCalls);
+
+        Options.compactDicts = getBooleanOption("options.compactDicts", Options.compactDicts);
+
+        Options.splitDicts = getBooleanOption("options.splitDicts", Options.splitDicts);
+
+        Options.slotFields = getBooleanOption("options.slotFields", Options.slotFields);
+
+        Options.importCache = getBooleanOption("options.importCache", Options.importCache);
+
+        Options.javaInvokers = getBooleanOption("options.javaInvokers", Options.javaInvokers);
+
+        Options.codeCacheSize = getIntOption("options.codeCacheSize", Options.codeCacheSize);
+
+        Options.patternCacheSize = getIntOption("options.patternCacheSize",
+                                                Options.patternCacheSize);
+
+        Options.linearRegex = getBooleanOption("options.linearRegex", Options.linearRegex);
+
+        int integerCacheMin = getIntOption("options.integerCacheMin", Options.integerCacheMin);
+        int integerCacheMax = getIntOption("options.integerCacheMax", Options.integerCacheMax);
+        if (Py.setIntegerCacheRange(integerCacheMin, integerCacheMax)) {
+            Options.integerCacheMin = integerCacheMin;
+            Options.integerCacheMax = integerCacheMax;
+        } else {
+            Py.writeWarning("options", "ignoring integer cache range [" + integerCacheMin + ", "
+                            + integerCacheMax + "]: it must hold between 1 and "
+                            + Py.MAX_INTEGER_CACHE_SIZE + " ints");
+        }
+
         prop = PySystemState.registry.getProperty("python.divisionWarning");
         if (prop != null) {
             if (prop.equalsIgnoreCase("old")) {
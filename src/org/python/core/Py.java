@@ -216,6 +216,7 @@ public final class Py {
 
     static void maybeSystemExit(PyException exc) {
         if (Py.matchException(exc, Py.SystemExit)) {
+            exc.normalize();
             PyObject value = exc.value;
             if (PyException.isExceptionInstance(exc.value)) {
                 value = value.__findattr__("code");
@@ -505,20 +506,69 @@ public final class Py {
     }
 
     /* Convenience methods to create new constants without using "new" */
-    private static PyInteger[] integerCache = null;
 
-    public static final PyInteger newInteger(int i) {
-        if (integerCache == null) {
-            integerCache = new PyInteger[1000];
-            for (int j = -100; j < 900; j++) {
-                integerCache[j + 100] = new PyInteger(j);
+    /**
+     * Shared instances of the ints in [Options.integerCacheMin, Options.integerCacheMax]. The
+     * cache is replaced as a whole when the range changes, so a reader always sees a
+     * consistent one.
+     */
+    private static final class IntegerCache {
+
+        static volatile IntegerCache current = isIntegerCacheRange(Options.integerCacheMin,
+                                                                   Options.integerCacheMax)
+                ? new IntegerCache(Options.integerCacheMin, Options.integerCacheMax, null)
+                : new IntegerCache(0, -1, null);
+
+        final int min;
+
+        final PyInteger[] values;
+
+        IntegerCache(int min, int max, IntegerCache previous) {
+            this.min = min;
+            values = new PyInteger[Math.max(0, max - min + 1)];
+            for (int i = 0; i < values.length; i++) {
+                int value = min + i;
+                // Keep the instances already handed out
+                int previousIndex = previous == null ? -1 : value - previous.min;
+                if (previousIndex >= 0 && previousIndex < previous.values.length) {
+                    values[i] = previous.values[previousIndex];
+                } else {
+                    values[i] = new PyInteger(value);
+                }
             }
         }
-        if (i >= -100 && i < 900) {
-            return integerCache[i + 100];
-        } else {
-            return new PyInteger(i);
+    }
+
+    /** The most ints the range of shared ints may hold. */
+    static final int MAX_INTEGER_CACHE_SIZE = 1 << 16;
+
+    private static boolean isIntegerCacheRange(int min, int max) {
+        return min <= max && (long)max - min + 1 <= MAX_INTEGER_CACHE_SIZE;
+    }
+
+    /**
+     * Sets the range of ints newInteger shares instances of. Returns false, leaving the range as
+     * it is, if min is greater than max or the range holds more than
+     * {@link #MAX_INTEGER_CACHE_SIZE} ints.
+     */
+    static synchronized boolean setIntegerCacheRange(int min, int max) {
+        if (!isIntegerCacheRange(min, max)) {
+            return false;
         }
+        IntegerCache cache = IntegerCache.current;
+        if (cache.min != min || cache.values.length != max - min + 1) {
+            IntegerCache.current = new IntegerCache(min, max, cache);
+        }
+        return true;
+    }
+
+    public static final PyInteger newInteger(int i) {
+        IntegerCache cache = IntegerCache.current;
+        int index = i - cache.min;
+        if (index >= 0 && index < cache.values.length) {
+            return cache.values[index];
+        }
+        return new PyInteger(i);
     }
 
     public static PyObject newInteger(long i) {
@@ -529,6 +579,20 @@ public final class Py {
         }
     }
 
+    /** Shared instances of the longs -5 to 256, the ones most programs use. */
+    private static final class LongCache {
+
+        static final int MIN = -5;
+
+        static final PyLong[] values = new PyLong[256 - MIN + 1];
+
+        static {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = new PyLong(MIN + i);
+            }
+        }
+    }
+
     public static PyLong newLong(String s) {
         return new PyLong(s);
     }
@@ -538,10 +602,13 @@ public final class Py {
     }
 
     public static PyLong newLong(int i) {
-        return new PyLong(i);
+        return newLong((long)i);
     }
 
     public static PyLong newLong(long l) {
+        if (l >= LongCache.MIN && l < LongCache.MIN + LongCache.values.length) {
+            return LongCache.values[(int)l - LongCache.MIN];
+        }
         return new PyLong(l);
     }
 
@@ -549,11 +616,27 @@ public final class Py {
         return new PyComplex(0, v);
     }
 
+    /** Shared instances of 0.0 and 1.0. */
+    private static final class FloatCache {
+
+        static final PyFloat zero = new PyFloat(0.0);
+
+        static final PyFloat one = new PyFloat(1.0);
+
+        static final long ZERO_BITS = Double.doubleToRawLongBits(0.0);
+    }
+
     public static PyFloat newFloat(float v) {
-        return new PyFloat((double) v);
+        return newFloat((double) v);
     }
 
     public static PyFloat newFloat(double v) {
+        if (v == 1.0) {
+            return FloatCache.one;
+        } else if (v == 0.0 && Double.doubleToRawLongBits(v) == FloatCache.ZERO_BITS) {
+            // -0.0 == 0.0 but prints differently
+            return FloatCache.zero;
+        }
         return new PyFloat(v);
     }
 
@@ -1116,7 +1199,11 @@ public final class Py {
             return false;
         }
 
-        pye.normalize();
+        // Matching only needs the type, so an exception raised with a class and arguments
+        // isn't instantiated here; one raised with an instance may still need its type fixed
+        if (PyException.isExceptionInstance(pye.value)) {
+            pye.normalize();
+        }
         // FIXME, see bug 737978
         //
         // A special case for IOError's to allow them to also match
@@ -1420,7 +1507,18 @@ public final class Py {
             throw Py.TypeError("None required for void return");
         }
     }
-    private static PyString[] letters = null;
+
+    /** Shared instances of the one character strings. */
+    private static final class Letters {
+
+        static final PyString[] values = new PyString[256];
+
+        static {
+            for (char j = 0; j < 256; j++) {
+                values[j] = new PyString(String.valueOf(j));
+            }
+        }
+    }
 
     public static final PyString makeCharacter(Character o) {
         return makeCharacter(o.charValue());
@@ -1436,17 +1534,11 @@ public final class Py {
         } else if (codepoint > 65536) {
             throw new IllegalArgumentException(String.format("Codepoint > 65536 (%d) requires "
                                                              + "toUnicode argument", codepoint));
-        } else if (codepoint > 256) {
+        } else if (codepoint > 255) {
             return new PyString((char)codepoint);
         }
 
-        if (letters == null) {
-            letters = new PyString[256];
-            for (char j = 0; j < 256; j++) {
-                letters[j] = new PyString(new Character(j).toString());
-            }
-        }
-        return letters[codepoint];
+        return Letters.values[codepoint];
     }
 
     /**
@@ -1579,6 +1671,7 @@ public final class Py {
             if (!matchException(pye, TypeError)) {
                 throw pye;
             }
+            pye.normalize();
             pye.value = Py.newString(String.format("Error when calling the metaclass bases\n    "
                                                    + "%s", pye.value.__str__().toString()));
             throw pye;
@@ -1682,7 +1775,14 @@ public final class Py {
         if (data.contains("\0")) {
             throw Py.TypeError("compile() expected string without null bytes");
         }
+        return CodeCache.compile(data, filename, kind, cflags);
+    }
 
+    /**
+     * Compiles data, bypassing the {@link CodeCache}.
+     */
+    static PyObject compileString(String data, String filename, String kind,
+                                  CompilerFlags cflags) {
         byte[] bytes;
         if (cflags != null && cflags.dont_imply_dedent) {
             bytes = StringUtil.toBytes(data + "\n");
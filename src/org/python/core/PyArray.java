@@ -959,6 +959,15 @@ public class PyArray extends PySequence implements Cloneable {
         if((strlen % itemsize) != 0) {
             throw Py.ValueError("string length not a multiple of item size");
         }
+        if (type == Byte.TYPE) {
+            // Copy the bytes in whole rather than reading them one at a time
+            byte[] bytes = StringUtil.toBytes(input);
+            int size = delegate.getSize();
+            delegate.ensureCapacity(size + bytes.length);
+            System.arraycopy(bytes, 0, data, size, bytes.length);
+            delegate.setSize(size + bytes.length);
+            return;
+        }
         ByteArrayInputStream bis = new ByteArrayInputStream(StringUtil.toBytes(input));
         int origsize = delegate.getSize();
         try {
@@ -1593,6 +1602,9 @@ public class PyArray extends PySequence implements Cloneable {
      * file by the {@link #tofile(PyObject) tofile()} method.)
      */
     public String tostring() {
+        if (type == Byte.TYPE) {
+            return StringUtil.fromBytes((byte[])data, 0, delegate.getSize());
+        }
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
             toStream(bos);
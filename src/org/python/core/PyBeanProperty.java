@@ -7,6 +7,11 @@ public class PyBeanProperty extends PyReflectedField {
     public Class myType;
     String __name__;
 
+    /** Accesses made through reflection, counted until the property gets an accessor. */
+    private int propertyAccesses;
+
+    private volatile ReflectedAccessor propertyAccessor;
+
     public PyBeanProperty(String name, Class myType,
                           Method getMethod, Method setMethod)
     {
@@ -30,6 +35,15 @@ public class PyBeanProperty extends PyReflectedField {
 
         Object iself = Py.tojava(self, getMethod.getDeclaringClass());
 
+        ReflectedAccessor acc = propertyAccessor();
+        if (acc != null) {
+            try {
+                return acc.get(iself);
+            } catch (Throwable t) {
+                throw Py.JavaError(t);
+            }
+        }
+
         try {
             Object value = getMethod.invoke(iself, (Object[])Py.EmptyObjects);
             return Py.java2py(value);
@@ -63,6 +77,16 @@ public class PyBeanProperty extends PyReflectedField {
         }
         Object jvalue = Py.tojava(value, myType);
 
+        ReflectedAccessor acc = propertyAccessor();
+        if (acc != null) {
+            try {
+                acc.set(iself, jvalue);
+            } catch (Throwable t) {
+                throw Py.JavaError(t);
+            }
+            return true;
+        }
+
         try {
             setMethod.invoke(iself, new Object[] {jvalue});
         } catch (Exception e) {
@@ -71,6 +95,21 @@ public class PyBeanProperty extends PyReflectedField {
         return true;
     }
 
+    /**
+     * Returns the accessor calling the getter and setter directly, made once the property has
+     * been accessed {@link ReflectedInvoker#THRESHOLD} times, or null until then.
+     */
+    private ReflectedAccessor propertyAccessor() {
+        ReflectedAccessor acc = propertyAccessor;
+        if (acc != null) {
+            return acc.getter == getMethod && acc.setter == setMethod ? acc : null;
+        }
+        if (Options.javaInvokers && ++propertyAccesses == ReflectedInvoker.THRESHOLD) {
+            propertyAccessor = acc = ReflectedAccessor.forProperty(getMethod, setMethod);
+        }
+        return acc;
+    }
+
     public PyBeanProperty copy() {
         return new PyBeanProperty(__name__, myType, getMethod, setMethod);
     }
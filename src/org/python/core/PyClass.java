@@ -6,6 +6,8 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.python.core.util.CompactMap;
+
 /**
  * A python class.
  */
@@ -38,6 +40,9 @@ public class PyClass extends PyObject {
     // xxx map 'super__*' names -> array of methods
     protected java.util.HashMap super__methods;
 
+    // The attribute names shared by the instance dicts, allocated lazily
+    private transient CompactMap.SharedKeys instanceKeys;
+
     protected PyClass() {
         super();
     }
@@ -222,6 +227,16 @@ public class PyClass extends PyObject {
         return __dict__;
     }
 
+    /**
+     * Returns a new, empty __dict__ for an instance of this class.
+     */
+    PyObject instDict() {
+        if (instanceKeys == null) {
+            instanceKeys = new CompactMap.SharedKeys();
+        }
+        return new PyStringMap(instanceKeys);
+    }
+
     PyObject lookup(String name, boolean stop_at_java) {
         PyObject[] result = lookupGivingClass(name, stop_at_java);
         return result[0];
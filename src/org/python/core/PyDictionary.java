@@ -13,6 +13,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import java.util.concurrent.ConcurrentMap;
 import org.python.core.PyMapSet.PySetIter;
+import org.python.core.util.CompactMap;
 import org.python.expose.ExposedClassMethod;
 import org.python.expose.ExposedMethod;
 import org.python.expose.ExposedNew;
@@ -34,7 +35,7 @@ public class PyDictionary extends PyObject implements ConcurrentMap {
      * Create an empty dictionary.
      */
     public PyDictionary() {
-        table = new ConcurrentHashMap<PyObject, PyObject>();
+        table = newTable(0);
     }
 
     /**
@@ -43,7 +44,7 @@ public class PyDictionary extends PyObject implements ConcurrentMap {
      */
     public PyDictionary(PyType subtype) {
         super(subtype);
-        table = new ConcurrentHashMap<PyObject, PyObject>();
+        table = newTable(0);
     }
 
     /**
@@ -52,7 +53,8 @@ public class PyDictionary extends PyObject implements ConcurrentMap {
      *           is and must only contain PyObject key:value pairs.
      */
     public PyDictionary(Map<PyObject, PyObject> t) {
-        table = new ConcurrentHashMap<PyObject, PyObject>(t);
+        table = newTable(t.size());
+        table.putAll(t);
     }
 
      /**
@@ -63,7 +65,32 @@ public class PyDictionary extends PyObject implements ConcurrentMap {
      */
     public PyDictionary(PyType subtype, Map<PyObject, PyObject> t) {
         super(subtype);
-        table = new ConcurrentHashMap<PyObject, PyObject>(t);
+        table = newTable(t.size());
+        table.putAll(t);
+    }
+
+    /**
+     * Returns an empty backing map for a dict, compact and confined to the current thread
+     * unless the compactDicts option is off.
+     */
+    static <K, V> ConcurrentMap<K, V> newTable(int capacity) {
+        if (Options.compactDicts) {
+            return new CompactMap<K, V>(capacity);
+        }
+        return capacity == 0
+                ? new ConcurrentHashMap<K, V>() : new ConcurrentHashMap<K, V>(capacity);
+    }
+
+    /**
+     * Returns an empty backing map for an instance dict whose string keys are stored once in
+     * keys rather than in every instance, unless the splitDicts or compactDicts options are
+     * off.
+     */
+    static <V> ConcurrentMap<Object, V> newTable(CompactMap.SharedKeys keys) {
+        if (Options.splitDicts && Options.compactDicts) {
+            return new CompactMap<Object, V>(keys);
+        }
+        return newTable(0);
     }
 
         
@@ -74,7 +101,7 @@ public class PyDictionary extends PyObject implements ConcurrentMap {
      *                 odd numbered elements are values.
      */
     public PyDictionary(PyObject elements[]) {
-        this();
+        table = newTable(elements.length / 2);
         for (int i = 0; i < elements.length; i+=2) {
             table.put(elements[i], elements[i+1]);
         }
@@ -76,6 +76,6 @@ public class PyEnumerate extends PyIterator {
             return null;
         }
 
-        return new PyTuple(new PyInteger((int)index++), nextItem);
+        return new PyTuple(Py.newInteger((int)index++), nextItem);
     }
 }
@@ -337,9 +337,9 @@ public class PyFile extends PyObject {
     final void file_write(PyObject o) {
         if (o instanceof PyUnicode) {
             // Call __str__ on unicode objects to encode them before writing
-            file_write(o.__str__().string);
+            file_write(o.__str__().getString());
         } else if (o instanceof PyString) {
-            file_write(((PyString)o).string);
+            file_write(((PyString)o).getString());
         } else {
             throw Py.TypeError("write requires a string as its argument");
         }
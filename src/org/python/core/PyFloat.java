@@ -559,7 +559,7 @@ public class PyFloat extends PyObject
     @ExposedMethod
     final PyObject float___int__() {
         if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
-            return new PyInteger((int)value);
+            return Py.newInteger((int)value);
         }
         return __long__();
     }
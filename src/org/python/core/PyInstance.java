@@ -69,13 +69,13 @@ public class PyInstance extends PyObject
     public PyInstance(PyClass iclass, PyObject dict) {
         instclass = iclass;
         if (dict == Py.None) {
-            dict = new PyStringMap();
+            dict = iclass.instDict();
         }
         __dict__ = dict;
     }
 
     public PyInstance(PyClass iclass) {
-        this(iclass, new PyStringMap());
+        this(iclass, iclass.instDict());
     }
 
     public PyInstance() {}
@@ -589,7 +589,7 @@ public class PyInstance extends PyObject
         if (proxy != CollectionProxy.NoProxy) {
             return proxy.__finditem__(key);
         }
-        return __finditem__(new PyInteger(key));
+        return __finditem__(Py.newInteger(key));
     }
 
     private PyObject trySlice(String name, PyObject start, PyObject stop) {
@@ -5,6 +5,8 @@ package org.python.core;
 
 import org.python.core.packagecache.PackageManager;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
 
 /**
@@ -18,9 +20,12 @@ public class PyJavaPackage extends PyObject {
     public PyStringMap __dict__;
     //public String _unparsedAll;
     /** Its keys are the names of statically known classes.
-     * E.g. from jars pre-scan.
+     * E.g. from jars pre-scan. Filled lazily, use {@link #getClsSet}.
      */
     public PyStringMap clsSet;
+
+    /** Class lists passed to {@link #addPlaceholders} and not yet added to clsSet. */
+    private List<String> pendingPlaceholders;
     public String __file__;
     //public PyList __all__;
 
@@ -101,17 +106,34 @@ public class PyJavaPackage extends PyObject {
         return ret;
     }
 
-    /** Add statically known classes.
-     * @param classes their names as comma-separated string
+    /**
+     * Adds the names in classes, a list separated by ',' and '@', to clsSet. The list is only
+     * parsed when clsSet is asked for with {@link #getClsSet}.
+     */
+    public synchronized void addPlaceholders(String classes) {
+        if (pendingPlaceholders == null) {
+            pendingPlaceholders = new ArrayList<String>();
+        }
+        pendingPlaceholders.add(classes);
+    }
+
+    /**
+     * Returns clsSet, the names of the statically known classes of this package.
      */
-    public void addPlaceholders(String classes) {
-        StringTokenizer tok = new StringTokenizer(classes, ",@");
-        while  (tok.hasMoreTokens())  {
-            String p = tok.nextToken();
-            String name = p.trim().intern();
-            if (clsSet.__finditem__(name) == null)
-                clsSet.__setitem__(name, Py.One);
+    public synchronized PyStringMap getClsSet() {
+        if (pendingPlaceholders != null) {
+            for (String classes : pendingPlaceholders) {
+                StringTokenizer tok = new StringTokenizer(classes, ",@");
+                while (tok.hasMoreTokens()) {
+                    String p = tok.nextToken();
+                    String name = p.trim().intern();
+                    if (clsSet.__finditem__(name) == null)
+                        clsSet.__setitem__(name, Py.One);
+                }
+            }
+            pendingPlaceholders = null;
         }
+        return clsSet;
     }
 
     public PyObject __dir__() {
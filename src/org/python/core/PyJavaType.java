@@ -4,8 +4,12 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.python.core.util.StringUtil;
 import org.python.expose.ExposeAsSuperclass;
@@ -18,102 +22,44 @@ public class PyJavaType extends PyType implements ExposeAsSuperclass {
         super(TYPE == null ? fromClass(PyType.class) : TYPE);
     }
 
+    /**
+     * The members of underlying_class not yet reflected into dict, null once they all are.
+     * Members are only reflected on when first looked up, or all at once when the dict is asked
+     * for. Finding their names is put off until then too.
+     */
+    private volatile Members unresolved;
+
+    private static final Members UNFOUND = new Members(null, null);
+
+    /**
+     * The names of the methods, fields and bean properties underlying_class defines, and the
+     * reflection data to make the objects they're bound to in dict.
+     */
+    private static class Members {
+
+        final Method[] methods;
+
+        final Field[] fields;
+
+        /** Property names as they appear in method names, keyed by normalized property name. */
+        final Map<String, List<String>> propnames = new HashMap<String, List<String>>();
+
+        /** Setters of write only properties, keyed by property name in method names. */
+        final Map<String, Method> setters = new HashMap<String, Method>();
+
+        final Set<String> names = new HashSet<String>();
+
+        Members(Method[] methods, Field[] fields) {
+            this.methods = methods;
+            this.fields = fields;
+        }
+    }
+
     @Override
     protected void fillDict() {
         dict = new PyStringMap();
-        Map<String, Object> propnames = new HashMap<String, Object>();
+        unresolved = UNFOUND;
         Class<?> base = underlying_class.getSuperclass();
-        Method[] methods = underlying_class.getMethods();
-        for (Method meth : methods) {
-            Class<?> declaring = meth.getDeclaringClass();
-            if (base == null ||
-                    (declaring != base && base.isAssignableFrom(declaring) && !ignore(meth))) {
-                String methname = meth.getName();
-                String nmethname = normalize_name(methname);
-                PyReflectedFunction reflfunc = (PyReflectedFunction)dict.__finditem__(nmethname);
-                boolean added = false;
-                if (reflfunc == null) {
-                    dict.__setitem__(nmethname, new PyReflectedFunction(meth));
-                    added = true;
-                } else {
-                    reflfunc.addMethod(meth);
-                    added = true;
-                }
-                if (added && !Modifier.isStatic(meth.getModifiers())) {
-                    // check for xxxX.*
-                    int n = meth.getParameterTypes().length;
-                    if (methname.startsWith("get") && n == 0) {
-                        propnames.put(methname.substring(3), "getter");
-                    } else if (methname.startsWith("is") && n == 0
-                            && meth.getReturnType() == Boolean.TYPE) {
-                        propnames.put(methname.substring(2), "getter");
-                    } else if (methname.startsWith("set") && n == 1) {
-                        propnames.put(methname.substring(3), meth);
-                    }
-                }
-            }
-        }
-        for (Method meth : methods) {
-            String nmethname = normalize_name(meth.getName());
-            PyReflectedFunction reflfunc = (PyReflectedFunction)dict.__finditem__(nmethname);
-            if (reflfunc != null) {
-                reflfunc.addMethod(meth);
-            }
-        }
-        Field[] fields = underlying_class.getFields();
-        for (Field field : fields) {
-            Class<?> declaring = field.getDeclaringClass();
-            if (declaring != base && base.isAssignableFrom(declaring)) {
-                String fldname = field.getName();
-                int fldmods = field.getModifiers();
-                Class<?> fldtype = field.getType();
-                if (Modifier.isStatic(fldmods)) {
-                    if (fldname.startsWith("__doc__") && fldname.length() > 7
-                            && fldtype == PyString.class) {
-                        String fname = fldname.substring(7).intern();
-                        PyObject memb = dict.__finditem__(fname);
-                        if (memb != null && memb instanceof PyReflectedFunction) {
-                            PyString doc = null;
-                            try {
-                                doc = (PyString)field.get(null);
-                            } catch (IllegalAccessException e) {
-                                throw error(e);
-                            }
-                            ((PyReflectedFunction)memb).__doc__ = doc;
-                        }
-                    }
-                }
-                dict.__setitem__(normalize_name(fldname), new PyReflectedField(field));
-            }
-        }
-        for (String propname : propnames.keySet()) {
-            String npropname = normalize_name(StringUtil.decapitalize(propname));
-            PyObject prev = dict.__finditem__(npropname);
-            if (prev != null && prev instanceof PyReflectedFunction) {
-                continue;
-            }
-            Method getter = null;
-            Method setter = null;
-            Class<?> proptype = null;
-            getter = get_non_static_method(underlying_class, "get" + propname);
-            if (getter == null)
-                getter = get_non_static_method(underlying_class, "is" + propname);
-            if (getter != null) {
-                proptype = getter.getReturnType();
-                setter = get_non_static_method(underlying_class, "set" + propname, proptype);
-            } else {
-                Object o = propnames.get(propname);
-                if (o instanceof Method) {
-                    setter = (Method)o;
-                    proptype = setter.getParameterTypes()[0];
-                }
-            }
-            if (setter != null || getter != null) {
-                dict.__setitem__(npropname, new PyBeanProperty(npropname, proptype, getter, setter));
-            } else {
-                // XXX error
-            }
-        }
         Constructor<?>[] ctrs = underlying_class.getConstructors();
         if (ctrs.length != 0) {
             final PyReflectedConstructor reflctr = new PyReflectedConstructor("_new_impl");
@@ -137,6 +83,7 @@ public class PyJavaType extends PyType implements ExposeAsSuperclass {
         }
         if (ClassDictInit.class.isAssignableFrom(underlying_class)
                 && underlying_class != ClassDictInit.class) {
+            resolveAll();
             try {
                 Method m = underlying_class.getMethod("classDictInit", PyObject.class);
                 m.invoke(null, dict);
@@ -150,6 +97,209 @@ public class PyJavaType extends PyType implements ExposeAsSuperclass {
             has_delete = get_descr_method(underlying_class, "__delete__", PyObject.class) != null
                     || get_descr_method(underlying_class, "_dodel", PyObject.class) != null;
         }
+        invalidateLookupCache();
+    }
+
+    /**
+     * Finds the names of the members of underlying_class, without making the objects they're
+     * bound to.
+     */
+    private Members findMembers() {
+        Class<?> base = underlying_class.getSuperclass();
+        Members members = new Members(underlying_class.getMethods(),
+                                      underlying_class.getFields());
+        Map<String, Object> propnames = new HashMap<String, Object>();
+        for (Method meth : members.methods) {
+            if (!isOwnMethod(meth, base)) {
+                continue;
+            }
+            String methname = meth.getName();
+            members.names.add(normalize_name(methname));
+            if (!Modifier.isStatic(meth.getModifiers())) {
+                // check for xxxX.*
+                int n = meth.getParameterTypes().length;
+                if (methname.startsWith("get") && n == 0) {
+                    propnames.put(methname.substring(3), "getter");
+                } else if (methname.startsWith("is") && n == 0
+                        && meth.getReturnType() == Boolean.TYPE) {
+                    propnames.put(methname.substring(2), "getter");
+                } else if (methname.startsWith("set") && n == 1) {
+                    propnames.put(methname.substring(3), meth);
+                }
+            }
+        }
+        for (Field field : members.fields) {
+            if (isOwnField(field, base)) {
+                members.names.add(normalize_name(field.getName()));
+            }
+        }
+        for (Map.Entry<String, Object> entry : propnames.entrySet()) {
+            String propname = entry.getKey();
+            String npropname = normalize_name(StringUtil.decapitalize(propname));
+            List<String> sameName = members.propnames.get(npropname);
+            if (sameName == null) {
+                sameName = new ArrayList<String>(1);
+                members.propnames.put(npropname, sameName);
+            }
+            sameName.add(propname);
+            if (entry.getValue() instanceof Method) {
+                members.setters.put(propname, (Method)entry.getValue());
+            }
+            members.names.add(npropname);
+        }
+        return members.names.isEmpty() ? null : members;
+    }
+
+    private static boolean isOwnMethod(Method meth, Class<?> base) {
+        Class<?> declaring = meth.getDeclaringClass();
+        return base == null
+                || (declaring != base && base.isAssignableFrom(declaring) && !ignore(meth));
+    }
+
+    private static boolean isOwnField(Field field, Class<?> base) {
+        Class<?> declaring = field.getDeclaringClass();
+        return base == null || (declaring != base && base.isAssignableFrom(declaring));
+    }
+
+    @Override
+    PyObject lookupInDict(String name) {
+        PyObject obj = dict.__finditem__(name);
+        if (obj == null && unresolved != null) {
+            obj = resolve(name);
+        }
+        return obj;
+    }
+
+    @Override
+    public PyObject fastGetDict() {
+        if (unresolved != null) {
+            resolveAll();
+        }
+        return dict;
+    }
+
+    /**
+     * Returns the members not yet reflected into dict, finding them first if needed.
+     */
+    private synchronized Members members() {
+        if (unresolved == UNFOUND) {
+            unresolved = findMembers();
+        }
+        return unresolved;
+    }
+
+    /**
+     * Adds the member called name to dict, if underlying_class has one not added yet, and
+     * returns what name is bound to in dict.
+     */
+    private PyObject resolve(String name) {
+        Members members;
+        synchronized (this) {
+            members = members();
+            if (members == null || !members.names.contains(name)) {
+                return dict.__finditem__(name);
+            }
+        }
+        // Reflect without holding this type's monitor, as making the objects may need types
+        // created
+        PyObject value = reflect(members, name);
+        synchronized (this) {
+            if (unresolved == members && members.names.remove(name)) {
+                if (value != null && dict.__finditem__(name) == null) {
+                    dict.__setitem__(name, value);
+                }
+                if (members.names.isEmpty()) {
+                    unresolved = null;
+                }
+            }
+            return dict.__finditem__(name);
+        }
+    }
+
+    private void resolveAll() {
+        Members members = members();
+        if (members == null) {
+            return;
+        }
+        List<String> names;
+        synchronized (this) {
+            names = new ArrayList<String>(members.names);
+        }
+        for (String name : names) {
+            resolve(name);
+        }
+    }
+
+    /**
+     * Makes the object name is bound to in dict from the methods, fields and bean properties of
+     * underlying_class with that name. A field hides a method of the same name, and a bean
+     * property hides a field but not a method.
+     */
+    private PyObject reflect(Members members, String name) {
+        Class<?> base = underlying_class.getSuperclass();
+        PyObject value = null;
+        PyReflectedFunction reflfunc = null;
+        for (Method meth : members.methods) {
+            if (isOwnMethod(meth, base) && normalize_name(meth.getName()) == name) {
+                if (reflfunc == null) {
+                    reflfunc = new PyReflectedFunction(meth);
+                } else {
+                    reflfunc.addMethod(meth);
+                }
+            }
+        }
+        if (reflfunc != null) {
+            for (Method meth : members.methods) {
+                if (normalize_name(meth.getName()) == name) {
+                    reflfunc.addMethod(meth);
+                }
+            }
+            value = reflfunc;
+        }
+        for (Field field : members.fields) {
+            if (!isOwnField(field, base)) {
+                continue;
+            }
+            String fldname = field.getName();
+            if (reflfunc != null && Modifier.isStatic(field.getModifiers())
+                    && fldname.startsWith("__doc__") && fldname.substring(7).equals(name)
+                    && field.getType() == PyString.class) {
+                try {
+                    reflfunc.__doc__ = (PyString)field.get(null);
+                } catch (IllegalAccessException e) {
+                    throw error(e);
+                }
+            }
+            if (normalize_name(fldname) == name) {
+                value = new PyReflectedField(field);
+            }
+        }
+        List<String> propnames = members.propnames.get(name);
+        if (propnames != null && !(value instanceof PyReflectedFunction)) {
+            for (String propname : propnames) {
+                Method getter = null;
+                Method setter = null;
+                Class<?> proptype = null;
+                getter = get_non_static_method(underlying_class, "get" + propname);
+                if (getter == null)
+                    getter = get_non_static_method(underlying_class, "is" + propname);
+                if (getter != null) {
+                    proptype = getter.getReturnType();
+                    setter = get_non_static_method(underlying_class, "set" + propname, proptype);
+                } else {
+                    setter = members.setters.get(propname);
+                    if (setter != null) {
+                        proptype = setter.getParameterTypes()[0];
+                    }
+                }
+                if (setter != null || getter != null) {
+                    value = new PyBeanProperty(name, proptype, getter, setter);
+                } else {
+                    // XXX error
+                }
+            }
+        }
+        return value;
     }
 
     private static String normalize_name(String name) {
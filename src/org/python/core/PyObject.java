@@ -474,7 +474,7 @@ public class PyObject implements Serializable {
      * @see #__finditem__(PyObject)
      **/
     public PyObject __finditem__(int key) {
-        return __finditem__(new PyInteger(key));
+        return __finditem__(Py.newInteger(key));
     }
 
     /**
@@ -576,7 +576,7 @@ public class PyObject implements Serializable {
      * @see #__setitem__(PyObject, PyObject)
      **/
     public void __setitem__(int key, PyObject value) {
-        __setitem__(new PyInteger(key), value);
+        __setitem__(Py.newInteger(key), value);
     }
 
     /**
@@ -13,6 +13,12 @@ public abstract class PyOverridableNew extends PyNewWrapper {
         if (for_type==subtype) {
             return createOfType(init, args, keywords);
         } else {
+            if (for_type == PyObject.TYPE) {
+                SlotFieldsFactory factory = subtype.getSlotFieldsFactory();
+                if (factory != null) {
+                    return factory.newInstance(subtype);
+                }
+            }
             return createOfSubtype(subtype);
         }
     }
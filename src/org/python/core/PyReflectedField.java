@@ -8,6 +8,11 @@ import java.lang.reflect.Modifier;
 public class PyReflectedField extends PyObject {
     public Field field;
 
+    /** Accesses made through reflection, counted until the field gets an accessor. */
+    private int accesses;
+
+    private volatile ReflectedAccessor accessor;
+
     public PyReflectedField() {}
 
     public PyReflectedField(Field field) {
@@ -21,6 +26,14 @@ public class PyReflectedField extends PyObject {
                 return this;
             iself = Py.tojava(self, field.getDeclaringClass());
         }
+        ReflectedAccessor acc = accessor();
+        if (acc != null) {
+            try {
+                return acc.get(iself);
+            } catch (Throwable t) {
+                throw Py.JavaError(t);
+            }
+        }
         Object value;
 
         try {
@@ -42,6 +55,15 @@ public class PyReflectedField extends PyObject {
             iself = Py.tojava(self, field.getDeclaringClass());
         }
         Object fvalue = Py.tojava(value, field.getType());
+        ReflectedAccessor acc = accessor();
+        if (acc != null) {
+            try {
+                acc.set(iself, fvalue);
+            } catch (Throwable t) {
+                throw Py.JavaError(t);
+            }
+            return true;
+        }
 
         try {
             field.set(iself, fvalue);
@@ -51,6 +73,21 @@ public class PyReflectedField extends PyObject {
         return true;
     }
 
+    /**
+     * Returns the accessor reading and writing field directly, made once field has been accessed
+     * {@link ReflectedInvoker#THRESHOLD} times, or null until then.
+     */
+    private ReflectedAccessor accessor() {
+        ReflectedAccessor acc = accessor;
+        if (acc != null) {
+            return acc.field == field ? acc : null;
+        }
+        if (Options.javaInvokers && ++accesses == ReflectedInvoker.THRESHOLD) {
+            accessor = acc = ReflectedAccessor.forField(field);
+        }
+        return acc;
+    }
+
     public String toString() {
         return "<reflected field "+field.toString()+" "+Py.idstr(this)+">";
     }
@@ -4,6 +4,8 @@ package org.python.core;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.python.util.Generic;
 
@@ -15,6 +17,38 @@ public class PyReflectedFunction extends PyObject
     public ReflectedArgs[] argslist;
     public int nargs;
 
+    /** The overloads chosen by recent calls, tried before searching argslist. */
+    private volatile DispatchEntry[] dispatchCache;
+
+    /** The next entry of dispatchCache to replace. */
+    private int dispatchNext;
+
+    private static final int DISPATCH_CACHE_SIZE = 4;
+
+    /** Dispatch keys for a missing self and for strings that convert to char. */
+    private static final Object NO_SELF = new Object(), STRING_CHAR = new Object(),
+            UNICODE_CHAR = new Object();
+
+    /** Whether instances of a class convert to Java objects depending on their class alone. */
+    private static final ConcurrentMap<Class<?>, Boolean> plainConversions =
+            new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /**
+     * An overload chosen by a call, with the dispatch keys of the self and arguments of the call.
+     * Every call with the same keys chooses the same overload.
+     */
+    private static class DispatchEntry {
+
+        final Object[] keys;
+
+        final ReflectedArgs rargs;
+
+        DispatchEntry(Object[] keys, ReflectedArgs rargs) {
+            this.keys = keys;
+            this.rargs = rargs;
+        }
+    }
+
     public PyReflectedFunction(String name) {
         __name__ = name;
         argslist = new ReflectedArgs[1];
@@ -113,24 +147,123 @@ public class PyReflectedFunction extends PyObject
 
         argsl[i] = args;
         nargs = nn;
+        dispatchCache = null;
+    }
+
+    /**
+     * Returns the dispatch keys of self and args, or null if any of them has none.
+     */
+    private static Object[] dispatchKeys(PyObject self, PyObject[] args) {
+        Object[] keys = new Object[args.length + 1];
+        keys[0] = self == null ? NO_SELF : dispatchKey(self);
+        if (keys[0] == null) {
+            return null;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if ((keys[i + 1] = dispatchKey(args[i])) == null) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns an object standing for the Python type of arg, such that the Java classes arg
+     * converts to through __tojava__ depend on that alone, or null if there is no such object.
+     */
+    private static Object dispatchKey(PyObject arg) {
+        Class<?> c = arg.getClass();
+        if (c == PyString.class || c == PyUnicode.class) {
+            // Only strings of length one convert to char
+            if (((PyString)arg).getString().length() != 1) {
+                return c;
+            }
+            return c == PyString.class ? STRING_CHAR : UNICODE_CHAR;
+        }
+        if (c == PyJavaInstance.class) {
+            // Java objects convert depending on their class, given by their instclass
+            PyInstance inst = (PyInstance)arg;
+            return inst.javaProxy == null || inst.instclass.__tojava__ != null
+                    ? null : inst.instclass;
+        }
+        Boolean plain = plainConversions.get(c);
+        if (plain == null) {
+            try {
+                plain = c == PyInteger.class || c == PyFloat.class || c == PyBoolean.class
+                        || c == PyNone.class
+                        || c.getMethod("__tojava__", Class.class).getDeclaringClass()
+                                == PyObject.class;
+            } catch (NoSuchMethodException e) {
+                plain = false;
+            }
+            plainConversions.put(c, plain);
+        }
+        return plain ? c : null;
+    }
+
+    private ReflectedArgs findDispatch(Object[] keys) {
+        DispatchEntry[] cache = dispatchCache;
+        if (cache == null) {
+            return null;
+        }
+        for (DispatchEntry entry : cache) {
+            if (entry != null && entry.keys.length == keys.length) {
+                int i = 0;
+                while (i < keys.length && entry.keys[i] == keys[i]) {
+                    i++;
+                }
+                if (i == keys.length) {
+                    return entry.rargs;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void addDispatch(Object[] keys, ReflectedArgs rargs) {
+        DispatchEntry[] cache = dispatchCache;
+        if (cache == null) {
+            dispatchCache = cache = new DispatchEntry[DISPATCH_CACHE_SIZE];
+        }
+        int next = dispatchNext;
+        dispatchNext = (next + 1) % DISPATCH_CACHE_SIZE;
+        cache[next] = new DispatchEntry(keys, rargs);
     }
 
     public PyObject __call__(PyObject self, PyObject[] args,
                              String[] keywords)
     {
         ReflectedCallData callData = new ReflectedCallData();
-        Object method = null;
+        ReflectedArgs match = null;
 
         ReflectedArgs[] argsl = argslist;
         int n = nargs;
-        for (int i = 0; i < n; i++) {
-            ReflectedArgs rargs = argsl[i];
-            // System.err.println(rargs.toString());
-            if (rargs.matches(self, args, keywords, callData)) {
-                method = rargs.data;
-                break;
+        Object[] keys = null;
+        if (n > 1 && keywords.length == 0) {
+            keys = dispatchKeys(self, args);
+            ReflectedArgs cached = keys == null ? null : findDispatch(keys);
+            if (cached != null) {
+                if (cached.matches(self, args, keywords, callData)) {
+                    match = cached;
+                } else {
+                    callData = new ReflectedCallData();
+                }
             }
         }
+        if (match == null) {
+            for (int i = 0; i < n; i++) {
+                ReflectedArgs rargs = argsl[i];
+                // System.err.println(rargs.toString());
+                if (rargs.matches(self, args, keywords, callData)) {
+                    match = rargs;
+                    if (keys != null) {
+                        addDispatch(keys, rargs);
+                    }
+                    break;
+                }
+            }
+        }
+        Object method = match == null ? null : match.data;
         if (method == null) {
             throwError(callData.errArg, args.length, self != null,
                        keywords.length != 0);
@@ -159,8 +292,12 @@ public class PyReflectedFunction extends PyObject
             }
         }
         try {
-
-            Object o = m.invoke(cself, callData.getArgsArray());
+            Object o;
+            if (m == method) {
+                o = match.invoke(cself, callData.getArgsArray());
+            } else {
+                o = m.invoke(cself, callData.getArgsArray());
+            }
             return Py.java2py(o);
         } catch (Throwable t) {
             throw Py.JavaError(t);
@@ -1,6 +1,8 @@
 /// Copyright (c) Corporation for National Research Initiatives
 package org.python.core;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.math.BigInteger;
 
 import org.python.core.util.ExtraMath;
@@ -17,7 +19,24 @@ import org.python.expose.MethodType;
 public class PyString extends PyBaseString
 {
     public static final PyType TYPE = PyType.fromClass(PyString.class);
+
+    /** The shortest str that {@link #__iadd__} starts a builder for. */
+    private static final int MIN_BUILDER_LENGTH = 256;
+
+    /**
+     * The text, or null until it's first asked for if this str was built by __iadd__. Only exact
+     * strs are built that way, so the field is always set for instances of subclasses; other code
+     * should go through {@link #getString}.
+     */
     protected String string;
+
+    /**
+     * The builder whose first length chars this str holds, if it was built by __iadd__ and its
+     * String hasn't been made yet. Other strs built from the same builder hold longer prefixes.
+     */
+    private transient volatile StringBuilder builder;
+
+    private transient int length;
     private transient int cached_hashcode=0;
     protected transient boolean interned=false;
 
@@ -46,6 +65,12 @@ public class PyString extends PyBaseString
     PyString(StringBuilder buffer) {
         this(TYPE, new String(buffer));
     }
+
+    private PyString(StringBuilder builder, int length) {
+        super(TYPE);
+        this.builder = builder;
+        this.length = length;
+    }
     
     /**
      * Creates a PyString from an already interned String. Just means it won't
@@ -75,7 +100,38 @@ public class PyString extends PyBaseString
         }
     }
 
+    /**
+     * Returns the String this str holds.
+     */
+    public String getString() {
+        String s = string;
+        return s != null ? s : built();
+    }
+
+    /**
+     * Makes the String of a str built by {@link #__iadd__} and lets go of its builder.
+     */
+    private String built() {
+        StringBuilder b = builder;
+        if (b != null) {
+            synchronized (b) {
+                if (string == null) {
+                    string = b.substring(0, length);
+                }
+            }
+            builder = null;
+        }
+        // If builder was already null, string was set before it was
+        return string;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getString();
+        out.defaultWriteObject();
+    }
+
     public int[] toCodePoints() {
+        String string = getString();
         int n = string.length();
         int[] codePoints = new int[n];
         for (int i = 0; i < n; i++) {
@@ -85,7 +141,7 @@ public class PyString extends PyBaseString
     }
     
     public String substring(int start, int end) {
-        return string.substring(start, end);
+        return getString().substring(start, end);
     }
     
     public PyString __str__() {
@@ -97,7 +153,7 @@ public class PyString extends PyBaseString
         if (getClass() == PyString.class) {
             return this;
         }
-        return new PyString(string);
+        return new PyString(getString());
     }
 
     public PyUnicode __unicode__() {
@@ -115,11 +171,14 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final int str___len__() {
-        return string.length();
+        if (string == null && builder != null) {
+            return length;
+        }
+        return getString().length();
     }
 
     public String toString() {
-        return string;
+        return getString();
     }
 
     @ExposedMethod
@@ -129,9 +188,9 @@ public class PyString extends PyBaseString
     
     public String internedString() {
         if (interned)
-            return string;
+            return getString();
         else {
-            string = string.intern();
+            string = getString().intern();
             interned = true;
             return string;
         }
@@ -143,7 +202,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final PyString str___repr__() {
-        return new PyString(encode_UnicodeEscape(string, true));
+        return new PyString(encode_UnicodeEscape(getString(), true));
     }
 
     private static char[] hexdigit = "0123456789abcdef".toCharArray();
@@ -494,7 +553,7 @@ public class PyString extends PyBaseString
         if (!(other instanceof PyString))
             return -2;
 
-        int c = string.compareTo(((PyString)other).string);
+        int c = getString().compareTo(((PyString)other).getString());
         return c < 0 ? -1 : c > 0 ? 1 : 0;
     }
 
@@ -507,7 +566,7 @@ public class PyString extends PyBaseString
         String s = coerce(other);
         if (s == null)
             return null;
-        return string.equals(s) ? Py.True : Py.False;
+        return getString().equals(s) ? Py.True : Py.False;
     }
 
     public PyObject __ne__(PyObject other) {
@@ -519,7 +578,7 @@ public class PyString extends PyBaseString
         String s = coerce(other);
         if (s == null)
             return null;
-        return string.equals(s) ? Py.False : Py.True;
+        return getString().equals(s) ? Py.False : Py.True;
     }
     
     public PyObject __lt__(PyObject other) {
@@ -531,7 +590,7 @@ public class PyString extends PyBaseString
         String s = coerce(other);
         if (s == null)
             return null;
-        return string.compareTo(s) < 0 ? Py.True : Py.False;
+        return getString().compareTo(s) < 0 ? Py.True : Py.False;
     }
 
     public PyObject __le__(PyObject other) {
@@ -543,7 +602,7 @@ public class PyString extends PyBaseString
         String s = coerce(other);
         if (s == null)
             return null;
-        return string.compareTo(s) <= 0 ? Py.True : Py.False;
+        return getString().compareTo(s) <= 0 ? Py.True : Py.False;
     }
 
     public PyObject __gt__(PyObject other) {
@@ -555,7 +614,7 @@ public class PyString extends PyBaseString
         String s = coerce(other);
         if (s == null)
             return null;
-        return string.compareTo(s) > 0 ? Py.True : Py.False;
+        return getString().compareTo(s) > 0 ? Py.True : Py.False;
     }
 
     public PyObject __ge__(PyObject other) {
@@ -567,7 +626,7 @@ public class PyString extends PyBaseString
         String s = coerce(other);
         if (s == null)
             return null;
-        return string.compareTo(s) >= 0 ? Py.True : Py.False;
+        return getString().compareTo(s) >= 0 ? Py.True : Py.False;
     }
 
     private static String coerce(PyObject o) {
@@ -583,7 +642,7 @@ public class PyString extends PyBaseString
     @ExposedMethod
     final int str___hash__() {
         if (cached_hashcode == 0)
-            cached_hashcode = string.hashCode();
+            cached_hashcode = getString().hashCode();
         return cached_hashcode;
     }
 
@@ -593,10 +652,11 @@ public class PyString extends PyBaseString
      *         corresponding char.
      */
     public byte[] toBytes() {
-        return StringUtil.toBytes(string);
+        return StringUtil.toBytes(getString());
     }
 
     public Object __tojava__(Class c) {
+        String string = getString();
         if (c.isAssignableFrom(String.class)) {
             return string;
         }
@@ -619,10 +679,11 @@ public class PyString extends PyBaseString
     }
 
     protected PyObject pyget(int i) {
-        return Py.newString(string.charAt(i));
+        return Py.newString(getString().charAt(i));
     }
 
     protected PyObject getslice(int start, int stop, int step) {
+        String string = getString();
         if (step > 0 && stop < start)
             stop = start;
         if (step == 1)
@@ -656,10 +717,11 @@ public class PyString extends PyBaseString
         if (!(o instanceof PyString))
             throw Py.TypeError("'in <string>' requires string as left operand");
         PyString other = (PyString) o;
-        return string.indexOf(other.string) >= 0;
+        return getString().indexOf(other.getString()) >= 0;
     }
 
     protected PyObject repeat(int count) {
+        String string = getString();
         if(count < 0) {
             count = 0;
         }
@@ -712,7 +774,7 @@ public class PyString extends PyBaseString
     final PyObject str___add__(PyObject generic_other) {
         if (generic_other instanceof PyString) {
             PyString other = (PyString)generic_other;
-            String result = string.concat(other.string);
+            String result = getString().concat(other.getString());
             if (generic_other instanceof PyUnicode) {
                 return new PyUnicode(result);
             }
@@ -721,9 +783,48 @@ public class PyString extends PyBaseString
         else return null;
     }
 
+    /**
+     * Implements s += other for strs by appending other to the builder s was built with, if s is
+     * the longest str built from it so far, rather than copying s. Strings built up a piece at a
+     * time in a loop then take time linear in their length, as they do in CPython. Builders are
+     * only started for strs of at least {@link #MIN_BUILDER_LENGTH} chars, and the String of a
+     * built str is made when it's first asked for.
+     * <p>
+     * A builder is started with twice the room its first str needs and is never grown: once it's
+     * full the next append starts a new one. Every str sharing a builder so holds at least half
+     * of its capacity, and a str kept alive from early on can't pin one that grew far beyond it.
+     * <p>
+     * Not exposed: str has no __iadd__, and _iadd falls back to __add__ when this returns null.
+     */
+    public PyObject __iadd__(PyObject other) {
+        if (getClass() != PyString.class || !(other instanceof PyString)
+                || other instanceof PyUnicode) {
+            return null;
+        }
+        String tail = ((PyString)other).getString();
+        StringBuilder b = builder;
+        if (b != null) {
+            synchronized (b) {
+                // Strs holding shorter prefixes of the builder are unchanged by appending to it
+                if (b.length() == length && b.capacity() - length >= tail.length()) {
+                    b.append(tail);
+                    return new PyString(b, b.length());
+                }
+            }
+        }
+        String head = getString();
+        int size = head.length() + tail.length();
+        if (size < MIN_BUILDER_LENGTH || size < 0) {
+            return null;
+        }
+        b = new StringBuilder(size < Integer.MAX_VALUE / 2 ? size * 2 : size);
+        b.append(head).append(tail);
+        return new PyString(b, size);
+    }
+
     @ExposedMethod
     final PyTuple str___getnewargs__() {
-        return new PyTuple(new PyString(this.string));
+        return new PyTuple(new PyString(getString()));
     }
 
     public PyTuple __getnewargs__() {
@@ -736,7 +837,7 @@ public class PyString extends PyBaseString
     
     @ExposedMethod
     public PyObject str___mod__(PyObject other){
-        StringFormatter fmt = new StringFormatter(string, false);
+        StringFormatter fmt = new StringFormatter(getString(), false);
         return fmt.format(other);
     }
 
@@ -773,6 +874,7 @@ public class PyString extends PyBaseString
     }
 
     public PyComplex __complex__() {
+        String string = getString();
         boolean got_re = false;
         boolean got_im = false;
         boolean done = false;
@@ -907,7 +1009,7 @@ public class PyString extends PyBaseString
     
     @ExposedMethod
     final String str_lower() {
-        return string.toLowerCase();
+        return getString().toLowerCase();
     }
 
     public String upper() {
@@ -916,7 +1018,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final String str_upper() {
-        return string.toUpperCase();
+        return getString().toUpperCase();
     }
 
     public String title() {
@@ -925,7 +1027,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final String str_title() {
-        char[] chars = string.toCharArray();
+        char[] chars = getString().toCharArray();
         int n = chars.length;
 
         boolean previous_is_cased = false;
@@ -952,7 +1054,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final String str_swapcase() {
-        char[] chars = string.toCharArray();
+        char[] chars = getString().toCharArray();
         int n=chars.length;
         for (int i=0; i<n; i++) {
             char c = chars[i];
@@ -976,6 +1078,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults = "null")
     final String str_strip(String sep) {
+        String string = getString();
         char[] chars = string.toCharArray();
         int n=chars.length;
         int start=0;
@@ -1012,6 +1115,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults = "null")
     final String str_lstrip(String sep) {
+        String string = getString();
         char[] chars = string.toCharArray();
         int n=chars.length;
         int start=0;
@@ -1031,6 +1135,7 @@ public class PyString extends PyBaseString
     
     @ExposedMethod(defaults = "null")
     final String str_rstrip(String sep) {
+        String string = getString();
         char[] chars = string.toCharArray();
         int n=chars.length;
         int end=n-1;
@@ -1068,7 +1173,7 @@ public class PyString extends PyBaseString
 
         PyList list = new PyList();
 
-        char[] chars = string.toCharArray();
+        char[] chars = getString().toCharArray();
         int n=chars.length;
 
         if (maxsplit < 0)
@@ -1120,7 +1225,7 @@ public class PyString extends PyBaseString
         }
 
         PyList list = new PyList();
-        char[] chars = string.toCharArray();
+        char[] chars = getString().toCharArray();
 
         if (maxsplit < 0) {
             maxsplit = chars.length;
@@ -1172,12 +1277,13 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final PyTuple str_partition(PyObject sepObj) {
+        String string = getString();
         String sep;
 
         if (sepObj instanceof PyUnicode) {
             return unicodePartition(sepObj);
         } else if (sepObj instanceof PyString) {
-            sep = ((PyString)sepObj).string;
+            sep = ((PyString)sepObj).getString();
         } else {
             throw Py.TypeError("expected a character buffer object");
         }
@@ -1197,7 +1303,7 @@ public class PyString extends PyBaseString
 
     final PyTuple unicodePartition(PyObject sepObj) {
         PyUnicode strObj = __unicode__();
-        String str = strObj.string;
+        String str = strObj.getString();
 
         // Will throw a TypeError if not a basestring
         String sep = sepObj.asString();
@@ -1223,12 +1329,13 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final PyTuple str_rpartition(PyObject sepObj) {
+        String string = getString();
         String sep;
 
         if (sepObj instanceof PyUnicode) {
             return unicodePartition(sepObj);
         } else if (sepObj instanceof PyString) {
-            sep = ((PyString)sepObj).string;
+            sep = ((PyString)sepObj).getString();
         } else {
             throw Py.TypeError("expected a character buffer object");
         }
@@ -1248,7 +1355,7 @@ public class PyString extends PyBaseString
 
     final PyTuple unicodeRpartition(PyObject sepObj) {
         PyUnicode strObj = __unicode__();
-        String str = strObj.string;
+        String str = strObj.getString();
 
         // Will throw a TypeError if not a basestring
         String sep = sepObj.asString();
@@ -1269,6 +1376,7 @@ public class PyString extends PyBaseString
     }
 
     private PyList splitfields(String sep, int maxsplit) {
+        String string = getString();
         PyList list = new PyList();
 
         int length = string.length();
@@ -1301,6 +1409,7 @@ public class PyString extends PyBaseString
     }
 
     private PyList rsplitfields(String sep, int maxsplit) {
+        String string = getString();
         PyList list = new PyList();
 
         int length = string.length();
@@ -1343,7 +1452,7 @@ public class PyString extends PyBaseString
     final PyList str_splitlines(boolean keepends) {
         PyList list = new PyList();
 
-        char[] chars = string.toCharArray();
+        char[] chars = getString().toCharArray();
         int n=chars.length;
 
         int j = 0;
@@ -1373,7 +1482,7 @@ public class PyString extends PyBaseString
     }
 
     protected PyString fromSubstring(int begin, int end) {
-        return createInstance(string.substring(begin, end), true);
+        return createInstance(getString().substring(begin, end), true);
     }
 
     public int index(String sub) {
@@ -1430,6 +1539,7 @@ public class PyString extends PyBaseString
     
     @ExposedMethod(defaults = {"0", "null"})
     final int str_count(String sub, int start, PyObject end) {
+        String string = getString();
         int[] indices = translateIndices(start, end);
         int n = sub.length();
         if(n == 0) {
@@ -1465,7 +1575,7 @@ public class PyString extends PyBaseString
     @ExposedMethod(defaults = {"0", "null"})
     final int str_find(String sub, int start, PyObject end) {
         int[] indices = translateIndices(start, end);
-        int index = string.indexOf(sub, indices[0]);
+        int index = getString().indexOf(sub, indices[0]);
         if (index < start || index > indices[1]) {
             return -1;
         }
@@ -1487,7 +1597,7 @@ public class PyString extends PyBaseString
     @ExposedMethod(defaults = {"0", "null"})
     final int str_rfind(String sub, int start, PyObject end) {
         int[] indices = translateIndices(start, end);
-        int index = string.lastIndexOf(sub, indices[1] - sub.length());
+        int index = getString().lastIndexOf(sub, indices[1] - sub.length());
         if (index < start) {
             return -1;
         }
@@ -1495,6 +1605,7 @@ public class PyString extends PyBaseString
     }
 
     public double atof() {
+        String string = getString();
         StringBuilder s = null;
         int n = string.length();
         for (int i = 0; i < n; i++) {
@@ -1534,6 +1645,7 @@ public class PyString extends PyBaseString
     }
 
     public int atoi(int base) {
+        String string = getString();
         if ((base != 0 && base < 2) || (base > 36)) {
             throw Py.ValueError("invalid base for atoi()");
         }
@@ -1598,7 +1710,7 @@ public class PyString extends PyBaseString
     }
 
     public PyLong atol(int base) {
-        String str = string;
+        String str = getString();
         int b = 0;
         int e = str.length();
 
@@ -1611,7 +1723,7 @@ public class PyString extends PyBaseString
 
         char sign = 0;
         if (b < e) {
-            sign = string.charAt(b);
+            sign = str.charAt(b);
             if (sign == '-' || sign == '+') {
                 b++;
                 while (b < e && Character.isWhitespace(str.charAt(b))) b++;
@@ -1619,9 +1731,9 @@ public class PyString extends PyBaseString
 
 
             if (base == 0 || base == 16) {
-                if (string.charAt(b) == '0') {
+                if (str.charAt(b) == '0') {
                     if (b < e-1 &&
-                           Character.toUpperCase(string.charAt(b+1)) == 'X') {
+                           Character.toUpperCase(str.charAt(b+1)) == 'X') {
                         base = 16;
                         b += 2;
                     } else {
@@ -1661,10 +1773,10 @@ public class PyString extends PyBaseString
                         0,0, "invalid decimal Unicode string");
             }
             else {
-            throw Py.ValueError("invalid literal for long() with base " + base + ": " + string);
+            throw Py.ValueError("invalid literal for long() with base " + base + ": " + getString());
             }
         } catch (StringIndexOutOfBoundsException exc) {
-            throw Py.ValueError("invalid literal for long() with base " + base + ": " + string);
+            throw Py.ValueError("invalid literal for long() with base " + base + ": " + getString());
         }
     }
 
@@ -1693,6 +1805,7 @@ public class PyString extends PyBaseString
     
     @ExposedMethod(defaults="null")
     final String str_ljust(int width, String fillchar) {
+        String string = getString();
         char pad = parse_fillchar("ljust", fillchar);
         int n = width-string.length();
         if (n <= 0)
@@ -1706,6 +1819,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults="null")
     final String str_rjust(int width, String fillchar) {
+        String string = getString();
         char pad = parse_fillchar("rjust", fillchar);
         int n = width-string.length();
         if (n <= 0)
@@ -1719,6 +1833,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults="null")
     final String str_center(int width, String fillchar) {
+        String string = getString();
         char pad = parse_fillchar("center", fillchar);
         int n = width-string.length();
         if (n <= 0)
@@ -1736,7 +1851,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final String str_zfill(int width) {
-        String s = string;
+        String s = getString();
         int n = s.length();
         if (n >= width)
             return s;
@@ -1770,7 +1885,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults = "8")
     final String str_expandtabs(int tabsize) {
-        String s = string;
+        String s = getString();
         StringBuilder buf = new StringBuilder((int)(s.length()*1.5));
         char[] chars = s.toCharArray();
         int n = chars.length;
@@ -1801,6 +1916,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final String str_capitalize() {
+        String string = getString();
         if (string.length() == 0)
             return string;
         String first = string.substring(0,1).toUpperCase();
@@ -1817,23 +1933,24 @@ public class PyString extends PyBaseString
     }
     
     protected PyString replace(PyString oldPiece, PyString newPiece, int maxsplit) {
+        String string = getString();
         int len = string.length();
-        int old_len = oldPiece.string.length();
+        int old_len = oldPiece.getString().length();
         if (len == 0) {
             if (maxsplit == -1 && old_len == 0) {
-                return createInstance(newPiece.string, true);
+                return createInstance(newPiece.getString(), true);
             }
             return createInstance(string, true);
         }
         
-        if (old_len == 0 && newPiece.string.length() != 0 && maxsplit !=0) {
+        if (old_len == 0 && newPiece.getString().length() != 0 && maxsplit !=0) {
             // old="" and new != "", interleave new piece with each char in original, taking in effect maxsplit
             StringBuilder buffer = new StringBuilder();
             int i = 0;
-            buffer.append(newPiece.string);
+            buffer.append(newPiece.getString());
             for (; i < len && (i < maxsplit-1 || maxsplit == -1); i++) {
                 buffer.append(string.charAt(i));
-                buffer.append(newPiece.string);
+                buffer.append(newPiece.getString());
             }
             buffer.append(string.substring(i));
             return createInstance(buffer.toString(), true);
@@ -1847,15 +1964,16 @@ public class PyString extends PyBaseString
             }
         }
         
-        return newPiece.str_join(splitfields(oldPiece.string, maxsplit));
+        return newPiece.str_join(splitfields(oldPiece.getString(), maxsplit));
     }
 
     public String join(PyObject seq) {
-        return str_join(seq).string;
+        return str_join(seq).getString();
     }
 
     @ExposedMethod
     final PyString str_join(PyObject obj) {
+        String string = getString();
         // Similar to CPython's abstract::PySequence_Fast
         PySequence seq;
         if (obj instanceof PySequence) {
@@ -1893,7 +2011,7 @@ public class PyString extends PyBaseString
                 buf.append(string);
                 joinedSize += string.length();
             }
-            String itemString = ((PyString)item).string;
+            String itemString = ((PyString)item).getString();
             buf.append(itemString);
             joinedSize += itemString.length();
             if (joinedSize > Integer.MAX_VALUE) {
@@ -1922,10 +2040,11 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults = {"0", "null"})
     final boolean str_startswith(PyObject prefix, int start, PyObject end) {
+        String string = getString();
         int[] indices = translateIndices(start, end);
         
         if (prefix instanceof PyString) {
-        	String strPrefix = ((PyString)prefix).string;
+        	String strPrefix = ((PyString)prefix).getString();
             if (indices[1] - indices[0] < strPrefix.length())
                 return false;
             
@@ -1937,7 +2056,7 @@ public class PyString extends PyBaseString
         		if (!(prefixes[i] instanceof PyString))
         			throw Py.TypeError("expected a character buffer object");
 
-        		String strPrefix = ((PyString)prefixes[i]).string;
+        		String strPrefix = ((PyString)prefixes[i]).getString();
                 if (indices[1] - indices[0] < strPrefix.length())
                 	continue;
                 
@@ -1966,9 +2085,9 @@ public class PyString extends PyBaseString
     final boolean str_endswith(PyObject suffix, int start, PyObject end) {
         int[] indices = translateIndices(start, end);
 
-        String substr = string.substring(indices[0], indices[1]);
+        String substr = getString().substring(indices[0], indices[1]);
         if (suffix instanceof PyString) {
-	        return substr.endsWith(((PyString)suffix).string);
+	        return substr.endsWith(((PyString)suffix).getString());
         } else if (suffix instanceof PyTuple) {
         	PyObject[] suffixes = ((PyTuple)suffix).getArray();
         	
@@ -1976,7 +2095,7 @@ public class PyString extends PyBaseString
         		if (!(suffixes[i] instanceof PyString))
         			throw Py.TypeError("expected a character buffer object");
 
-        		if (substr.endsWith(((PyString)suffixes[i]).string))
+        		if (substr.endsWith(((PyString)suffixes[i]).getString()))
         			return true;
         	}
         	return false;
@@ -1995,6 +2114,7 @@ public class PyString extends PyBaseString
      * 
      */
     protected int[] translateIndices(int start, PyObject end) {
+        String string = getString();
         int iEnd;
         if(end == null) {
             iEnd = string.length();
@@ -2032,6 +2152,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod(defaults = "null")
     final String str_translate(String table, String deletechars) {
+        String string = getString();
         if (table.length() != 256)
             throw Py.ValueError(
                 "translation table must be 256 characters long");
@@ -2054,6 +2175,7 @@ public class PyString extends PyBaseString
 
     //XXX: is this needed?
     public String translate(PyObject table) {
+        String string = getString();
         StringBuilder v = new StringBuilder(string.length());
         for (int i=0; i < string.length(); i++) {
             char ch = string.charAt(i);
@@ -2096,6 +2218,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_islower() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2120,6 +2243,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isupper() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2144,6 +2268,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isalpha() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2168,6 +2293,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isalnum() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2201,6 +2327,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isdecimal() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2232,6 +2359,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isdigit() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2256,6 +2384,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isnumeric() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2286,6 +2415,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_istitle() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2322,6 +2452,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isspace() {
+        String string = getString();
         int n = string.length();
 
         /* Shortcut for single character strings */
@@ -2346,6 +2477,7 @@ public class PyString extends PyBaseString
 
     @ExposedMethod
     final boolean str_isunicode() {
+        String string = getString();
         int n = string.length();
         for (int i = 0; i < n; i++) {
             char ch = string.charAt(i);
@@ -2392,12 +2524,12 @@ public class PyString extends PyBaseString
     /* arguments' conversion helper */
 
     public String asString(int index) throws PyObject.ConversionException {
-        return string;
+        return getString();
     }
 
     @Override
     public String asString() {
-        return string;
+        return getString();
     }
 
     public String asName(int index) throws PyObject.ConversionException {
@@ -6,7 +6,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+
+import org.python.core.util.CompactMap;
 
 /**
  * Special fast dict implementation for __dict__ instances. Allows interned String keys in addition
@@ -21,11 +22,19 @@ public class PyStringMap extends PyObject {
     }
 
     public PyStringMap(int capacity) {
-        table = new ConcurrentHashMap<Object, PyObject>(capacity);
+        table = PyDictionary.newTable(capacity);
+    }
+
+    /**
+     * Creates an instance dict sharing its keys with the other instances of a class.
+     */
+    public PyStringMap(CompactMap.SharedKeys keys) {
+        table = PyDictionary.newTable(keys);
     }
 
     public PyStringMap(Map<Object, PyObject> map) {
-        table = new ConcurrentHashMap<Object, PyObject>(map);
+        table = PyDictionary.newTable(map.size());
+        table.putAll(map);
     }
 
     public PyStringMap(PyObject elements[]) {
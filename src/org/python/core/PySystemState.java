@@ -38,6 +38,8 @@ public class PySystemState extends PyObject
     
     public static final String JYTHON_JAR = "jython.jar";
 
+    public static final String PYTHON_IMAGE = "python.image";
+
     private static final String JAR_URL_PREFIX = "jar:file:";
     private static final String JAR_SEPARATOR = "!";
 
@@ -81,6 +83,7 @@ public class PySystemState extends PyObject
     public static File cachedir;
     
     private static PyList defaultPath;
+    private static ModuleImage defaultImage;
     private static PyList defaultArgv;
     private static PyObject defaultExecutable;
 
@@ -145,6 +148,9 @@ public class PySystemState extends PyObject
         executable = defaultExecutable;
 
         meta_path = new PyList();
+        if (defaultImage != null) {
+            meta_path.append(defaultImage);
+        }
         path_hooks = new PyList();
         path_hooks.append(new JavaImporter());
         path_hooks.append(zipimporter.TYPE);
@@ -270,6 +276,22 @@ public class PySystemState extends PyObject
         this.recursionlimit = recursionlimit;
     }
 
+    public boolean getimportcache() {
+        return Options.importCache;
+    }
+
+    /**
+     * Turns the cache of the directory listings imports search on or off, dropping the
+     * listings cached so far either way.
+     */
+    public void setimportcache(boolean flag) {
+        ImportCache.setEnabled(flag);
+    }
+
+    public PyObject getimportcachestats() {
+        return ImportCache.getStats();
+    }
+
     public void settrace(PyObject tracefunc) {
         ThreadState ts = Py.getThreadState();
         if (tracefunc == Py.None) {
@@ -549,6 +571,7 @@ public class PySystemState extends PyObject
         initStaticFields();
         // Initialize the path (and add system defaults)
         defaultPath = initPath(registry, standalone, jarFileName);
+        defaultImage = initImage(registry);
         defaultArgv = initArgv(argv);
         defaultExecutable = initExecutable(registry);
         // Set up the known Java packages
@@ -574,8 +597,8 @@ public class PySystemState extends PyObject
         Py.NoConversion = new PySingleton("Error");
         Py.Ellipsis = new PyEllipsis();
 
-        Py.Zero = new PyInteger(0);
-        Py.One = new PyInteger(1);
+        Py.Zero = Py.newInteger(0);
+        Py.One = Py.newInteger(1);
 
         Py.False = new PyBoolean(false);
         Py.True = new PyBoolean(true);
@@ -738,6 +761,24 @@ public class PySystemState extends PyObject
         return path;
     }
     
+    private static ModuleImage initImage(Properties props) {
+        String image = props.getProperty(PYTHON_IMAGE);
+        if (image == null || image.length() == 0) {
+            return null;
+        }
+        try {
+            ModuleImage moduleImage = ModuleImage.open(image);
+            if (moduleImage == null) {
+                Py.writeWarning("import", "ignoring module image '" + image
+                                + "' compiled for another version");
+            }
+            return moduleImage;
+        } catch (IOException ioe) {
+            Py.writeWarning("import", "unable to open module image '" + image + "': " + ioe);
+            return null;
+        }
+    }
+
     /**
      * Check if we are in standalone mode.
      * 
@@ -24,6 +24,7 @@ public class PyTableCode extends PyCode
     PyFunctionTable funcs;
     int func_id;
     public String co_code = ""; // only used by inspect
+    boolean jy_simple; // internal: jython specific
 
     final public static int CO_OPTIMIZED         = 0x0001;
     //final public static int CO_NEWLOCALS       = 0x0002
@@ -38,6 +39,11 @@ public class PyTableCode extends PyCode
     final public static int CO_FUTURE_ABSOLUTE_IMPORT = 0x4000;
     final public static int CO_WITH_STATEMENT         = 0x8000;
 
+    // internal: jython specific, set by the compiler on functions that are not generators,
+    // have no cell or free variables and never catch exceptions, exec or call sys.exc_clear;
+    // stripped from co_flags
+    final public static int CO_JY_SIMPLE = 0x100000;
+
     //XXX: I'm not positive that this is the right place for these constants.
     final public static int PyCF_SOURCE_IS_UTF8    = 0x0100;
     final public static int PyCF_DONT_IMPLY_DEDENT = 0x0200;
@@ -85,6 +91,10 @@ public class PyTableCode extends PyCode
             co_argcount -= 1;
             co_flags |= CO_VARKEYWORDS;
         }
+        if ((moreflags & CO_JY_SIMPLE) != 0) {
+            jy_simple = true;
+            moreflags &= ~CO_JY_SIMPLE;
+        }
         co_flags |= moreflags;
         this.funcs = funcs;
         this.func_id = func_id;
@@ -166,22 +176,14 @@ public class PyTableCode extends PyCode
         // Cache previously defined exception
         PyException previous_exception = ts.exception;
 
-        // Push frame
-        frame.f_back = ts.frame;
-        if (frame.f_builtins == null) {
-            if (frame.f_back != null) {
-                frame.f_builtins = frame.f_back.f_builtins;
-            } else {
-                //System.err.println("ts: "+ts);
-                //System.err.println("ss: "+ts.systemState);
-                frame.f_builtins = PySystemState.builtins;
-            }
-        }
         // nested scopes: setup env with closure
-        // this should only be done once, so let the frame take care of it
-        frame.setupEnv((PyTuple)closure);
+        // this should only be done once, so let the frame take care of it.
+        // Functions compiled with CO_JY_SIMPLE have no closure.
+        if (!jy_simple) {
+            frame.setupEnv((PyTuple)closure);
+        }
 
-        ts.frame = frame;
+        pushFrame(ts, frame);
 
         // Handle trace function for debugging
         if (ts.tracefunc != null) {
@@ -198,32 +200,7 @@ public class PyTableCode extends PyCode
         try {
             ret = funcs.call_function(func_id, frame);
         } catch (Throwable t) {
-            //t.printStackTrace();
-            //Convert exceptions that occured in Java code to PyExceptions
-            PyException e = Py.JavaError(t);
-
-            //Add another traceback object to the exception if needed
-            if (e.traceback.tb_frame != frame) {
-                PyTraceback tb;
-                // If f_back is null, we've jumped threads so use the current
-                // threadstate's frame. Bug #1533624
-                if(e.traceback.tb_frame.f_back == null) {
-                    tb = new PyTraceback(ts.frame);
-                } else {
-                    tb = new PyTraceback(e.traceback.tb_frame.f_back);
-                }
-                tb.tb_next = e.traceback;
-                e.traceback = tb;
-            }
-
-            frame.f_lasti = -1;
-
-            if (frame.tracefunc != null) {
-                frame.tracefunc.traceException(frame, e);
-            }
-            if (ts.profilefunc != null) {
-                ts.profilefunc.traceException(frame, e);
-            }
+            PyException e = traceException(ts, frame, t);
 
             //Rethrow the exception to the next stack frame
             ts.exception = previous_exception;
@@ -231,6 +208,64 @@ public class PyTableCode extends PyCode
             throw e;
         }
 
+        traceReturn(ts, frame, ret);
+
+        // Restore previously defined exception, which functions compiled
+        // with CO_JY_SIMPLE never change
+        ts.exception = previous_exception;
+
+        return popFrame(ts, ret);
+    }
+
+    /**
+     * Makes frame the thread's current frame.
+     */
+    private static void pushFrame(ThreadState ts, PyFrame frame) {
+        frame.f_back = ts.frame;
+        if (frame.f_builtins == null) {
+            if (frame.f_back != null) {
+                frame.f_builtins = frame.f_back.f_builtins;
+            } else {
+                frame.f_builtins = PySystemState.builtins;
+            }
+        }
+        ts.frame = frame;
+    }
+
+    /**
+     * Converts t, which is leaving frame, to the PyException to rethrow, and passes it to the
+     * trace and profile functions. The caller pops the frame.
+     */
+    private static PyException traceException(ThreadState ts, PyFrame frame, Throwable t) {
+        //Convert exceptions that occured in Java code to PyExceptions
+        PyException e = Py.JavaError(t);
+
+        //Add another traceback object to the exception if needed
+        if (e.traceback.tb_frame != frame) {
+            PyTraceback tb;
+            // If f_back is null, we've jumped threads so use the current
+            // threadstate's frame. Bug #1533624
+            if (e.traceback.tb_frame.f_back == null) {
+                tb = new PyTraceback(ts.frame);
+            } else {
+                tb = new PyTraceback(e.traceback.tb_frame.f_back);
+            }
+            tb.tb_next = e.traceback;
+            e.traceback = tb;
+        }
+
+        frame.f_lasti = -1;
+
+        if (frame.tracefunc != null) {
+            frame.tracefunc.traceException(frame, e);
+        }
+        if (ts.profilefunc != null) {
+            ts.profilefunc.traceException(frame, e);
+        }
+        return e;
+    }
+
+    private static void traceReturn(ThreadState ts, PyFrame frame, PyObject ret) {
         if (frame.tracefunc != null) {
             frame.tracefunc.traceReturn(frame, ret);
         }
@@ -238,10 +273,12 @@ public class PyTableCode extends PyCode
         if (ts.profilefunc != null) {
             ts.profilefunc.traceReturn(frame, ret);
         }
+    }
 
-        // Restore previously defined exception
-        ts.exception = previous_exception;
-
+    /**
+     * Pops the thread's current frame, which returned ret.
+     */
+    private static PyObject popFrame(ThreadState ts, PyObject ret) {
         ts.frame = ts.frame.f_back;
 
         // Check for interruption, which is used for restarting the interpreter
@@ -252,6 +289,48 @@ public class PyTableCode extends PyCode
         return ret;
     }
 
+    /**
+     * Starts a direct call from compiled code, which the compiler emits when
+     * options.directCalls is set for calls to a function defined at the top level of the
+     * same module. If callee is a plain function running code, and no trace or profile
+     * function is installed, pushes and returns a new frame for it. The caller fills in the
+     * arguments, runs the function body and finishes with {@link #directCallDone} or
+     * {@link #directCallFailed}. Otherwise returns null and the caller makes an ordinary
+     * call.
+     *
+     * code must have been compiled with CO_JY_SIMPLE and takes exactly the arguments the
+     * caller passes.
+     */
+    public static PyFrame directFrame(ThreadState ts, PyObject callee, PyCode code) {
+        if (callee.getClass() != PyFunction.class || ((PyFunction)callee).func_code != code
+            || ts.tracefunc != null || ts.profilefunc != null) {
+            return null;
+        }
+        if (ts.systemState == null) {
+            ts.systemState = Py.defaultSystemState;
+        }
+        PyFrame frame = new PyFrame((PyTableCode)code, ((PyFunction)callee).func_globals);
+        pushFrame(ts, frame);
+        return frame;
+    }
+
+    /**
+     * Pops the frame of a direct call that returned ret.
+     */
+    public static PyObject directCallDone(ThreadState ts, PyFrame frame, PyObject ret) {
+        traceReturn(ts, frame, ret);
+        return popFrame(ts, ret);
+    }
+
+    /**
+     * Pops the frame of a direct call left by t, and returns the PyException to rethrow.
+     */
+    public static PyException directCallFailed(ThreadState ts, PyFrame frame, Throwable t) {
+        PyException e = traceException(ts, frame, t);
+        ts.frame = ts.frame.f_back;
+        return e;
+    }
+
     public PyObject call(PyObject globals, PyObject[] defaults,
                          PyObject closure)
     {
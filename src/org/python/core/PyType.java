@@ -8,6 +8,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.python.expose.ExposeAsSuperclass;
 import org.python.expose.ExposedDelete;
@@ -17,6 +19,7 @@ import org.python.expose.ExposedNew;
 import org.python.expose.ExposedSet;
 import org.python.expose.ExposedType;
 import org.python.expose.TypeBuilder;
+import org.python.core.util.CompactMap;
 import org.python.util.Generic;
 
 /**
@@ -64,15 +67,53 @@ public class PyType extends PyObject implements Serializable {
     /** Whether this type's instances require a __dict__. */
     protected boolean needs_userdict;
 
+    /** The attribute names shared by the instance dicts, allocated lazily. */
+    private transient CompactMap.SharedKeys instanceKeys;
+
     /** The number of __slots__ defined. */
     private int numSlots;
 
+    /** Creates instances keeping their slots in fields, if this type's instances can. */
+    private transient SlotFieldsFactory slotFieldsFactory;
+
+    /**
+     * Bumped whenever the dict or mro of this type or of any type in its mro changes; lookup
+     * cache entries recorded under an older version are ignored.
+     */
+    private volatile int versionTag;
+
+    /** Direct-mapped cache of lookup results keyed by interned name, allocated lazily. */
+    private volatile LookupCacheEntry[] lookupCache;
+
+    /** Whether lookups must bypass the cache, as for a custom mro() returning non-bases. */
+    private boolean lookupCacheDisabled;
+
+    /** Number of entries in each type's lookup cache; must be a power of two. */
+    private static final int LOOKUP_CACHE_SIZE = 64;
+
+    /** Lookup cache statistics, only maintained when Options.lookupCacheStats is set. */
+    private static long lookupCacheHits;
+    private static long lookupCacheMisses;
+
     private ReferenceQueue<PyType> subclasses_refq = new ReferenceQueue<PyType>();
     private Set<WeakReference<PyType>> subclasses = Generic.set();
 
-    /** Mapping of Java classes to their PyTypes. */
+    /** Mapping of Java classes to their PyTypes, guarded by the PyType class monitor. */
     private static Map<Class<?>, PyType> class_to_type;
 
+    /**
+     * The completely initialized types of class_to_type, which fromClass reads without locking.
+     * Types only get here once the outermost fromClass call creating them returns, as
+     * class_to_type also holds the types still being created.
+     */
+    private static volatile ConcurrentMap<Class<?>, PyType> readyTypes;
+
+    /** The classes added to class_to_type since types were last moved to readyTypes. */
+    private static List<Class<?>> newTypes;
+
+    /** The depth of nested fromClass calls creating types. */
+    private static int fromClassDepth;
+
     /** Mapping of Java classes to their TypeBuilders. */
     private static Map<Class<?>, TypeBuilder> classToBuilder;
 
@@ -249,9 +290,17 @@ public class PyType extends PyObject implements Serializable {
             });
         }
 
+        newtype.invalidateLookupCache();
         newtype.fillHasSetAndDelete();
         newtype.needs_finalizer = newtype.lookup("__del__") != null;
 
+        // Instances of object with __slots__ can keep them in fields
+        if (Options.slotFields && newtype.numSlots > 0
+            && newtype.numSlots <= SlotFieldsFactory.MAX_SLOTS
+            && newtype.getStatic() == PyObject.TYPE) {
+            newtype.slotFieldsFactory = SlotFieldsFactory.forSlots(newtype.numSlots);
+        }
+
         for (PyObject cur : bases_list) {
             if (cur instanceof PyType)
                 ((PyType)cur).attachSubclass(newtype);
@@ -284,6 +333,7 @@ public class PyType extends PyObject implements Serializable {
             return;
         }
         dict = classToBuilder.get(underlying_class).getDict(this);
+        invalidateLookupCache();
         instantiable = dict.__finditem__("__new__") != null;
         fillHasSetAndDelete();
     }
@@ -411,10 +461,13 @@ public class PyType extends PyObject implements Serializable {
                 PyType subtype = (PyType)it.next();
                 PyObject[] subtypeSavedMro = (PyObject[])it.next();
                 subtype.mro = subtypeSavedMro;
+                subtype.lookupCacheDisabled = true;
             }
             bases = savedBases;
             base = savedBase;
             mro = savedMro;
+            lookupCacheDisabled = true;
+            invalidateLookupCache();
             throw t;
         }
 
@@ -423,6 +476,7 @@ public class PyType extends PyObject implements Serializable {
     private void mro_internal() {
         if (getType() == TYPE) {
             mro = compute_mro();
+            lookupCacheDisabled = false;
         } else {
             PyObject mroDescr = getType().lookup("mro");
             if (mroDescr == null) {
@@ -431,6 +485,7 @@ public class PyType extends PyObject implements Serializable {
             PyObject[] result = Py.make_array(mroDescr.__get__(null, getType()).__call__(this));
 
             PyType solid = solid_base(this);
+            boolean allBases = true;
             for (PyObject cls : result) {
                 if (cls instanceof PyClass) {
                     continue;
@@ -444,9 +499,27 @@ public class PyType extends PyObject implements Serializable {
                     throw Py.TypeError(String.format("mro() returned base with unsuitable layout "
                                                      + "('%.500s')", t.fastGetName()));
                 }
+                if (t != this && !hasBase(t)) {
+                    allBases = false;
+                }
             }
             mro = result;
+            // Changes to types that aren't our bases won't invalidate our lookup cache
+            lookupCacheDisabled = !allBases;
+        }
+        invalidateLookupCache();
+    }
+
+    /**
+     * Returns true if type is reachable through the __bases__ of this type.
+     */
+    private boolean hasBase(PyType type) {
+        for (PyObject b : bases) {
+            if (b == type || (b instanceof PyType && ((PyType)b).hasBase(type))) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -469,7 +542,10 @@ public class PyType extends PyObject implements Serializable {
 
     public PyObject instDict() {
         if (needs_userdict) {
-            return new PyStringMap();
+            if (instanceKeys == null) {
+                instanceKeys = new CompactMap.SharedKeys();
+            }
+            return new PyStringMap(instanceKeys);
         }
         return null;
     }
@@ -792,37 +868,121 @@ public class PyType extends PyObject implements Serializable {
      * @return found object or null
      */
     public PyObject lookup(String name) {
+        return lookupCached(name).value;
+    }
+
+    public PyObject lookup_where(String name, PyObject[] where) {
+        LookupCacheEntry entry = lookupCached(name);
+        if (entry.where != null) {
+            where[0] = entry.where;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached result of looking up name through the mro, walking the mro and caching
+     * the result on a miss.
+     */
+    private LookupCacheEntry lookupCached(String name) {
+        int version = versionTag;
+        LookupCacheEntry[] cache = lookupCache;
+        int index = name.hashCode() & (LOOKUP_CACHE_SIZE - 1);
+        if (cache != null) {
+            LookupCacheEntry entry = cache[index];
+            if (entry != null && entry.name == name && entry.version == version) {
+                if (Options.lookupCacheStats) {
+                    lookupCacheHits++;
+                }
+                return entry;
+            }
+        }
+        if (Options.lookupCacheStats) {
+            lookupCacheMisses++;
+        }
+
         PyObject[] mro = this.mro;
-        if (mro == null) {
-            return null;
+        PyObject value = null;
+        PyObject where = null;
+        // Classic classes give no notice when their dicts change, so don't cache through them
+        boolean cacheable = mro != null && !lookupCacheDisabled;
+        if (mro != null) {
+            for (PyObject t : mro) {
+                PyObject obj;
+                if (t instanceof PyType) {
+                    obj = ((PyType)t).lookupInDict(name);
+                } else {
+                    cacheable = false;
+                    PyObject dict = t.fastGetDict();
+                    obj = dict == null ? null : dict.__finditem__(name);
+                }
+                if (obj != null) {
+                    value = obj;
+                    where = t;
+                    break;
+                }
+            }
         }
-        for (PyObject element : mro) {
-            PyObject dict = element.fastGetDict();
-            if (dict != null) {
-                PyObject obj = dict.__finditem__(name);
-                if (obj != null)
-                    return obj;
+        LookupCacheEntry entry = new LookupCacheEntry(name, value, where, version);
+        if (cacheable) {
+            if (cache == null) {
+                lookupCache = cache = new LookupCacheEntry[LOOKUP_CACHE_SIZE];
             }
+            cache[index] = entry;
         }
-        return null;
+        return entry;
     }
 
-    public PyObject lookup_where(String name, PyObject[] where) {
+    /**
+     * Discards the cached lookups of this type and its subclasses. Called whenever the dict or
+     * mro of this type changes.
+     */
+    void invalidateLookupCache() {
+        traverse_hierarchy(false, new OnType() {
+            public boolean onType(PyType type) {
+                type.versionTag++;
+                type.lookupCache = null;
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Returns the version tag, which changes whenever the result of lookup on this type may have
+     * changed.
+     */
+    int getVersionTag() {
+        return versionTag;
+    }
+
+    /**
+     * Returns true if the version tag changes whenever the result of lookup on this type may
+     * have changed. It doesn't when the mro has classic classes, which give no notice when their
+     * dicts change, or types that aren't bases of this one.
+     */
+    boolean isLookupCacheable() {
         PyObject[] mro = this.mro;
-        if (mro == null) {
-            return null;
+        if (mro == null || lookupCacheDisabled) {
+            return false;
         }
         for (PyObject t : mro) {
-            PyObject dict = t.fastGetDict();
-            if (dict != null) {
-                PyObject obj = dict.__finditem__(name);
-                if (obj != null) {
-                    where[0] = t;
-                    return obj;
-                }
+            if (!(t instanceof PyType)) {
+                return false;
             }
         }
-        return null;
+        return true;
+    }
+
+    /**
+     * Returns the number of lookup cache hits and misses as a two element array. Only counted
+     * when Options.lookupCacheStats is set.
+     */
+    public static long[] getLookupCacheStats() {
+        return new long[] {lookupCacheHits, lookupCacheMisses};
+    }
+
+    public static void resetLookupCacheStats() {
+        lookupCacheHits = 0;
+        lookupCacheMisses = 0;
     }
 
     public PyObject super_lookup(PyType ref, String name) {
@@ -837,16 +997,30 @@ public class PyType extends PyObject implements Serializable {
         }
         i++;
         for (; i < mro.length; i++) {
-            PyObject dict = mro[i].fastGetDict();
-            if (dict != null) {
-                PyObject obj = dict.__finditem__(name);
-                if (obj != null)
-                    return obj;
+            PyObject obj;
+            if (mro[i] instanceof PyType) {
+                obj = ((PyType)mro[i]).lookupInDict(name);
+            } else {
+                PyObject dict = mro[i].fastGetDict();
+                obj = dict == null ? null : dict.__finditem__(name);
             }
+            if (obj != null)
+                return obj;
         }
         return null;
     }
 
+    /**
+     * Returns what name is bound to in the dict of this type itself, without looking through
+     * the mro, or null.
+     *
+     * @param name attribute name (must be interned)
+     */
+    PyObject lookupInDict(String name) {
+        PyObject dict = this.dict;
+        return dict == null ? null : dict.__finditem__(name);
+    }
+
     public static void addBuilder(Class<?> forClass, TypeBuilder builder) {
         if (classToBuilder == null) {
             classToBuilder = Generic.map();
@@ -869,6 +1043,10 @@ public class PyType extends PyObject implements Serializable {
             }
             fillInMRO(objType, base);
             objType.instantiable = objType.dict.__finditem__("__new__") != null;
+            // Types created while bootstrapping may have cached lookups through the old dict
+            for (PyType type : class_to_type.values()) {
+                type.invalidateLookupCache();
+            }
         }
     }
 
@@ -876,6 +1054,7 @@ public class PyType extends PyObject implements Serializable {
         if (ExposeAsSuperclass.class.isAssignableFrom(c)) {
             PyType exposedAs = fromClass(c.getSuperclass());
             class_to_type.put(c, exposedAs);
+            newTypes.add(c);
             return exposedAs;
         }
         Class<?> base = null;
@@ -908,6 +1087,7 @@ public class PyType extends PyObject implements Serializable {
             newtype = new PyJavaType();
         }
         class_to_type.put(c, newtype);
+        newTypes.add(c);
         if (base == null) {
             base = c.getSuperclass();
         }
@@ -932,16 +1112,40 @@ public class PyType extends PyObject implements Serializable {
         return newtype;
     }
 
-    public static synchronized PyType fromClass(Class<?> c) {
-        if (class_to_type == null) {
-            class_to_type = Generic.map();
-            addFromClass(PyType.class);
+    public static PyType fromClass(Class<?> c) {
+        // The maps are created by the first call, made while PyType itself is initialized
+        Map<Class<?>, PyType> ready = readyTypes;
+        if (ready != null) {
+            PyType type = ready.get(c);
+            if (type != null) {
+                return type;
+            }
         }
-        PyType type = class_to_type.get(c);
-        if (type != null) {
-            return type;
+        return createFromClass(c);
+    }
+
+    private static synchronized PyType createFromClass(Class<?> c) {
+        fromClassDepth++;
+        try {
+            if (class_to_type == null) {
+                class_to_type = Generic.map();
+                newTypes = Generic.list();
+                readyTypes = new ConcurrentHashMap<Class<?>, PyType>();
+                addFromClass(PyType.class);
+            }
+            PyType type = class_to_type.get(c);
+            if (type != null) {
+                return type;
+            }
+            return addFromClass(c);
+        } finally {
+            if (--fromClassDepth == 0) {
+                for (Class<?> created : newTypes) {
+                    readyTypes.put(created, class_to_type.get(created));
+                }
+                newTypes.clear();
+            }
         }
-        return addFromClass(c);
     }
 
     @ExposedMethod
@@ -1004,6 +1208,7 @@ public class PyType extends PyObject implements Serializable {
                                              + "'%s'", this.name));
         }
         super.__setattr__(name, value);
+        invalidateLookupCache();
         if (name == "__set__") {
             if (!has_set && lookup("__set__") != null) {
                 traverse_hierarchy(false, new OnType() {
@@ -1042,6 +1247,7 @@ public class PyType extends PyObject implements Serializable {
                                              + "'%s'", this.name));
         }
         super.__delattr__(name);
+        invalidateLookupCache();
         if (name == "__set__") {
             if (has_set && lookup("__set__") == null) {
                 traverse_hierarchy(false, new OnType() {
@@ -1143,7 +1349,7 @@ public class PyType extends PyObject implements Serializable {
 
     @ExposedGet(name = "__dict__")
     public PyObject getDict() {
-        return new PyDictProxy(dict);
+        return new PyDictProxy(fastGetDict());
     }
 
     @ExposedSet(name = "__dict__")
@@ -1198,6 +1404,27 @@ public class PyType extends PyObject implements Serializable {
         return numSlots;
     }
 
+    private static final PyObject[] NO_SLOTS = new PyObject[0];
+
+    /**
+     * Returns the slot array for a new instance of this type, which is empty when the
+     * instance keeps its slots in fields.
+     */
+    public PyObject[] newSlots() {
+        if (numSlots == 0 || slotFieldsFactory != null) {
+            return NO_SLOTS;
+        }
+        return new PyObject[numSlots];
+    }
+
+    /**
+     * Returns the factory for instances of this type holding their slots in fields of a
+     * generated class, or null if this type's instances use a slot array.
+     */
+    SlotFieldsFactory getSlotFieldsFactory() {
+        return slotFieldsFactory;
+    }
+
     @ExposedMethod(names = {"__repr__", "__str__"})
     public String type_toString() {
         String kind;
@@ -1270,6 +1497,25 @@ public class PyType extends PyObject implements Serializable {
         boolean onType(PyType type);
     }
 
+    /** The result of a lookup, valid while version matches the type's versionTag. */
+    private static class LookupCacheEntry {
+
+        final String name;
+
+        final PyObject value;
+
+        final PyObject where;
+
+        final int version;
+
+        LookupCacheEntry(String name, PyObject value, PyObject where, int version) {
+            this.name = name;
+            this.value = value;
+            this.where = where;
+            this.version = version;
+        }
+    }
+
     static class TypeResolver implements Serializable {
 
         private Class<?> underlying_class;
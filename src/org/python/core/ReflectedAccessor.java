@@ -0,0 +1,152 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.python.compiler.AccessorMaker;
+import org.python.core.adapter.ClassicPyObjectAdapter;
+
+/**
+ * Reads and writes a Java field or bean property directly from a generated subclass, taking the
+ * place of Field.get and Field.set or of Method.invoke on the getter and setter for members that
+ * are accessed often. A direction the subclass can't access directly, such as setting a final
+ * field, goes through reflection as before.
+ */
+public abstract class ReflectedAccessor {
+
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    /** The field accessed, or null for a bean property. */
+    Field field;
+
+    /** The getter and setter of the bean property accessed, null for a field. */
+    Method getter, setter;
+
+    /**
+     * Returns the value of the member on self, ignored if the member is static, converted to a
+     * PyObject. Exceptions thrown by a getter are thrown as they are.
+     */
+    public abstract PyObject get(Object self) throws Throwable;
+
+    /**
+     * Sets the member on self, ignored if the member is static, to value, which has already been
+     * converted to the member's type, primitives boxed. Exceptions thrown by a setter are thrown
+     * as they are.
+     */
+    public abstract void set(Object self, Object value) throws Throwable;
+
+    /**
+     * The body of {@link #get} when the generated subclass can't read the member directly.
+     */
+    protected PyObject getReflectively(Object self) throws Throwable {
+        if (field != null) {
+            return Py.java2py(field.get(self));
+        }
+        if (getter == null) {
+            throw Py.AttributeError("write-only attr: " + setter.getName());
+        }
+        try {
+            return Py.java2py(getter.invoke(self));
+        } catch (InvocationTargetException exc) {
+            throw exc.getCause();
+        }
+    }
+
+    /**
+     * The body of {@link #set} when the generated subclass can't write the member directly.
+     */
+    protected void setReflectively(Object self, Object value) throws Throwable {
+        if (field != null) {
+            field.set(self, value);
+            return;
+        }
+        if (setter == null) {
+            throw Py.AttributeError("read-only attr: " + getter.getName());
+        }
+        try {
+            setter.invoke(self, value);
+        } catch (InvocationTargetException exc) {
+            throw exc.getCause();
+        }
+    }
+
+    /**
+     * Returns an accessor for field, or null if code outside its package can't access it.
+     */
+    static ReflectedAccessor forField(Field field) {
+        if (!AccessorMaker.canGet(field)) {
+            return null;
+        }
+        String name = className(field, "field");
+        ReflectedAccessor accessor = make(name, new AccessorMaker(field, name, convertsPrimitives()),
+                                          field.getDeclaringClass(), field.getType());
+        accessor.field = field;
+        return accessor;
+    }
+
+    /**
+     * Returns an accessor for the bean property with getter and setter, either of which may be
+     * null, or null if code outside their packages can call neither of them.
+     */
+    static ReflectedAccessor forProperty(Method getter, Method setter) {
+        Method get = getter != null && AccessorMaker.canGet(getter) ? getter : null;
+        Method set = setter != null && AccessorMaker.canSet(setter) ? setter : null;
+        if (get == null && set == null) {
+            return null;
+        }
+        List<Class<?>> referents = new ArrayList<Class<?>>();
+        if (get != null) {
+            referents.add(get.getDeclaringClass());
+            referents.add(get.getReturnType());
+        }
+        if (set != null) {
+            referents.add(set.getDeclaringClass());
+            referents.add(set.getParameterTypes()[0]);
+        }
+        String name = className(get != null ? get : set, "property");
+        ReflectedAccessor accessor = make(name, new AccessorMaker(get, set, name,
+                                                                  convertsPrimitives()),
+                                          referents.toArray(new Class<?>[referents.size()]));
+        accessor.getter = getter;
+        accessor.setter = setter;
+        return accessor;
+    }
+
+    /**
+     * Returns whether primitive values can be converted to PyObjects directly, which is only
+     * the same as going through {@link Py#java2py} with the default adapter.
+     */
+    private static boolean convertsPrimitives() {
+        return Py.getAdapter().getClass() == ClassicPyObjectAdapter.class;
+    }
+
+    private static String className(Member member, String kind) {
+        return "org.python.proxies." + member.getDeclaringClass().getName().replace('.', '$')
+                + "$" + kind + "$" + member.getName() + "$" + counter.incrementAndGet();
+    }
+
+    private static ReflectedAccessor make(String name, AccessorMaker maker, Class<?>... classes) {
+        List<Class<?>> referents = new ArrayList<Class<?>>();
+        referents.add(ReflectedAccessor.class);
+        for (Class<?> c : classes) {
+            referents.add(c);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            maker.make(bytes);
+            Py.saveClassFile(name, bytes);
+            Class<?> accessorClass = BytecodeLoader.makeClass(name, referents,
+                                                              bytes.toByteArray());
+            return (ReflectedAccessor)accessorClass.newInstance();
+        } catch (Exception exc) {
+            throw Py.JavaError(exc);
+        }
+    }
+}
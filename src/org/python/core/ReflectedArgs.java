@@ -1,6 +1,8 @@
 // Copyright (c) Corporation for National Research Initiatives
 package org.python.core;
 
+import java.lang.reflect.Method;
+
 class ReflectedArgs {
     public Class[] args;
 
@@ -18,6 +20,12 @@ class ReflectedArgs {
 
     public static final int PyArgsKeywordsCall = 2;
 
+    /** Calls made through reflection, counted until the method gets an invoker. */
+    private int calls;
+
+    /** Calls the method when data is a Method called often enough, otherwise null. */
+    private volatile ReflectedInvoker invoker;
+
     public ReflectedArgs(Object data, Class[] args, Class declaringClass,
             boolean isStatic) {
         this.data = data;
@@ -128,6 +136,26 @@ class ReflectedArgs {
         return true;
     }
 
+    /**
+     * Calls data, which must be a Method, on self with args. Once it has been called
+     * {@link ReflectedInvoker#THRESHOLD} times it is called through a generated invoker.
+     */
+    public Object invoke(Object self, Object[] args) throws Throwable {
+        ReflectedInvoker inv = invoker;
+        if (inv != null) {
+            return inv.invoke(self, args);
+        }
+        Method method = (Method)data;
+        if (Options.javaInvokers && ++calls == ReflectedInvoker.THRESHOLD) {
+            inv = ReflectedInvoker.forMethod(method);
+            if (inv != null) {
+                invoker = inv;
+                return inv.invoke(self, args);
+            }
+        }
+        return method.invoke(self, args);
+    }
+
     public static int precedence(Class arg) {
         if (arg == Object.class) {
             return 3000;
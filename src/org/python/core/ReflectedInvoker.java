@@ -0,0 +1,57 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.python.compiler.InvokerMaker;
+
+/**
+ * Calls a Java method directly from a generated subclass, taking the place of Method.invoke for
+ * methods that are called often.
+ */
+public abstract class ReflectedInvoker {
+
+    /** The number of calls through reflection after which a method gets an invoker. */
+    static final int THRESHOLD = 16;
+
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * Calls the method on self with args, the primitives among them boxed, returning the result
+     * boxed, or null for a void method. Exceptions thrown by the method are thrown as they are
+     * rather than wrapped in an InvocationTargetException.
+     */
+    public abstract Object invoke(Object self, Object[] args) throws Throwable;
+
+    /**
+     * Returns an invoker for method, or null if code outside its package can't call it.
+     */
+    static ReflectedInvoker forMethod(Method method) {
+        if (!InvokerMaker.canInvoke(method)) {
+            return null;
+        }
+        String name = "org.python.proxies." + method.getDeclaringClass().getName().replace('.', '$')
+                + "$invoke$" + method.getName() + "$" + counter.incrementAndGet();
+        List<Class<?>> referents = new ArrayList<Class<?>>();
+        referents.add(ReflectedInvoker.class);
+        referents.add(method.getDeclaringClass());
+        referents.add(method.getReturnType());
+        for (Class<?> param : method.getParameterTypes()) {
+            referents.add(param);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new InvokerMaker(method, name).make(bytes);
+            Py.saveClassFile(name, bytes);
+            Class<?> invokerClass = BytecodeLoader.makeClass(name, referents,
+                                                             bytes.toByteArray());
+            return (ReflectedInvoker)invokerClass.newInstance();
+        } catch (Exception exc) {
+            throw Py.JavaError(exc);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.python.compiler.SlotFieldsMaker;
+
+/**
+ * Creates instances of Python classes deriving from object with __slots__, storing each slot
+ * in a field of a generated PyObjectDerived subclass rather than in a slot array.
+ */
+public abstract class SlotFieldsFactory {
+
+    /** Classes with more slots than this keep them in an array. */
+    static final int MAX_SLOTS = 64;
+
+    /** The factories made so far, by number of slots. */
+    private static final Map<Integer, SlotFieldsFactory> factories =
+            new HashMap<Integer, SlotFieldsFactory>();
+
+    /**
+     * Returns a new instance of type, which must have the number of slots this factory was
+     * made for.
+     */
+    public abstract PyObject newInstance(PyType type);
+
+    /**
+     * Returns the factory for instances with numSlots slots, generating it if necessary.
+     */
+    static synchronized SlotFieldsFactory forSlots(int numSlots) {
+        SlotFieldsFactory factory = factories.get(numSlots);
+        if (factory == null) {
+            factory = make(numSlots);
+            factories.put(numSlots, factory);
+        }
+        return factory;
+    }
+
+    private static SlotFieldsFactory make(int numSlots) {
+        String name = "org.python.proxies.PyObjectDerived$slots" + numSlots;
+        SlotFieldsMaker maker = new SlotFieldsMaker(numSlots, name);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            maker.makeInstanceClass(bytes);
+            Py.saveClassFile(name, bytes);
+            Class<?> instanceClass = BytecodeLoader.makeClass(name, bytes.toByteArray(),
+                                                              PyObjectDerived.class);
+
+            String factoryName = SlotFieldsMaker.factoryName(name);
+            bytes = new ByteArrayOutputStream();
+            maker.makeFactoryClass(bytes);
+            Py.saveClassFile(factoryName, bytes);
+            Class<?> factoryClass = BytecodeLoader.makeClass(factoryName, bytes.toByteArray(),
+                                                             instanceClass);
+            return (SlotFieldsFactory)factoryClass.newInstance();
+        } catch (Exception exc) {
+            throw Py.JavaError(exc);
+        }
+    }
+}
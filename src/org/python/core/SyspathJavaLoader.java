@@ -64,9 +64,12 @@ public class SyspathJavaLoader extends ClassLoader {
                 continue;
             }
             String dir = sys.getPath(entry.__str__().toString());
+            File file = new File(dir, res);
+            if (!ImportCache.mayExist(file)) {
+                continue;
+            }
             try {
-                return new BufferedInputStream(new FileInputStream(new File(
-                        dir, res)));
+                return new BufferedInputStream(new FileInputStream(file));
             } catch (IOException e) {
                 continue;
             }
@@ -123,7 +126,7 @@ public class SyspathJavaLoader extends ClassLoader {
             } else {
                 String dir = entry.__str__().toString();
                 file = getFile(dir, name);
-                if(file != null) {
+                if(file != null && ImportCache.mayExist(file)) {
                     size = (int)file.length();
                     try {
                         fis = new FileInputStream(file);
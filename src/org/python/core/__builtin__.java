@@ -731,9 +731,10 @@ public class __builtin__ {
             throw Py.TypeError("getattr(): attribute name must be string");
         }
 
+        nameStr = nameStr.intern();
         PyObject result;
         try {
-            result = obj.__getattr__(nameStr.intern());
+            result = obj.__findattr_ex__(nameStr);
         } catch (PyException pye) {
             if (Py.matchException(pye, Py.AttributeError) && def != null) {
                 result = def;
@@ -741,6 +742,13 @@ public class __builtin__ {
                 throw pye;
             }
         }
+        if (result == null) {
+            // A missing attribute needs no AttributeError when there's a default
+            if (def == null) {
+                obj.noAttributeError(nameStr);
+            }
+            result = def;
+        }
         return result;
     }
 
@@ -901,15 +909,16 @@ public class __builtin__ {
     public static final int ord(PyObject c) {
         final int length;
         PyString x = (PyString) c;
+        String s = x.getString();
         if (x instanceof PyUnicode) {
-            length = x.string.codePointCount(0, x.string.length());
+            length = s.codePointCount(0, s.length());
             if (length == 1) {
-                return x.string.codePointAt(0);
+                return s.codePointAt(0);
             }
         } else {
-            length = x.string.length();
+            length = s.length();
             if (length == 1) {
-                return x.string.charAt(0);
+                return s.charAt(0);
             }
         }
         throw Py.TypeError("ord() expected a character, but string of length " +
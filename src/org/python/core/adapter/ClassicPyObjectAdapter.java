@@ -136,7 +136,7 @@ public class ClassicPyObjectAdapter extends ExtensiblePyObjectAdapter {
 		}
 
 		public PyObject adapt(Object o) {
-			return new PyInteger(((Number) o).intValue());
+			return Py.newInteger(((Number) o).intValue());
 		}
 
 	}
@@ -22,7 +22,7 @@ public class imp {
 
     private static final String UNKNOWN_SOURCEFILE = "<unknown>";
 
-    public static final int APIVersion = 15;
+    public static final int APIVersion = 19;
 
     //This should change to 0 for Python 2.7 and 3.0 see PEP 328
     public static final int DEFAULT_LEVEL = -1;
@@ -152,6 +152,10 @@ public class imp {
      * 
      * If sourceFilename is null or set to UNKNOWN_SOURCEFILE null is returned
      * 
+     * The bytes are written to a temporary file in the same directory that is
+     * then renamed to compiledFilename, so concurrent readers and writers never
+     * see a partially written file.
+     * 
      * @return the compiledFilename eventually used or null if a
      *         compiledFilename couldn't be determined of if an error was thrown
      *         while writing to the cache file.
@@ -165,11 +169,22 @@ public class imp {
             }
             compiledFilename = makeCompiledFilename(sourceFilename);
         }
+        File compiledFile = new File(compiledFilename);
+        File tempFile = null;
         FileOutputStream fop = null;
         try {
-            fop = new FileOutputStream(compiledFilename);
+            tempFile = File.createTempFile(compiledFile.getName(), ".tmp",
+                                           compiledFile.getAbsoluteFile().getParentFile());
+            fop = new FileOutputStream(tempFile);
             fop.write(compiledSource);
             fop.close();
+            fop = null;
+            // renameTo doesn't replace an existing file on all platforms
+            if (!tempFile.renameTo(compiledFile)
+                    && !(compiledFile.delete() && tempFile.renameTo(compiledFile))) {
+                throw new IOException("unable to rename '" + tempFile + "'");
+            }
+            tempFile = null;
             return compiledFilename;
         } catch(IOException exc) {
             // If we can't write the cache file, just log and continue
@@ -186,6 +201,9 @@ public class imp {
                                           + compiledFilename + "' due to " + e);
                 }
             }
+            if (tempFile != null) {
+                tempFile.delete();
+            }
         }
     }
 
@@ -435,12 +453,19 @@ public class imp {
         String displayDirName = entry.equals("") ? null : entry.toString();
 
         // First check for packages
+        ImportCache.Directory entries = ImportCache.get(new File(directoryName));
         File dir = new File(directoryName, name);
         File sourceFile = new File(dir, sourceName);
         File compiledFile = new File(dir, compiledName);
 
-        boolean pkg = dir.isDirectory() && caseok(dir, name) && (sourceFile.isFile()
-                                                                 || compiledFile.isFile());
+        boolean pkg = false;
+        if (entries.isDirectory(name)) {
+            ImportCache.Directory pkgEntries = ImportCache.get(dir);
+            pkg = pkgEntries.isFile(sourceName) || pkgEntries.isFile(compiledName);
+            if (pkg) {
+                entries = pkgEntries;
+            }
+        }
         if (!pkg) {
             Py.writeDebug(IMPORT_LOG, "trying source " + dir.getPath());
             sourceName = name + ".py";
@@ -455,14 +480,14 @@ public class imp {
             m.__dict__.__setitem__("__file__", filename);
         }
 
-        if (sourceFile.isFile() && caseok(sourceFile, sourceName)) {
+        if (entries.isFile(sourceName)) {
             String filename;
             if (pkg) {
                 filename = new File(new File(displayDirName, name), sourceName).getPath();
             } else {
                 filename = new File(displayDirName, sourceName).getPath();
             }
-            if(compiledFile.isFile() && caseok(compiledFile, compiledName)) {
+            if(entries.isFile(compiledName)) {
                 Py.writeDebug(IMPORT_LOG, "trying precompiled "
                         + compiledFile.getPath());
                 long pyTime = sourceFile.lastModified();
@@ -484,7 +509,7 @@ public class imp {
         // If no source, try loading precompiled
         Py.writeDebug(IMPORT_LOG, "trying precompiled with no source "
                 + compiledFile.getPath());
-        if(compiledFile.isFile() && caseok(compiledFile, compiledName)) {
+        if(entries.isFile(compiledName)) {
             String filename = new File(displayDirName, compiledName).getPath();
             return createFromPyClass(modName, makeStream(compiledFile), true, filename);
         }
@@ -4,6 +4,8 @@ package org.python.core.io;
 import java.io.InputStream;
 import java.io.IOException;
 
+import org.python.core.util.StringUtil;
+
 /**
  * An InputStream tie-in to a TextIOBase.
  */
@@ -42,9 +44,7 @@ public class TextIOInputStream extends InputStream {
 
         String result = textIO.read(len);
         len = result.length();
-        for (int i = 0; i < len; i++) {
-            b[off + i] = (byte)result.charAt(i);
-        }
+        StringUtil.toBytes(result, 0, len, b, off);
         return len == 0 ? -1 : len;
     }
 
@@ -7,28 +7,46 @@ import org.python.core.Options;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.AccessControlException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
  * Abstract package manager that gathers info about statically known classes
  * from a set of jars. This info can be eventually cached. Off-the-shelf this
- * class offers a local file-system based cache impl.
+ * class offers a local file-system based cache impl: a single index file,
+ * read in one go, holding the packages and classes of each jar along
+ * with the modification time and size of the jar. Only jars whose
+ * modification time or size changed are scanned again, several at a time.
  */
 public abstract class CachedJarsPackageManager extends PackageManager {
 
@@ -93,9 +111,57 @@ public abstract class CachedJarsPackageManager extends PackageManager {
         return (acc & Modifier.PUBLIC) != Modifier.PUBLIC;
     }
 
+    private static final int INDEX_MAGIC = 0x4a595049; // "JYPI"
+
+    private static final int INDEX_VERSION = 1;
+
+    private static final String INDEX_FILE = "packages.jpi";
+
     private boolean indexModified;
 
-    private Hashtable jarfiles;
+    /** The cached packages of each jar by its canonical name, null when not caching. */
+    private Map<String, JarIndex> jarfiles;
+
+    /**
+     * The packages of a jar, with the modification time and size of the jar they were read
+     * from. Packages read back from the index are only decoded when the jar is used.
+     */
+    static class JarIndex {
+
+        final long mtime;
+
+        final long size;
+
+        private ByteBuffer encoded;
+
+        private Map<String, String> packages;
+
+        JarIndex(long mtime, long size, Map<String, String> packages) {
+            this.mtime = mtime;
+            this.size = size;
+            this.packages = packages;
+        }
+
+        JarIndex(long mtime, long size, ByteBuffer encoded) {
+            this.mtime = mtime;
+            this.size = size;
+            this.encoded = encoded;
+        }
+
+        synchronized Map<String, String> getPackages() {
+            if (packages == null) {
+                ByteBuffer buf = encoded.duplicate();
+                int count = buf.getInt();
+                packages = new HashMap<String, String>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    String pkg = readString(buf);
+                    packages.put(pkg, readString(buf));
+                }
+                encoded = null;
+            }
+            return packages;
+        }
+    }
 
     private static String vectorToString(Vector vec) {
         int n = vec.size();
@@ -153,36 +219,40 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     }
 
     // Extract all of the packages in a single jarfile
-    private Hashtable getZipPackages(InputStream jarin) throws IOException {
+    private Map<String, String> getZipPackages(InputStream jarin) throws IOException {
         Hashtable zipPackages = new Hashtable();
 
         ZipInputStream zip = new ZipInputStream(jarin);
-
-        ZipEntry entry;
-        while ((entry = zip.getNextEntry()) != null) {
-            addZipEntry(zipPackages, entry, zip);
-            zip.closeEntry();
+        try {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                addZipEntry(zipPackages, entry, zip);
+                zip.closeEntry();
+            }
+        } finally {
+            zip.close();
         }
 
         // Turn each vector into a comma-separated String
+        Map<String, String> packages = new HashMap<String, String>();
         for (Enumeration e = zipPackages.keys(); e.hasMoreElements();) {
-            Object key = e.nextElement();
+            String key = (String) e.nextElement();
             Vector[] vec = (Vector[]) zipPackages.get(key);
             String classes = vectorToString(vec[0]);
             if (vec[1].size() > 0) {
                 classes += '@' + vectorToString(vec[1]);
             }
-            zipPackages.put(key, classes);
+            packages.put(key, classes);
         }
 
-        return zipPackages;
+        return packages;
     }
 
     /**
      * Gathers classes info from jar specified by jarurl URL. Eventually just
      * using previously cached info. Eventually updated info is not cached.
-     * Persistent cache storage access goes through inOpenCacheFile() and
-     * outCreateCacheFile().
+     * Persistent cache storage access goes through inOpenIndex() and
+     * outOpenIndex().
      */
     public void addJarToPackages(java.net.URL jarurl) {
         addJarToPackages(jarurl, null, false);
@@ -192,7 +262,7 @@ public abstract class CachedJarsPackageManager extends PackageManager {
      * Gathers classes info from jar specified by jarurl URL. Eventually just
      * using previously cached info. Eventually updated info is (re-)cached if
      * param cache is true. Persistent cache storage access goes through
-     * inOpenCacheFile() and outCreateCacheFile().
+     * inOpenIndex() and outOpenIndex().
      */
     public void addJarToPackages(URL jarurl, boolean cache) {
         addJarToPackages(jarurl, null, cache);
@@ -201,8 +271,8 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     /**
      * Gathers classes info from jar specified by File jarfile. Eventually just
      * using previously cached info. Eventually updated info is not cached.
-     * Persistent cache storage access goes through inOpenCacheFile() and
-     * outCreateCacheFile().
+     * Persistent cache storage access goes through inOpenIndex() and
+     * outOpenIndex().
      */
     public void addJarToPackages(File jarfile) {
         addJarToPackages(null, jarfile, false);
@@ -212,19 +282,61 @@ public abstract class CachedJarsPackageManager extends PackageManager {
      * Gathers classes info from jar specified by File jarfile. Eventually just
      * using previously cached info. Eventually updated info is (re-)cached if
      * param cache is true. Persistent cache storage access goes through
-     * inOpenCacheFile() and outCreateCacheFile().
+     * inOpenIndex() and outOpenIndex().
      */
     public void addJarToPackages(File jarfile, boolean cache) {
         addJarToPackages(null, jarfile, cache);
     }
 
+    /**
+     * Gathers classes info from the jars in jarfiles, like
+     * {@link #addJarToPackages(File, boolean)} for each of them, scanning the
+     * jars missing from the cache or changed since on several threads.
+     */
+    public void addJarsToPackages(List<File> jarfiles, boolean cache) {
+        List<Jar> jars = new ArrayList<Jar>(jarfiles.size());
+        for (File jarfile : jarfiles) {
+            jars.add(new Jar(null, jarfile, cache));
+        }
+        addJarsToPackages(jars);
+    }
+
     private void addJarToPackages(URL jarurl, File jarfile, boolean cache) {
-        try {
-            boolean caching = this.jarfiles != null;
+        addJarsToPackages(Collections.singletonList(new Jar(jarurl, jarfile, cache)));
+    }
 
-            URLConnection jarconn = null;
-            boolean localfile = true;
+    /** A jar to gather classes info from. */
+    private class Jar {
+
+        final URL jarurl;
+
+        File jarfile;
+
+        final boolean cache;
 
+        URLConnection jarconn;
+
+        String jarcanon;
+
+        long mtime;
+
+        long size;
+
+        Map<String, String> packages;
+
+        Future<Map<String, String>> scan;
+
+        Jar(URL jarurl, File jarfile, boolean cache) {
+            this.jarurl = jarurl;
+            this.jarfile = jarfile;
+            this.cache = cache;
+        }
+
+        /**
+         * Finds the jar and its fingerprint, returning false if it doesn't exist.
+         */
+        boolean resolve() throws IOException {
+            boolean localfile = true;
             if (jarfile == null) {
                 jarconn = jarurl.openConnection();
                 // This is necessary because 'file:' url-connections
@@ -236,101 +348,126 @@ public abstract class CachedJarsPackageManager extends PackageManager {
                     String jarfilename = jarurl.getFile();
                     jarfilename = jarfilename.replace('/', File.separatorChar);
                     jarfile = new File(jarfilename);
+                    jarconn = null;
                 } else {
                     localfile = false;
                 }
             }
 
-            if (localfile && !jarfile.exists()) {
-                return;
+            if (localfile) {
+                if (!jarfile.exists()) {
+                    return false;
+                }
+                mtime = jarfile.lastModified();
+                size = jarfile.length();
+                jarcanon = jarfile.getCanonicalPath();
+            } else {
+                mtime = jarconn.getLastModified();
+                size = jarconn.getContentLength();
+                jarcanon = jarurl.toString();
             }
+            return true;
+        }
 
-            Hashtable zipPackages = null;
-
-            long mtime = 0;
-            String jarcanon = null;
-            JarXEntry entry = null;
-            boolean brandNew = false;
+        InputStream open() throws IOException {
+            if (jarconn == null) {
+                return new BufferedInputStream(new FileInputStream(jarfile));
+            }
+            return jarconn.getInputStream();
+        }
 
-            if (caching) {
+        String describe() {
+            return jarfile != null ? jarfile.toString() : jarurl.toString();
+        }
+    }
 
-                if (localfile) {
-                    mtime = jarfile.lastModified();
-                    jarcanon = jarfile.getCanonicalPath();
-                } else {
-                    mtime = jarconn.getLastModified();
-                    jarcanon = jarurl.toString();
+    private void addJarsToPackages(List<Jar> jars) {
+        List<Jar> stale = new ArrayList<Jar>();
+        for (Iterator<Jar> it = jars.iterator(); it.hasNext();) {
+            Jar jar = it.next();
+            try {
+                if (!jar.resolve()) {
+                    it.remove();
+                    continue;
                 }
+            } catch (IOException ioe) {
+                // silently skip any bad directories
+                warning("skipping bad jar, '" + jar.describe() + "'");
+                it.remove();
+                continue;
+            }
+            JarIndex index = this.jarfiles == null ? null : this.jarfiles.get(jar.jarcanon);
+            if (index != null && jar.mtime != 0 && index.mtime == jar.mtime
+                    && index.size == jar.size) {
+                debug("reading cache, '" + jar.jarcanon + "'");
+                jar.packages = index.getPackages();
+            } else {
+                if (this.jarfiles != null && jar.cache) {
+                    message("processing " + (index == null ? "new" : "modified") + " jar, '"
+                            + jar.jarcanon + "'");
+                }
+                stale.add(jar);
+            }
+        }
 
-                entry = (JarXEntry) this.jarfiles.get(jarcanon);
-
-                if ((entry == null || !(new File(entry.cachefile).exists()))
-                        && cache) {
-                    message("processing new jar, '" + jarcanon + "'");
-
-                    String jarname;
-                    if (localfile) {
-                        jarname = jarfile.getName();
-                    } else {
-                        jarname = jarurl.getFile();
-                        int slash = jarname.lastIndexOf('/');
-                        if (slash != -1)
-                            jarname = jarname.substring(slash + 1);
-                    }
-                    jarname = jarname.substring(0, jarname.length() - 4);
-
-                    entry = new JarXEntry(jarname);
-                    this.jarfiles.put(jarcanon, entry);
+        scan(stale);
 
-                    brandNew = true;
+        for (Jar jar : jars) {
+            if (jar.scan != null) {
+                try {
+                    jar.packages = jar.scan.get();
+                } catch (Exception e) {
+                    // silently skip any bad directories
+                    warning("skipping bad jar, '" + jar.describe() + "'");
+                    continue;
                 }
-
-                if (mtime != 0 && entry != null && entry.mtime == mtime) {
-                    zipPackages = readCacheFile(entry, jarcanon);
+                if (this.jarfiles != null && jar.cache) {
+                    this.jarfiles.put(jar.jarcanon,
+                                      new JarIndex(jar.mtime, jar.size, jar.packages));
+                    this.indexModified = true;
                 }
-
             }
+            addPackages(jar.packages, jar.jarcanon);
+        }
+    }
 
-            if (zipPackages == null) {
-                caching = caching && cache;
+    /**
+     * Scans the jars, on as many threads as there are processors when there is more than one.
+     */
+    private void scan(List<Jar> jars) {
+        int threads = Math.min(jars.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = null;
+        if (threads > 1) {
+            pool = Executors.newFixedThreadPool(threads);
+        }
+        try {
+            for (final Jar jar : jars) {
+                Callable<Map<String, String>> task = new Callable<Map<String, String>>() {
 
-                if (caching) {
-                    this.indexModified = true;
-                    if (entry.mtime != 0) {
-                        message("processing modified jar, '" + jarcanon + "'");
+                    public Map<String, String> call() throws IOException {
+                        return getZipPackages(jar.open());
                     }
-                    entry.mtime = mtime;
-                }
-
-                InputStream jarin;
-                if (jarconn == null) {
-                    jarin = new BufferedInputStream(
-                            new FileInputStream(jarfile));
+                };
+                if (pool != null) {
+                    jar.scan = pool.submit(task);
                 } else {
-                    jarin = jarconn.getInputStream();
-                }
-
-                zipPackages = getZipPackages(jarin);
-
-                if (caching) {
-                    writeCacheFile(entry, jarcanon, zipPackages, brandNew);
+                    FutureTask<Map<String, String>> future =
+                            new FutureTask<Map<String, String>>(task);
+                    future.run();
+                    jar.scan = future;
                 }
             }
-
-            addPackages(zipPackages, jarcanon);
-        } catch (IOException ioe) {
-            // silently skip any bad directories
-            warning("skipping bad jar, '"
-                    + (jarfile != null ? jarfile.toString() : jarurl.toString())
-                    + "'");
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
         }
-
     }
 
-    private void addPackages(Hashtable zipPackages, String jarfile) {
-        for (Enumeration e = zipPackages.keys(); e.hasMoreElements();) {
-            String pkg = (String) e.nextElement();
-            String classes = (String) zipPackages.get(pkg);
+    private void addPackages(Map<String, String> zipPackages, String jarfile) {
+        for (Map.Entry<String, String> entry : zipPackages.entrySet()) {
+            String pkg = entry.getKey();
+            String classes = entry.getValue();
 
             int idx = classes.indexOf('@');
             if (idx >= 0 && Options.respectJavaAccessibility) {
@@ -341,94 +478,45 @@ public abstract class CachedJarsPackageManager extends PackageManager {
         }
     }
 
-    // Read in cache file storing package info for a single .jar
-    // Return null and delete this cachefile if it is invalid
-    private Hashtable readCacheFile(JarXEntry entry, String jarcanon) {
-        String cachefile = entry.cachefile;
-        long mtime = entry.mtime;
-
-        debug("reading cache, '" + jarcanon + "'");
-
-        try {
-            DataInputStream istream = inOpenCacheFile(cachefile);
-            String old_jarcanon = istream.readUTF();
-            long old_mtime = istream.readLong();
-            if ((!old_jarcanon.equals(jarcanon)) || (old_mtime != mtime)) {
-                comment("invalid cache file: " + cachefile + ", " + jarcanon
-                        + ":" + old_jarcanon + ", " + mtime + ":" + old_mtime);
-                deleteCacheFile(cachefile);
-                return null;
-            }
-            Hashtable packs = new Hashtable();
-            try {
-                while (true) {
-                    String packageName = istream.readUTF();
-                    String classes = istream.readUTF();
-                    packs.put(packageName, classes);
-                }
-            } catch (EOFException eof) {
-                ;
-            }
-            istream.close();
-
-            return packs;
-        } catch (IOException ioe) {
-            // if (cachefile.exists()) cachefile.delete();
-            return null;
-        }
-    }
-
-    // Write a cache file storing package info for a single .jar
-    private void writeCacheFile(JarXEntry entry, String jarcanon,
-            Hashtable zipPackages, boolean brandNew) {
-        try {
-            DataOutputStream ostream = outCreateCacheFile(entry, brandNew);
-            ostream.writeUTF(jarcanon);
-            ostream.writeLong(entry.mtime);
-            comment("rewriting cachefile for '" + jarcanon + "'");
-
-            for (Enumeration e = zipPackages.keys(); e.hasMoreElements();) {
-                String packageName = (String) e.nextElement();
-                String classes = (String) zipPackages.get(packageName);
-                ostream.writeUTF(packageName);
-                ostream.writeUTF(classes);
-            }
-            ostream.close();
-        } catch (IOException ioe) {
-            warning("can't write cache file for '" + jarcanon + "'");
-        }
-    }
-
     /**
      * Initializes cache. Eventually reads back cache index. Index persistent
      * storage is accessed through inOpenIndex().
      */
     protected void initCache() {
         this.indexModified = false;
-        this.jarfiles = new Hashtable();
+        this.jarfiles = new HashMap<String, JarIndex>();
 
         try {
-            DataInputStream istream = inOpenIndex();
-            if (istream == null) {
+            ByteBuffer buf = inOpenIndex();
+            if (buf == null) {
                 return;
             }
-
-            try {
-                while (true) {
-                    String jarcanon = istream.readUTF();
-                    String cachefile = istream.readUTF();
-                    long mtime = istream.readLong();
-                    this.jarfiles
-                            .put(jarcanon, new JarXEntry(cachefile, mtime));
-                }
-            } catch (EOFException eof) {
-                ;
+            if (buf.getInt() != INDEX_MAGIC || buf.getInt() != INDEX_VERSION) {
+                comment("ignoring index file of another version");
+                this.indexModified = true;
+                return;
+            }
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                String jarcanon = readString(buf);
+                long mtime = buf.getLong();
+                long size = buf.getLong();
+                int length = buf.getInt();
+                ByteBuffer encoded = buf.slice();
+                encoded.limit(length);
+                buf.position(buf.position() + length);
+                this.jarfiles.put(jarcanon, new JarIndex(mtime, size, encoded));
             }
-            istream.close();
         } catch (IOException ioe) {
             warning("invalid index file");
+            this.jarfiles.clear();
+            this.indexModified = true;
+        } catch (RuntimeException e) {
+            // a truncated or otherwise corrupt index
+            warning("invalid index file");
+            this.jarfiles.clear();
+            this.indexModified = true;
         }
-
     }
 
     /**
@@ -446,124 +534,127 @@ public abstract class CachedJarsPackageManager extends PackageManager {
 
         try {
             DataOutputStream ostream = outOpenIndex();
-            for (Enumeration e = this.jarfiles.keys(); e.hasMoreElements();) {
-                String jarcanon = (String) e.nextElement();
-                JarXEntry entry = (JarXEntry) this.jarfiles.get(jarcanon);
-                ostream.writeUTF(jarcanon);
-                ostream.writeUTF(entry.cachefile);
-                ostream.writeLong(entry.mtime);
+            try {
+                ostream.writeInt(INDEX_MAGIC);
+                ostream.writeInt(INDEX_VERSION);
+                ostream.writeInt(this.jarfiles.size());
+                for (Map.Entry<String, JarIndex> entry : this.jarfiles.entrySet()) {
+                    JarIndex index = entry.getValue();
+                    Map<String, String> packages = index.getPackages();
+                    writeString(ostream, entry.getKey());
+                    ostream.writeLong(index.mtime);
+                    ostream.writeLong(index.size);
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    DataOutputStream encoded = new DataOutputStream(bytes);
+                    encoded.writeInt(packages.size());
+                    for (Map.Entry<String, String> pkg : packages.entrySet()) {
+                        writeString(encoded, pkg.getKey());
+                        writeString(encoded, pkg.getValue());
+                    }
+                    encoded.close();
+                    ostream.writeInt(bytes.size());
+                    bytes.writeTo(ostream);
+                }
+            } finally {
+                ostream.close();
             }
-            ostream.close();
+            commitIndex();
         } catch (IOException ioe) {
             warning("can't write index file");
         }
     }
 
-    // hooks for changing cache storage
-
-    /**
-     * To pass a cachefile id by ref. And for internal use. See
-     * outCreateCacheFile
-     */
-    public static class JarXEntry extends Object {
-        /** cachefile id */
-        public String cachefile;
-
-        public long mtime;
-
-        public JarXEntry(String cachefile) {
-            this.cachefile = cachefile;
-        }
+    // Strings are written as their UTF-8 length and bytes, as writeUTF can't
+    // hold the class lists of large packages
+    private static void writeString(DataOutputStream ostream, String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        ostream.writeInt(bytes.length);
+        ostream.write(bytes);
+    }
 
-        public JarXEntry(String cachefile, long mtime) {
-            this.cachefile = cachefile;
-            this.mtime = mtime;
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.toString());
         }
-
     }
 
+    // hooks for changing cache storage
+
     /**
      * Open cache index for reading from persistent storage - hook. Must Return
      * null if this is absent. This default impl is part of the off-the-shelf
-     * local file-system cache impl. Can be overriden.
+     * local file-system cache impl, which reads the whole index onto the heap.
+     * Can be overriden.
      */
-    protected DataInputStream inOpenIndex() throws IOException {
-        File indexFile = new File(this.cachedir, "packages.idx");
+    protected ByteBuffer inOpenIndex() throws IOException {
+        File indexFile = new File(this.cachedir, INDEX_FILE);
 
         if (!indexFile.exists()) {
             return null;
         }
 
-        DataInputStream istream = new DataInputStream(new BufferedInputStream(
-                new FileInputStream(indexFile)));
-
-        return istream;
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try {
+            // Not mapped: a mapping lives until it's collected and would keep
+            // commitIndex from replacing the file on Windows
+            FileChannel channel = file.getChannel();
+            ByteBuffer buf = ByteBuffer.allocate((int)channel.size());
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    throw new IOException("unexpected end of '" + indexFile + "'");
+                }
+            }
+            buf.flip();
+            return buf;
+        } finally {
+            file.close();
+        }
     }
 
     /**
-     * Open cache index for writing back to persistent storage - hook. This
-     * default impl is part of the off-the-shelf local file-system cache impl.
-     * Can be overriden.
+     * Open cache index for writing back to persistent storage - hook. The
+     * index is only to replace the current one once {@link #commitIndex} is
+     * called. This default impl is part of the off-the-shelf local file-system
+     * cache impl. Can be overriden.
      */
     protected DataOutputStream outOpenIndex() throws IOException {
-        File indexFile = new File(this.cachedir, "packages.idx");
+        File indexFile = new File(this.cachedir, INDEX_FILE + ".tmp");
 
         return new DataOutputStream(new BufferedOutputStream(
                 new FileOutputStream(indexFile)));
     }
 
     /**
-     * Open cache file for reading from persistent storage - hook. This default
-     * impl is part of the off-the-shelf local file-system cache impl. Can be
-     * overriden.
-     */
-    protected DataInputStream inOpenCacheFile(String cachefile)
-            throws IOException {
-        return new DataInputStream(new BufferedInputStream(new FileInputStream(
-                cachefile)));
-    }
-
-    /**
-     * Delete (invalidated) cache file from persistent storage - hook. This
-     * default impl is part of the off-the-shelf local file-system cache impl.
-     * Can be overriden.
-     */
-    protected void deleteCacheFile(String cachefile) {
-        new File(cachefile).delete();
-    }
-
-    /**
-     * Create/open cache file for rewriting back to persistent storage - hook.
-     * If create is false, cache file is supposed to exist and must be opened
-     * for rewriting, entry.cachefile is a valid cachefile id. If create is
-     * true, cache file must be created. entry.cachefile is a flat jarname to be
-     * used to produce a valid cachefile id (to be put back in entry.cachefile
-     * on exit). This default impl is part of the off-the-shelf local
-     * file-system cache impl. Can be overriden.
+     * Replace the cache index with the one written through outOpenIndex() -
+     * hook. This default impl is part of the off-the-shelf local file-system
+     * cache impl. Can be overriden.
      */
-    protected DataOutputStream outCreateCacheFile(JarXEntry entry,
-            boolean create) throws IOException {
-        File cachefile = null;
-
-        if (create) {
-            int index = 1;
-            String suffix = "";
-            String jarname = entry.cachefile;
-            while (true) {
-                cachefile = new File(this.cachedir, jarname + suffix + ".pkc");
-                // System.err.println("try cachefile: "+cachefile);
-                if (!cachefile.exists()) {
-                    break;
-                }
-                suffix = "$" + index;
-                index += 1;
+    protected void commitIndex() throws IOException {
+        File tempFile = new File(this.cachedir, INDEX_FILE + ".tmp");
+        File indexFile = new File(this.cachedir, INDEX_FILE);
+        // renameTo doesn't replace an existing file on all platforms
+        if (!tempFile.renameTo(indexFile)
+                && !(indexFile.delete() && tempFile.renameTo(indexFile))) {
+            tempFile.delete();
+            throw new IOException("unable to replace '" + indexFile + "'");
+        }
+        // The packages.idx index and per-jar .pkc files of older versions
+        // are replaced by this one
+        new File(this.cachedir, "packages.idx").delete();
+        File[] cachefiles = this.cachedir.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".pkc");
             }
-            entry.cachefile = cachefile.getCanonicalPath();
-        } else
-            cachefile = new File(entry.cachefile);
-
-        return new DataOutputStream(new BufferedOutputStream(
-                new FileOutputStream(cachefile)));
+        });
+        if (cachefiles != null) {
+            for (File cachefile : cachefiles) {
+                cachefile.delete();
+            }
+        }
     }
 
     // for default cache (local fs based) impl
@@ -83,7 +83,7 @@ public abstract class PackageManager extends Object {
     protected PyList basicDoDir(PyJavaPackage jpkg, boolean instantiate,
             boolean exclpkgs) {
         PyStringMap dict = jpkg.__dict__;
-        PyStringMap cls = jpkg.clsSet;
+        PyStringMap cls = jpkg.getClsSet();
 
         if (!instantiate) {
             PyList ret = cls.keys();
@@ -3,7 +3,7 @@
 
 package org.python.core.packagecache;
 
-import org.python.core.imp;
+import org.python.core.ImportCache;
 import org.python.core.Py;
 import org.python.core.PyJavaPackage;
 import org.python.core.PyList;
@@ -15,6 +15,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Path package manager. Gathering classes info dynamically from a set of
@@ -41,7 +43,7 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
             String dir = path.pyget(i).__str__().toString();
 
             File f = new RelativeFile(dir, child);
-            if (f.isDirectory() && imp.caseok(f, name)) {
+            if (ImportCache.get(f.getParentFile()).isDirectory(name)) {
                 /*
                  * Figure out if we have a directory a mixture of python and
                  * java or just an empty directory (which means Java) or a
@@ -133,7 +135,7 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
                 }
 
                 // for opt maybe we should some hash-set for ret
-                if (jpkg.__dict__.has_key(name) || jpkg.clsSet.has_key(name)
+                if (jpkg.__dict__.has_key(name) || jpkg.getClsSet().has_key(name)
                         || ret.__contains__(name)) {
                     continue;
                 }
@@ -201,23 +203,29 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
 
     /**
      * Adds "classpath" entry. Calls {@link #addDirectory} if path refers to a
-     * dir, {@link #addJarToPackages(java.io.File, boolean)} with param cache
-     * true if path refers to a jar.
+     * dir, {@link #addJarsToPackages(java.util.List, boolean)} with param
+     * cache true for the entries that refer to a jar.
      */
     public void addClassPath(String path) {
         PyList paths = new PyString(path).split(java.io.File.pathSeparator);
+        List<File> jars = new ArrayList<File>();
 
         for (int i = 0; i < paths.__len__(); i++) {
             String entry = paths.pyget(i).toString();
             if (entry.endsWith(".jar") || entry.endsWith(".zip")) {
-                addJarToPackages(new File(entry), true);
+                jars.add(new File(entry));
             } else {
+                // Entries keep class path order, so only runs of jars are
+                // added together
+                addJarsToPackages(jars, true);
+                jars.clear();
                 File dir = new File(entry);
                 if (entry.length() == 0 || dir.isDirectory()) {
                     addDirectory(dir);
                 }
             }
         }
+        addJarsToPackages(jars, true);
     }
 
     public PyList doDir(PyJavaPackage jpkg, boolean instantiate,
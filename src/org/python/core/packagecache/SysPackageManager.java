@@ -8,6 +8,8 @@ import org.python.core.PyJavaPackage;
 import org.python.core.PyList;
 import org.python.core.PySystemState;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.io.*;
@@ -58,12 +60,14 @@ public class SysPackageManager extends PathPackageManager {
             return;
         }
         String[] files = file.list();
+        List<File> jars = new ArrayList<File>();
         for (int i = 0; i < files.length; i++) {
             String entry = files[i];
             if (entry.endsWith(".jar") || entry.endsWith(".zip")) {
-                addJarToPackages(new File(jdir, entry), cache);
+                jars.add(new File(jdir, entry));
             }
         }
+        addJarsToPackages(jars, cache);
         if (saveCache) {
             saveCache();
         }
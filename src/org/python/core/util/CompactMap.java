@@ -0,0 +1,892 @@
+/* Copyright (c) Jython Developers */
+package org.python.core.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A ConcurrentMap for the common case of a map only ever used by the thread that created it.
+ *
+ * Until a second thread touches it the map is a compact table: insertion ordered arrays of
+ * hashes and of keys and values, with an open addressing index once it grows, or, for maps
+ * created with {@link SharedKeys}, just an array of values. Reads by
+ * the owning thread take no lock, writes take this map's monitor, which is uncontended. The
+ * first access from any other thread copies the entries into a ConcurrentHashMap which then
+ * backs the map for good.
+ *
+ * Like ConcurrentHashMap, null keys and values aren't allowed and iterators are weakly
+ * consistent: they never throw ConcurrentModificationException, and may or may not reflect
+ * changes made after their creation. Once the map has been shared iteration order is that of
+ * ConcurrentHashMap.
+ */
+public class CompactMap<K, V> extends AbstractMap<K, V>
+        implements ConcurrentMap<K, V>, Serializable {
+
+    /** The thread the map is confined to until it's shared. */
+    private transient Thread owner;
+
+    /** The compact table, null once the map is shared. */
+    private transient volatile Table table;
+
+    /** The backing map once shared, otherwise null. */
+    private transient volatile ConcurrentHashMap<K, V> shared;
+
+    public CompactMap() {
+        this(0);
+    }
+
+    public CompactMap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        owner = Thread.currentThread();
+        table = CompactTable.create(capacity);
+    }
+
+    public CompactMap(Map<? extends K, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    /**
+     * Creates a map that stores only its values as long as its keys are strings found in or
+     * added to keys, which is typically shared by all instance dicts of a class.
+     */
+    public CompactMap(SharedKeys keys) {
+        owner = Thread.currentThread();
+        table = new SplitTable(keys);
+    }
+
+    /**
+     * Returns whether the map has been upgraded to its concurrent representation.
+     */
+    public boolean isShared() {
+        return shared != null;
+    }
+
+    /**
+     * Returns the compact table when called by the owner of an unshared map, otherwise null.
+     */
+    private Table confined() {
+        Table t = table;
+        if (t != null && Thread.currentThread() == owner) {
+            return t;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the concurrent map, moving the entries to it the first time round.
+     */
+    private ConcurrentHashMap<K, V> shared() {
+        ConcurrentHashMap<K, V> s = shared;
+        if (s != null) {
+            return s;
+        }
+        synchronized (this) {
+            s = shared;
+            if (s == null) {
+                Table t = table;
+                s = new ConcurrentHashMap<K, V>(Math.max(16, t.size * 2));
+                for (int i = t.start; i < t.used; i++) {
+                    Object key = t.key(i);
+                    if (key != null) {
+                        s.put(this.<K>cast(key), this.<V>cast(t.value(i)));
+                    }
+                }
+                // Publish the concurrent map before retiring the table, so a reader that misses
+                // the table always finds it
+                shared = s;
+                table = null;
+            }
+            return s;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(Object o) {
+        return (T)o;
+    }
+
+    @Override
+    public int size() {
+        Table t = confined();
+        if (t != null) {
+            return t.size;
+        }
+        return shared().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        Table t = confined();
+        if (t != null) {
+            int i = t.find(key, hash(key));
+            return i < 0 ? null : this.<V>cast(t.value(i));
+        }
+        return shared().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Table t = confined();
+        if (t != null) {
+            return t.find(key, hash(key)) >= 0;
+        }
+        return shared().containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (confined() != null) {
+            int h = hash(key);
+            synchronized (this) {
+                Table t = table;
+                if (t != null) {
+                    int i = t.find(key, h);
+                    if (t != table) {
+                        // key's __eq__ changed the map, start over
+                        return put(key, value, onlyIfAbsent);
+                    }
+                    if (i >= 0) {
+                        V old = cast(t.value(i));
+                        if (!onlyIfAbsent) {
+                            t.setValue(i, value);
+                        }
+                        return old;
+                    }
+                    table = t.insert(key, h, value);
+                    return null;
+                }
+            }
+        }
+        return onlyIfAbsent ? shared().putIfAbsent(key, value) : shared().put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (confined() == null) {
+            shared().putAll(map);
+            return;
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        return remove(key, null, null);
+    }
+
+    public boolean remove(Object key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        return remove(key, value, null) != null;
+    }
+
+    public V replace(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (confined() != null) {
+            int h = hash(key);
+            synchronized (this) {
+                Table t = table;
+                if (t != null) {
+                    int i = t.find(key, h);
+                    if (t != table) {
+                        return replace(key, value);
+                    }
+                    if (i < 0) {
+                        return null;
+                    }
+                    V old = cast(t.value(i));
+                    t.setValue(i, value);
+                    return old;
+                }
+            }
+        }
+        return shared().replace(key, value);
+    }
+
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null) {
+            throw new NullPointerException();
+        }
+        return remove(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * Removes key, or replaces its value with replacement when that's non null. If expected is
+     * non null only an entry with that value is changed. Returns the old value or null.
+     */
+    private V remove(Object key, Object expected, V replacement) {
+        if (confined() != null) {
+            int h = hash(key);
+            synchronized (this) {
+                Table t = table;
+                if (t != null) {
+                    int i = t.find(key, h);
+                    if (t != table) {
+                        return remove(key, expected, replacement);
+                    }
+                    if (i < 0) {
+                        return null;
+                    }
+                    V old = cast(t.value(i));
+                    if (expected != null && !expected.equals(old)) {
+                        return null;
+                    }
+                    if (replacement != null) {
+                        t.setValue(i, replacement);
+                    } else {
+                        t.delete(i);
+                    }
+                    return old;
+                }
+            }
+        }
+        ConcurrentHashMap<K, V> s = shared();
+        if (expected == null) {
+            return s.remove(key);
+        }
+        boolean changed = replacement != null
+                ? s.replace(this.<K>cast(key), this.<V>cast(expected), replacement)
+                : s.remove(key, expected);
+        return changed ? this.<V>cast(expected) : null;
+    }
+
+    @Override
+    public void clear() {
+        if (confined() != null) {
+            synchronized (this) {
+                if (table != null) {
+                    table = CompactTable.EMPTY;
+                    return;
+                }
+            }
+        }
+        shared().clear();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size());
+        for (Map.Entry<K, V> entry : entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int n = in.readInt();
+        owner = Thread.currentThread();
+        table = CompactTable.create(n);
+        for (int i = 0; i < n; i++) {
+            K key = this.<K>cast(in.readObject());
+            put(key, this.<V>cast(in.readObject()));
+        }
+    }
+
+    /**
+     * The state of an unshared map. Entries are numbered from start to used, with holes where
+     * key(i) is null.
+     */
+    private abstract static class Table {
+
+        /** Number of entry positions in use, including removed entries. */
+        int used;
+
+        /** Number of live entries. */
+        int size;
+
+        /** Position of the first live entry, if any. */
+        int start;
+
+        abstract Object key(int i);
+
+        abstract Object value(int i);
+
+        abstract void setValue(int i, Object value);
+
+        /**
+         * Returns the position of key's entry, or -1.
+         */
+        abstract int find(Object key, int h);
+
+        /**
+         * Adds an entry for key, which must be absent, returning the table now holding it:
+         * this one or a larger or more general copy.
+         */
+        abstract Table insert(Object key, int h, Object value);
+
+        abstract void delete(int i);
+    }
+
+    /**
+     * The default representation. Entries are appended in insertion order to the hashes array
+     * and, key followed by value, to the entries array. Removing an entry nulls its key, and
+     * growing the table drops those holes.
+     *
+     * Tables of up to LINEAR_MAX entries, which most dicts are, are searched linearly. Larger
+     * ones have an index mapping the hash to the entry's position plus one, 0 marking a free
+     * slot and DUMMY one whose entry was removed; it is kept at most 2/3 full.
+     */
+    private static final class CompactTable extends Table {
+
+        private static final int LINEAR_MAX = 8;
+
+        private static final int DUMMY = -1;
+
+        /** The table of a map with no entries yet; being full it is never written to. */
+        static final CompactTable EMPTY = new CompactTable(0, 0);
+
+        /** Null for linearly searched tables. */
+        final int[] index;
+
+        final int[] hashes;
+
+        final Object[] entries;
+
+        static CompactTable create(int capacity) {
+            if (capacity == 0) {
+                return EMPTY;
+            }
+            if (capacity <= LINEAR_MAX) {
+                return new CompactTable(0, capacity);
+            }
+            int n = LINEAR_MAX * 2;
+            while (n * 2 / 3 < capacity) {
+                n <<= 1;
+            }
+            return new CompactTable(n, n * 2 / 3);
+        }
+
+        private CompactTable(int n, int capacity) {
+            index = n == 0 ? null : new int[n];
+            hashes = new int[capacity];
+            entries = new Object[capacity * 2];
+        }
+
+        @Override
+        Object key(int i) {
+            return entries[i << 1];
+        }
+
+        @Override
+        Object value(int i) {
+            return entries[(i << 1) + 1];
+        }
+
+        @Override
+        void setValue(int i, Object value) {
+            entries[(i << 1) + 1] = value;
+        }
+
+        @Override
+        int find(Object key, int h) {
+            if (index != null) {
+                return lookup(key, h);
+            }
+            Object[] entries = this.entries;
+            for (int i = start; i < used; i++) {
+                if (entries[i << 1] == key) {
+                    return i;
+                }
+            }
+            for (int i = start; i < used; i++) {
+                Object k = entries[i << 1];
+                if (hashes[i] == h && k != null && key.equals(k)) {
+                    if (entries[i << 1] == k) {
+                        return i;
+                    }
+                    // key's __eq__ changed the table under us, start over
+                    return find(key, h);
+                }
+            }
+            return -1;
+        }
+
+        private int lookup(Object key, int h) {
+            int[] index = this.index;
+            int mask = index.length - 1;
+            int slot = h & mask;
+            int perturb = h;
+            while (true) {
+                int ix = index[slot];
+                if (ix == 0) {
+                    return -1;
+                }
+                if (ix > 0) {
+                    int i = ix - 1;
+                    Object k = entries[i << 1];
+                    if (k == key) {
+                        return i;
+                    }
+                    if (hashes[i] == h && k != null && key.equals(k)) {
+                        if (index[slot] == ix && entries[i << 1] == k) {
+                            return i;
+                        }
+                        // key's __eq__ changed the table under us, start over
+                        slot = h & mask;
+                        perturb = h;
+                        continue;
+                    }
+                }
+                perturb >>>= 5;
+                slot = (slot * 5 + perturb + 1) & mask;
+            }
+        }
+
+        @Override
+        Table insert(Object key, int h, Object value) {
+            if (used < hashes.length) {
+                append(key, h, value);
+                return this;
+            }
+            CompactTable t = create(Math.max(4, size * 2));
+            for (int i = start; i < used; i++) {
+                if (key(i) != null) {
+                    t.append(key(i), hashes[i], value(i));
+                }
+            }
+            t.append(key, h, value);
+            return t;
+        }
+
+        void append(Object key, int h, Object value) {
+            int i = used++;
+            hashes[i] = h;
+            entries[i << 1] = key;
+            entries[(i << 1) + 1] = value;
+            size++;
+            if (index != null) {
+                index[freeSlot(h)] = i + 1;
+            }
+        }
+
+        private int freeSlot(int h) {
+            int mask = index.length - 1;
+            int slot = h & mask;
+            int perturb = h;
+            while (index[slot] > 0) {
+                perturb >>>= 5;
+                slot = (slot * 5 + perturb + 1) & mask;
+            }
+            return slot;
+        }
+
+        @Override
+        void delete(int i) {
+            if (index != null) {
+                int mask = index.length - 1;
+                int slot = hashes[i] & mask;
+                int perturb = hashes[i];
+                while (index[slot] != i + 1) {
+                    perturb >>>= 5;
+                    slot = (slot * 5 + perturb + 1) & mask;
+                }
+                index[slot] = DUMMY;
+            }
+            entries[i << 1] = null;
+            entries[(i << 1) + 1] = null;
+            size--;
+            if (i == start) {
+                while (start < used && key(start) == null) {
+                    start++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The representation of a map whose keys are all among a SharedKeys: only the values are
+     * stored, at the position of their key. Adding a key that can't be shared turns the map
+     * into a CompactTable.
+     */
+    private static final class SplitTable extends Table {
+
+        private static final Object[] NO_VALUES = new Object[0];
+
+        final SharedKeys keys;
+
+        Object[] values = NO_VALUES;
+
+        SplitTable(SharedKeys keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        Object key(int i) {
+            return values[i] == null ? null : keys.get(i);
+        }
+
+        @Override
+        Object value(int i) {
+            return values[i];
+        }
+
+        @Override
+        void setValue(int i, Object value) {
+            values[i] = value;
+        }
+
+        @Override
+        int find(Object key, int h) {
+            int i = keys.indexOf(key, h);
+            if (i < 0 || i >= values.length || values[i] == null) {
+                return -1;
+            }
+            return i;
+        }
+
+        @Override
+        Table insert(Object key, int h, Object value) {
+            int i = keys.add(key, h);
+            if (i < 0) {
+                CompactTable t = CompactTable.create(Math.max(4, (size + 1) * 2));
+                for (int j = 0; j < used; j++) {
+                    if (values[j] != null) {
+                        t.append(keys.get(j), hash(keys.get(j)), values[j]);
+                    }
+                }
+                t.append(key, h, value);
+                return t;
+            }
+            if (i >= values.length) {
+                Object[] grown = new Object[Math.max(i + 1, keys.size())];
+                System.arraycopy(values, 0, grown, 0, values.length);
+                values = grown;
+                used = grown.length;
+            }
+            values[i] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        void delete(int i) {
+            values[i] = null;
+            size--;
+        }
+    }
+
+    /**
+     * A set of string keys shared between maps, in the order they were first added. It only
+     * grows, up to MAX_KEYS keys.
+     */
+    public static final class SharedKeys {
+
+        /** The most keys shared; maps needing others get a table of their own. */
+        static final int MAX_KEYS = 30;
+
+        /** Replaced, never changed, when a key is added. */
+        private volatile String[] keys = new String[0];
+
+        String get(int i) {
+            return keys[i];
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        /**
+         * Returns the position of key, or -1.
+         */
+        int indexOf(Object key, int h) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            String[] keys = this.keys;
+            for (int i = 0; i < keys.length; i++) {
+                String k = keys[i];
+                if (k == key || (hash(k) == h && k.equals(key))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the position of key, adding it if necessary, or -1 if it can't be shared.
+         */
+        int add(Object key, int h) {
+            int i = indexOf(key, h);
+            if (i >= 0 || !(key instanceof String)) {
+                return i;
+            }
+            synchronized (this) {
+                i = indexOf(key, h);
+                if (i >= 0) {
+                    return i;
+                }
+                String[] keys = this.keys;
+                if (keys.length >= MAX_KEYS) {
+                    return -1;
+                }
+                String[] grown = new String[keys.length + 1];
+                System.arraycopy(keys, 0, grown, 0, keys.length);
+                grown[keys.length] = (String)key;
+                this.keys = grown;
+                return keys.length;
+            }
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Table t = confined();
+            if (t != null) {
+                return new TableIterator<Map.Entry<K, V>>(t) {
+
+                    Map.Entry<K, V> next(int i) {
+                        V value = cast(entries.value(i));
+                        return new WriteThroughEntry(lastKey, value);
+                    }
+                };
+            }
+            return shared().entrySet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactMap.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            V value = get(e.getKey());
+            return value != null && value.equals(e.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            return CompactMap.this.remove(e.getKey(), e.getValue());
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+
+        @Override
+        public Iterator<K> iterator() {
+            Table t = confined();
+            if (t != null) {
+                return new TableIterator<K>(t) {
+
+                    K next(int i) {
+                        return lastKey;
+                    }
+                };
+            }
+            return shared().keySet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactMap.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return CompactMap.this.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+
+        @Override
+        public Iterator<V> iterator() {
+            Table t = confined();
+            if (t != null) {
+                return new TableIterator<V>(t) {
+
+                    V next(int i) {
+                        return cast(entries.value(i));
+                    }
+                };
+            }
+            return shared().values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+    }
+
+    /**
+     * Iterates over the entries of one table in insertion order. If the map replaces the table
+     * the iteration carries on over the old one.
+     */
+    private abstract class TableIterator<E> implements Iterator<E> {
+
+        final Table entries;
+
+        private int next;
+
+        K lastKey;
+
+        TableIterator(Table entries) {
+            this.entries = entries;
+            next = entries.start;
+        }
+
+        public boolean hasNext() {
+            while (next < entries.used && entries.key(next) == null) {
+                next++;
+            }
+            return next < entries.used;
+        }
+
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int i = next++;
+            lastKey = cast(entries.key(i));
+            return next(i);
+        }
+
+        /** Returns the element for entry i, whose key is lastKey. */
+        abstract E next(int i);
+
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            CompactMap.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    private final class WriteThroughEntry implements Map.Entry<K, V> {
+
+        private final K key;
+
+        private V value;
+
+        WriteThroughEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            V old = this.value;
+            this.value = value;
+            put(key, value);
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -37,12 +37,31 @@ public class StringUtil {
      * @param len the length
      * @return a new String corresponding to the bytes in buf
      */
+    @SuppressWarnings("deprecation")
     public static String fromBytes(byte[] buf, int off, int len) {
         // Yes, I known the method is deprecated, but it is the fastest
         // way of converting between between byte[] and String
         return new String(buf, 0, off, len);
     }
 
+    /**
+     * Copy the low-order bits of the chars of string from start to end
+     * into buf, starting at off. The inverse of {@link #fromBytes(byte[],
+     * int, int)}.
+     *
+     * @param string a String value
+     * @param start the index of the first char to copy
+     * @param end the index after the last char to copy
+     * @param buf the destination array of bytes
+     * @param off the offset in buf to copy to
+     */
+    @SuppressWarnings("deprecation")
+    public static void toBytes(String string, int start, int end, byte[] buf, int off) {
+        // Deprecated for the same reason as the String constructor above,
+        // and as fast
+        string.getBytes(start, end, buf, off);
+    }
+
     /**
      * Return a new String with chars corresponding to buf.
      *
@@ -60,8 +79,7 @@ public class StringUtil {
      * @return a new String corresponding to the bytes in buf
      */
     public static String fromBytes(ByteBuffer buf) {
-        return fromBytes(buf.array(), buf.arrayOffset() + buf.position(),
-                         buf.arrayOffset() + buf.limit());
+        return fromBytes(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
     }
 
     /**
@@ -5,7 +5,10 @@ import org.python.core.ClassDictInit;
 import org.python.core.Py;
 import org.python.core.PyBuiltinFunctionSet;
 import org.python.core.PyJavaClass;
+import org.python.core.PyLong;
 import org.python.core.PyObject;
+import org.python.core.PyTuple;
+import org.python.core.PyType;
 
 class JythonInternalFunctions extends PyBuiltinFunctionSet
 {
@@ -13,6 +16,19 @@ class JythonInternalFunctions extends PyBuiltinFunctionSet
         super(name, index, argcount);
     }
 
+    public PyObject __call__() {
+        switch (index) {
+        case 1:
+            long[] stats = PyType.getLookupCacheStats();
+            return new PyTuple(new PyLong(stats[0]), new PyLong(stats[1]));
+        case 2:
+            PyType.resetLookupCacheStats();
+            return Py.None;
+        default:
+            throw info.unexpectedCall(0, false);
+        }
+    }
+
     public PyObject __call__(PyObject arg) {
         switch (index) {
         case 0:
@@ -30,6 +46,10 @@ public class _jython implements ClassDictInit
     public static void classDictInit(PyObject dict) {
         dict.__setitem__("is_lazy",
                          new JythonInternalFunctions("is_lazy", 0, 1));
+        dict.__setitem__("lookup_cache_stats",
+                         new JythonInternalFunctions("lookup_cache_stats", 1, 0));
+        dict.__setitem__("reset_lookup_cache_stats",
+                         new JythonInternalFunctions("reset_lookup_cache_stats", 2, 0));
     }
 
 }
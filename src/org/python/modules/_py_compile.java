@@ -45,8 +45,8 @@ public class _py_compile {
             dir = dir.getParentFile();
         }
         byte[] bytes = org.python.core.imp.compileSource(name, file, dfile, cfile);
-        org.python.core.imp.cacheCompiledSource(filename, cfile, bytes);
-
-        return bytes.length > 0;
+        // cacheCompiledSource returns null when it couldn't write cfile
+        return org.python.core.imp.cacheCompiledSource(filename, cfile, bytes) != null
+                && bytes.length > 0;
     }
 }
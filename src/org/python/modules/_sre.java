@@ -22,6 +22,7 @@ import org.python.core.PyList;
 import org.python.core.PyLong;
 import org.python.core.PyObject;
 import org.python.core.PyString;
+import org.python.modules.sre.PatternCache;
 import org.python.modules.sre.PatternObject;
 import org.python.modules.sre.SRE_STATE;
 
@@ -59,6 +60,21 @@ public class _sre {
         return po;
     }
 
+    /**
+     * Returns the pattern sre_compile compiled from pattern with flags before, or None.
+     */
+    public static PyObject getcached(PyObject pattern, int flags) {
+        PatternObject po = PatternCache.get(pattern, flags);
+        return po == null ? Py.None : po;
+    }
+
+    /**
+     * Keeps po to be handed out by getcached for pattern and flags.
+     */
+    public static void putcached(PyObject pattern, int flags, PatternObject po) {
+        PatternCache.put(pattern, flags, po);
+    }
+
 
 
     public static int getcodesize() {
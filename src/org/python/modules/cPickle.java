@@ -1877,7 +1877,7 @@ public class cPickle implements ClassDictInit {
 
         final private void load_binint() {
             int x = read_binint();
-            push(new PyInteger(x));
+            push(Py.newInteger(x));
         }
 
         private int read_binint() {
@@ -1891,12 +1891,12 @@ public class cPickle implements ClassDictInit {
 
         final private void load_binint1() {
             int val = file.read(1).charAt(0);
-            push(new PyInteger(val));
+            push(Py.newInteger(val));
         }
 
         final private void load_binint2() {
             int val = read_binint2();
-            push(new PyInteger(val));
+            push(Py.newInteger(val));
         }
 
         private int read_binint2() {
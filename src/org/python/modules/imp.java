@@ -1,6 +1,7 @@
 
 package org.python.modules;
 
+import org.python.core.ImportCache;
 import org.python.core.Py;
 import org.python.core.PyFile;
 import org.python.core.PyList;
@@ -87,8 +88,14 @@ public class imp {
         File sourceFile = new File(dir, sourceName);
         File compiledFile = new File(dir, compiledName);
 
-        boolean pkg = dir.isDirectory() && caseok(dir, name) && (sourceFile.isFile()
-                                                                 || compiledFile.isFile());
+        ImportCache.Directory entries = ImportCache.get(dir);
+        boolean pkg;
+        if (findingPackage) {
+            pkg = dir.isDirectory() && caseok(dir, name);
+        } else {
+            pkg = ImportCache.get(new File(directoryName)).isDirectory(name);
+        }
+        pkg = pkg && (entries.isFile(sourceName) || entries.isFile(compiledName));
 
         if(!findingPackage) {
             if(pkg) {
@@ -100,11 +107,12 @@ public class imp {
                 compiledName = name + "$py.class";
                 sourceFile = new File(directoryName, sourceName);
                 compiledFile = new File(directoryName, compiledName);
+                entries = ImportCache.get(new File(directoryName));
             }
         }
 
-        if (sourceFile.isFile() && caseok(sourceFile, sourceName)) {
-            if (!preferSource && compiledFile.isFile() && caseok(compiledFile, compiledName)) {
+        if (entries.isFile(sourceName)) {
+            if (!preferSource && entries.isFile(compiledName)) {
                 Py.writeDebug("import", "trying precompiled " + compiledFile.getPath());
                 long pyTime = sourceFile.lastModified();
                 long classTime = compiledFile.lastModified();
@@ -121,7 +129,7 @@ public class imp {
 
         // If no source, try loading precompiled
         Py.writeDebug("import", "trying " + compiledFile.getPath());
-        if (compiledFile.isFile() && caseok(compiledFile, compiledName)) {
+        if (entries.isFile(compiledName)) {
             return new ModuleInfo(newFile(compiledFile),
                     new File(displayDirName, compiledName).getPath(),
                                   ".class", "rb", PY_COMPILED);
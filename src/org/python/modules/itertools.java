@@ -82,7 +82,7 @@ public class itertools implements ClassDictInit {
             int counter = init;
 
             public PyObject __iternext__() {
-                return new PyInteger(counter++);
+                return Py.newInteger(counter++);
             }
             
             public PyString __repr__() {
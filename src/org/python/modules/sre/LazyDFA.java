@@ -0,0 +1,178 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules.sre;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A DFA over an {@link NFA}'s program, built a state at a time as strings need them, that tells
+ * whether a string can match at all while reading each character once with a table lookup.
+ * <p>
+ * A state is the set of the program's CHAR and MATCH instructions threads can be at. Assertions
+ * are taken to pass, as whether they do depends on the characters around a position rather than
+ * on the state, so the DFA can accept a string that doesn't match but never turns down one that
+ * does; the NFA then finds the match, if there is one. States and their transitions are shared by
+ * every thread matching the pattern. Once a pattern needs more than {@link #MAX_STATES} states,
+ * its strings are left to the NFA alone.
+ */
+class LazyDFA {
+
+    static final int MAX_STATES = 1000;
+
+    /** The most transitions on characters past Latin-1 to keep. */
+    static final int MAX_WIDE = 10000;
+
+    private final NFA nfa;
+
+    /** Whether matches must start where the string does, rather than anywhere in it. */
+    private final boolean anchored;
+
+    private final Map<Key, State> states = new HashMap<Key, State>();
+
+    /** The transitions on characters past Latin-1, keyed by state id and character. */
+    private final Map<Long, State> wide = new ConcurrentHashMap<Long, State>();
+
+    private volatile State initial;
+
+    /** Whether the DFA has all the states it may have and still needed another. */
+    private volatile boolean full;
+
+    LazyDFA(NFA nfa, boolean anchored) {
+        this.nfa = nfa;
+        this.anchored = anchored;
+    }
+
+    /**
+     * Returns false if no match can start at state.start, or after it when not anchored, and end
+     * by state.end. Returns true if one may, or the DFA has grown too big to tell.
+     */
+    boolean mayMatch(SRE_STATE state) {
+        if (full) {
+            return true;
+        }
+        State d = initial;
+        if (d == null) {
+            d = start(state);
+        }
+        int end = state.end;
+        for (int ptr = state.start; !d.accepting; ptr++) {
+            if (ptr >= end || d.pcs.length == 0) {
+                return false;
+            }
+            int c = state.ch(ptr);
+            State next = c < 256 ? d.next[c] : wide.get(((long)d.id << 32) | c);
+            if (next == null) {
+                next = transition(state, d, c);
+                if (next == null) {
+                    return true;
+                }
+            }
+            d = next;
+        }
+        return true;
+    }
+
+    private synchronized State start(SRE_STATE state) {
+        if (initial == null) {
+            boolean[] seen = new boolean[nfa.size];
+            int[] pcs = new int[nfa.size];
+            // The first state always fits
+            initial = state(pcs, nfa.closure(0, seen, pcs, 0));
+        }
+        return initial;
+    }
+
+    /**
+     * Returns the state d goes to on c, making it if need be, or null if there are already too
+     * many states.
+     */
+    private synchronized State transition(SRE_STATE state, State d, int c) {
+        boolean[] seen = new boolean[nfa.size];
+        int[] pcs = new int[nfa.size];
+        int count = 0;
+        for (int pc : d.pcs) {
+            if (nfa.op[pc] == NFA.CHAR && nfa.test(state, pc, c)) {
+                count = nfa.closure(pc + 1, seen, pcs, count);
+            }
+        }
+        if (!anchored) {
+            // A match can also start after c
+            count = nfa.closure(0, seen, pcs, count);
+        }
+        State next = state(pcs, count);
+        if (next == null) {
+            return null;
+        }
+        if (c < 256) {
+            d.next[c] = next;
+        } else if (wide.size() < MAX_WIDE) {
+            wide.put(((long)d.id << 32) | c, next);
+        }
+        return next;
+    }
+
+    private State state(int[] pcs, int count) {
+        int[] set = new int[count];
+        System.arraycopy(pcs, 0, set, 0, count);
+        Arrays.sort(set);
+        Key key = new Key(set);
+        State d = states.get(key);
+        if (d == null) {
+            if (states.size() >= MAX_STATES) {
+                full = true;
+                return null;
+            }
+            boolean accepting = false;
+            for (int pc : set) {
+                accepting |= nfa.op[pc] == NFA.MATCH;
+            }
+            d = new State(states.size(), set, accepting);
+            states.put(key, d);
+        }
+        return d;
+    }
+
+    private static class Key {
+
+        private final int[] pcs;
+
+        private final int hash;
+
+        Key(int[] pcs) {
+            this.pcs = pcs;
+            hash = Arrays.hashCode(pcs);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(pcs, ((Key)obj).pcs);
+        }
+    }
+
+    /**
+     * A DFA state. Its fields are final, so that a thread reading a transition another thread
+     * has just filled in sees all of the state it goes to.
+     */
+    private static class State {
+
+        final int id;
+
+        final int[] pcs;
+
+        final boolean accepting;
+
+        /** The states this goes to on the Latin-1 characters, as far as they're known. */
+        final State[] next = new State[256];
+
+        State(int id, int[] pcs, boolean accepting) {
+            this.id = id;
+            this.pcs = pcs;
+            this.accepting = accepting;
+        }
+    }
+}
@@ -0,0 +1,618 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules.sre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A pattern's code compiled to a Thompson NFA and run by a Pike VM, which follows every way the
+ * pattern can match the string at once rather than backtracking. It takes time linear in the
+ * length of the string for any pattern, where SRE_MATCH can take exponential time, and needs no
+ * recursion however long the string.
+ * <p>
+ * Threads are kept in the order a backtracking matcher tries them, so the match found, and the
+ * groups it sets, are the ones CPython's sre finds. They aren't always the ones SRE_MATCH finds:
+ * inside a REPEAT, SRE_MATCH can leave a group set by an iteration it backtracked out of, or
+ * report a different lastindex, so group() and lastindex can differ with linearRegex turned on.
+ * Ordering threads only works for patterns that can't look at what they matched before, so
+ * {@link #compile} turns down code with backreferences, lookahead and lookbehind assertions and
+ * conditional groups, and also repeats whose body can match the empty string, which SRE_MATCH
+ * stops repeating in a way a Pike VM can't mirror. Those patterns, and those that can't
+ * backtrack exponentially in the first place, are left to SRE_MATCH.
+ * <p>
+ * Before running the threads, a search or match asks a {@link LazyDFA} over the same program
+ * whether the string can match at all, which costs a table lookup per character.
+ */
+class NFA {
+
+    /** The most instructions a program may have; bigger patterns are left to SRE_MATCH. */
+    static final int MAX_SIZE = 10000;
+
+    /** Matches a character with the SRE single character operator at index arg in the code. */
+    static final int CHAR = 0;
+
+    /** Continues at arg, or failing that at alt. */
+    static final int SPLIT = 1;
+
+    /** Continues at arg. */
+    static final int JMP = 2;
+
+    /** Sets mark arg to the current position. */
+    static final int SAVE = 3;
+
+    /** Continues only if SRE_AT accepts the current position for the at code arg. */
+    static final int AT = 4;
+
+    /** The pattern has matched. */
+    static final int MATCH = 5;
+
+    /** The repeat count that stands for no upper bound. */
+    private static final int MAXREPEAT = 65535;
+
+    final int[] code;
+
+    final int[] op, arg, alt;
+
+    final int size;
+
+    /** The number of marks the program sets. */
+    final int marks;
+
+    /** The CHAR instructions a match can start with. */
+    private final int[] first;
+
+    /** Whether the pattern can match the empty string. */
+    private final boolean nullable;
+
+    private final Prefilter prefilter;
+
+    private final LazyDFA searchDFA, matchDFA;
+
+    private NFA(int[] code, Builder builder, Prefilter prefilter) {
+        this.code = code;
+        size = builder.size;
+        op = copy(builder.op, size);
+        arg = copy(builder.arg, size);
+        alt = copy(builder.alt, size);
+        marks = builder.marks;
+        this.prefilter = prefilter;
+
+        int[] closure = new int[size];
+        int count = closure(0, new boolean[size], closure, 0);
+        boolean canBeEmpty = false;
+        int chars = 0;
+        for (int i = 0; i < count; i++) {
+            if (op[closure[i]] == MATCH) {
+                canBeEmpty = true;
+            } else {
+                closure[chars++] = closure[i];
+            }
+        }
+        first = copy(closure, chars);
+        nullable = canBeEmpty;
+        searchDFA = new LazyDFA(this, false);
+        matchDFA = new LazyDFA(this, true);
+    }
+
+    private static int[] copy(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+        return copy;
+    }
+
+    /**
+     * Returns code compiled to an NFA, or null if it can't be matched by one or has no REPEAT.
+     * SRE_MATCH only backtracks exponentially through a repeat of more than a single character,
+     * and is faster than the NFA on the patterns without one.
+     *
+     * @param prefilter the prefilter read from code, or null
+     */
+    static NFA compile(int[] code, Prefilter prefilter) {
+        Builder builder = new Builder(code);
+        try {
+            int pidx = 0;
+            if (code.length > 0 && code[0] == SRE_STATE.SRE_OP_INFO) {
+                pidx = 1 + code[1];
+            }
+            pidx = builder.sequence(pidx);
+            if (code[pidx] != SRE_STATE.SRE_OP_SUCCESS) {
+                return null;
+            }
+            builder.emit(MATCH, 0, 0);
+            if (!builder.repeats) {
+                return null;
+            }
+        } catch (Unsupported e) {
+            return null;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // Code sre_compile didn't make
+            return null;
+        }
+        return new NFA(code, builder, prefilter);
+    }
+
+    /**
+     * Matches like SRE_MATCH at state.start.
+     */
+    int match(SRE_STATE state) {
+        if (state.start > state.end || !matchDFA.mayMatch(state)) {
+            return 0;
+        }
+        return run(state, true);
+    }
+
+    /**
+     * Searches like SRE_SEARCH from state.start.
+     */
+    int search(SRE_STATE state) {
+        if (state.start > state.end) {
+            return 0;
+        }
+        if (prefilter != null && state.text != null) {
+            for (String literal : prefilter.literals) {
+                if (state.find(literal, state.start) < 0) {
+                    return 0;
+                }
+            }
+        }
+        if (!searchDFA.mayMatch(state)) {
+            return 0;
+        }
+        return run(state, false);
+    }
+
+    /**
+     * Returns whether the CHAR instruction at pc accepts c.
+     */
+    final boolean test(SRE_STATE state, int pc, int c) {
+        int pidx = arg[pc];
+        switch (code[pidx]) {
+            case SRE_STATE.SRE_OP_LITERAL:
+                return c == code[pidx + 1];
+            case SRE_STATE.SRE_OP_NOT_LITERAL:
+                return c != code[pidx + 1];
+            case SRE_STATE.SRE_OP_LITERAL_IGNORE:
+                return state.lower(c) == state.lower(code[pidx + 1]);
+            case SRE_STATE.SRE_OP_NOT_LITERAL_IGNORE:
+                return state.lower(c) != state.lower(code[pidx + 1]);
+            case SRE_STATE.SRE_OP_IN:
+                return state.SRE_CHARSET(code, pidx + 2, c);
+            case SRE_STATE.SRE_OP_IN_IGNORE:
+                return state.SRE_CHARSET(code, pidx + 2, state.lower(c));
+            case SRE_STATE.SRE_OP_ANY:
+                return !state.SRE_IS_LINEBREAK(c);
+            case SRE_STATE.SRE_OP_ANY_ALL:
+                return true;
+            case SRE_STATE.SRE_OP_CATEGORY:
+                return state.sre_category(code[pidx + 1], c);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Adds the CHAR and MATCH instructions reachable from pc without reading a character to
+     * closure from index count, taking every AT as passing, and returns the new count. seen marks
+     * the instructions already added.
+     */
+    final int closure(int pc, boolean[] seen, int[] closure, int count) {
+        int[] stack = new int[size + 1];
+        int top = 0;
+        stack[top++] = pc;
+        while (top > 0) {
+            pc = stack[--top];
+            while (!seen[pc]) {
+                seen[pc] = true;
+                switch (op[pc]) {
+                    case CHAR:
+                    case MATCH:
+                        closure[count++] = pc;
+                        break;
+                    case SPLIT:
+                        stack[top++] = alt[pc];
+                        pc = arg[pc];
+                        continue;
+                    case JMP:
+                        pc = arg[pc];
+                        continue;
+                    default:
+                        pc++;
+                        continue;
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int run(SRE_STATE state, boolean anchored) {
+        int start = state.start;
+        int end = state.end;
+        Threads clist = new Threads(this);
+        Threads nlist = new Threads(this);
+        int[] initial = new int[marks + 2];
+        Arrays.fill(initial, -1);
+
+        int[] matched = null;
+        int matchEnd = -1;
+        for (int sp = start;; sp++) {
+            if (matched == null && (!anchored || sp == start)) {
+                if (!anchored && clist.count == 0) {
+                    sp = skip(state, sp);
+                    if (sp < 0) {
+                        break;
+                    }
+                }
+                if (!clist.contains(0)) {
+                    int[] caps = initial.clone();
+                    caps[marks] = sp;
+                    clist.add(state, 0, caps, sp);
+                }
+            }
+            if (clist.count == 0 && (anchored || matched != null || sp >= end)) {
+                break;
+            }
+            int c = sp < end ? state.ch(sp) : -1;
+            for (int i = 0; i < clist.count; i++) {
+                int pc = clist.pc[i];
+                if (op[pc] == MATCH) {
+                    // Threads after this one would only be tried if it failed
+                    matched = clist.caps[i];
+                    matchEnd = sp;
+                    break;
+                }
+                if (c != -1 && test(state, pc, c)) {
+                    nlist.add(state, pc + 1, clist.caps[i], sp + 1);
+                }
+            }
+            Threads t = clist;
+            clist = nlist;
+            nlist = t;
+            nlist.clear();
+            if (sp >= end) {
+                break;
+            }
+        }
+        if (matched == null) {
+            return 0;
+        }
+
+        state.start = matched[marks];
+        state.ptr = matchEnd;
+        int lastmark = state.lastmark;
+        for (int i = 0; i < marks; i++) {
+            state.mark[i] = matched[i];
+            if (matched[i] != -1 && i > lastmark) {
+                lastmark = i;
+            }
+        }
+        state.lastmark = lastmark;
+        state.lastindex = matched[marks + 1];
+        return 1;
+    }
+
+    /**
+     * Returns the first position from sp where a match can start, or -1 if there is none.
+     */
+    private int skip(SRE_STATE state, int sp) {
+        if (nullable) {
+            return sp;
+        }
+        int end = state.end;
+        if (prefilter != null && prefilter.prefix != null && state.text != null) {
+            return state.find(prefilter.prefix, sp);
+        }
+        for (; sp < end; sp++) {
+            int c = state.ch(sp);
+            for (int pc : first) {
+                if (test(state, pc, c)) {
+                    return sp;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The threads at a position, in the order SRE_MATCH would try them. Each thread has the
+     * marks it set, followed by where its match started and its lastindex.
+     */
+    private static class Threads {
+
+        private final NFA nfa;
+
+        final int[] pc;
+
+        final int[][] caps;
+
+        int count;
+
+        /** The instructions added at this position, and those on the stack of add. */
+        private final boolean[] on;
+
+        private final int[] stackPc;
+
+        private final int[][] stackCaps;
+
+        Threads(NFA nfa) {
+            this.nfa = nfa;
+            pc = new int[nfa.size];
+            caps = new int[nfa.size][];
+            on = new boolean[nfa.size];
+            stackPc = new int[nfa.size + 1];
+            stackCaps = new int[nfa.size + 1][];
+        }
+
+        boolean contains(int at) {
+            return on[at];
+        }
+
+        void clear() {
+            for (int i = 0; i < count; i++) {
+                caps[i] = null;
+            }
+            Arrays.fill(on, false);
+            count = 0;
+        }
+
+        /**
+         * Adds the thread at instruction at with marks at position sp, following its jumps,
+         * splits, saves and assertions to the instructions that read a character or match.
+         */
+        void add(SRE_STATE state, int at, int[] marks, int sp) {
+            int[] op = nfa.op;
+            int[] arg = nfa.arg;
+            int top = 0;
+            stackPc[top] = at;
+            stackCaps[top++] = marks;
+            while (top > 0) {
+                int i = stackPc[--top];
+                int[] c = stackCaps[top];
+                stackCaps[top] = null;
+                while (!on[i]) {
+                    on[i] = true;
+                    switch (op[i]) {
+                        case CHAR:
+                        case MATCH:
+                            pc[count] = i;
+                            caps[count++] = c;
+                            break;
+                        case SPLIT:
+                            // Every instruction is pushed at most once, as it's marked on first
+                            stackPc[top] = nfa.alt[i];
+                            stackCaps[top++] = c;
+                            i = arg[i];
+                            continue;
+                        case JMP:
+                            i = arg[i];
+                            continue;
+                        case SAVE:
+                            c = c.clone();
+                            c[arg[i]] = sp;
+                            if ((arg[i] & 1) != 0) {
+                                c[c.length - 1] = arg[i] / 2 + 1;
+                            }
+                            i++;
+                            continue;
+                        case AT:
+                            if (state.SRE_AT(sp, arg[i])) {
+                                i++;
+                                continue;
+                            }
+                            break;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private static class Unsupported extends Exception {
+
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+
+    /**
+     * Compiles SRE code to instructions, expanding counted repeats.
+     */
+    private static class Builder {
+
+        private final int[] code;
+
+        int[] op = new int[64], arg = new int[64], alt = new int[64];
+
+        int size;
+
+        int marks;
+
+        /** Whether the code has a REPEAT, rather than only repeats of a single character. */
+        boolean repeats;
+
+        Builder(int[] code) {
+            this.code = code;
+        }
+
+        int emit(int op, int arg, int alt) throws Unsupported {
+            if (size == MAX_SIZE) {
+                throw UNSUPPORTED;
+            }
+            if (size == this.op.length) {
+                this.op = copy(this.op, size * 2);
+                this.arg = copy(this.arg, size * 2);
+                this.alt = copy(this.alt, size * 2);
+            }
+            this.op[size] = op;
+            this.arg[size] = arg;
+            this.alt[size] = alt;
+            return size++;
+        }
+
+        /**
+         * Compiles the sequence at pidx up to the SUCCESS, JUMP or UNTIL that ends it, and
+         * returns the index of that.
+         */
+        int sequence(int pidx) throws Unsupported {
+            for (;;) {
+                switch (code[pidx]) {
+                    case SRE_STATE.SRE_OP_SUCCESS:
+                    case SRE_STATE.SRE_OP_JUMP:
+                    case SRE_STATE.SRE_OP_MAX_UNTIL:
+                    case SRE_STATE.SRE_OP_MIN_UNTIL:
+                        return pidx;
+                    case SRE_STATE.SRE_OP_MARK:
+                        emit(SAVE, code[pidx + 1], 0);
+                        marks = Math.max(marks, code[pidx + 1] + 1);
+                        pidx += 2;
+                        break;
+                    case SRE_STATE.SRE_OP_LITERAL:
+                    case SRE_STATE.SRE_OP_NOT_LITERAL:
+                    case SRE_STATE.SRE_OP_LITERAL_IGNORE:
+                    case SRE_STATE.SRE_OP_NOT_LITERAL_IGNORE:
+                    case SRE_STATE.SRE_OP_CATEGORY:
+                        emit(CHAR, pidx, 0);
+                        pidx += 2;
+                        break;
+                    case SRE_STATE.SRE_OP_ANY:
+                    case SRE_STATE.SRE_OP_ANY_ALL:
+                        emit(CHAR, pidx, 0);
+                        pidx++;
+                        break;
+                    case SRE_STATE.SRE_OP_IN:
+                    case SRE_STATE.SRE_OP_IN_IGNORE:
+                        emit(CHAR, pidx, 0);
+                        pidx += 1 + code[pidx + 1];
+                        break;
+                    case SRE_STATE.SRE_OP_AT:
+                        emit(AT, code[pidx + 1], 0);
+                        pidx += 2;
+                        break;
+                    case SRE_STATE.SRE_OP_BRANCH:
+                        pidx = branch(pidx);
+                        break;
+                    case SRE_STATE.SRE_OP_REPEAT_ONE:
+                    case SRE_STATE.SRE_OP_MIN_REPEAT_ONE:
+                        /* <REPEAT_ONE> <skip> <1=min> <2=max> item <SUCCESS> tail */
+                        repeat(pidx + 4, code[pidx + 2], code[pidx + 3],
+                               code[pidx] == SRE_STATE.SRE_OP_REPEAT_ONE);
+                        pidx += 1 + code[pidx + 1];
+                        break;
+                    case SRE_STATE.SRE_OP_REPEAT:
+                        /* <REPEAT> <skip> <1=min> <2=max> item <UNTIL> tail */
+                        if (matchesEmpty(pidx + 4)) {
+                            throw UNSUPPORTED;
+                        }
+                        repeats = true;
+                        int until = pidx + 1 + code[pidx + 1];
+                        repeat(pidx + 4, code[pidx + 2], code[pidx + 3],
+                               code[until] == SRE_STATE.SRE_OP_MAX_UNTIL);
+                        pidx = until + 1;
+                        break;
+                    default:
+                        throw UNSUPPORTED;
+                }
+            }
+        }
+
+        /* <BRANCH> <0=skip> code <JUMP> ... <NULL> */
+        private int branch(int pidx) throws Unsupported {
+            List<Integer> jumps = new ArrayList<Integer>();
+            int skip = pidx + 1;
+            while (code[skip] != 0) {
+                int next = skip + code[skip];
+                int split = -1;
+                if (code[next] != 0) {
+                    split = emit(SPLIT, size + 1, 0);
+                }
+                sequence(skip + 1);
+                jumps.add(emit(JMP, 0, 0));
+                if (split != -1) {
+                    alt[split] = size;
+                }
+                skip = next;
+            }
+            for (int jump : jumps) {
+                arg[jump] = size;
+            }
+            return skip + 1;
+        }
+
+        private void repeat(int body, int min, int max, boolean greedy) throws Unsupported {
+            for (int i = 0; i < min; i++) {
+                sequence(body);
+            }
+            if (max == MAXREPEAT) {
+                int loop = emit(SPLIT, 0, 0);
+                int into = size;
+                sequence(body);
+                emit(JMP, loop, 0);
+                branches(loop, into, size, greedy);
+                return;
+            }
+            int[] splits = new int[Math.max(max - min, 0)];
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = emit(SPLIT, size + 1, 0);
+                sequence(body);
+            }
+            for (int split : splits) {
+                branches(split, split + 1, size, greedy);
+            }
+        }
+
+        private void branches(int split, int into, int out, boolean greedy) {
+            arg[split] = greedy ? into : out;
+            alt[split] = greedy ? out : into;
+        }
+
+        /**
+         * Returns whether the sequence at pidx can match the empty string.
+         */
+        private boolean matchesEmpty(int pidx) throws Unsupported {
+            for (;;) {
+                switch (code[pidx]) {
+                    case SRE_STATE.SRE_OP_SUCCESS:
+                    case SRE_STATE.SRE_OP_JUMP:
+                    case SRE_STATE.SRE_OP_MAX_UNTIL:
+                    case SRE_STATE.SRE_OP_MIN_UNTIL:
+                        return true;
+                    case SRE_STATE.SRE_OP_MARK:
+                    case SRE_STATE.SRE_OP_AT:
+                        pidx += 2;
+                        break;
+                    case SRE_STATE.SRE_OP_BRANCH:
+                        boolean empty = false;
+                        int skip = pidx + 1;
+                        while (code[skip] != 0) {
+                            empty |= matchesEmpty(skip + 1);
+                            skip += code[skip];
+                        }
+                        if (!empty) {
+                            return false;
+                        }
+                        pidx = skip + 1;
+                        break;
+                    case SRE_STATE.SRE_OP_REPEAT_ONE:
+                    case SRE_STATE.SRE_OP_MIN_REPEAT_ONE:
+                        if (code[pidx + 2] > 0 && !matchesEmpty(pidx + 4)) {
+                            return false;
+                        }
+                        pidx += 1 + code[pidx + 1];
+                        break;
+                    case SRE_STATE.SRE_OP_REPEAT:
+                        if (code[pidx + 2] > 0 && !matchesEmpty(pidx + 4)) {
+                            return false;
+                        }
+                        pidx += 2 + code[pidx + 1];
+                        break;
+                    default:
+                        // Anything else reads a character, or is turned down by sequence
+                        return false;
+                }
+            }
+        }
+    }
+}
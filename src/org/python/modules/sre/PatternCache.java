@@ -0,0 +1,113 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules.sre;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.python.core.Options;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PyUnicode;
+
+/**
+ * A process wide cache of the regular expressions compiled by sre_compile, so that a pattern
+ * compiled again with the same flags, by this interpreter or any other, is handed out without
+ * being parsed and compiled again.
+ * <p>
+ * Entries are keyed by the pattern's text, whether it's a str or unicode, and the flags asked
+ * for. The least recently used entry is dropped once there are more than
+ * {@link Options#patternCacheSize}. Patterns of str and unicode subclasses, which may change how
+ * they're parsed, and patterns compiled with SRE_FLAG_DEBUG, which prints as it parses, aren't
+ * cached.
+ */
+public class PatternCache {
+
+    /** sre_constants.SRE_FLAG_DEBUG, which the engine itself never sees. */
+    private static final int SRE_FLAG_DEBUG = 128;
+
+    private static final Map<Key, PatternObject> cache =
+            new LinkedHashMap<Key, PatternObject>(16, 0.75f, true) {
+
+        protected boolean removeEldestEntry(Map.Entry<Key, PatternObject> eldest) {
+            return size() > Options.patternCacheSize;
+        }
+    };
+
+    private PatternCache() {}
+
+    /**
+     * Returns the pattern compiled from pattern with flags, or null if there is none.
+     */
+    public static PatternObject get(PyObject pattern, int flags) {
+        if (!cacheable(pattern, flags)) {
+            return null;
+        }
+        synchronized (cache) {
+            return cache.get(new Key(pattern, flags));
+        }
+    }
+
+    /**
+     * Keeps compiled as the pattern compiled from pattern with flags.
+     */
+    public static void put(PyObject pattern, int flags, PatternObject compiled) {
+        if (!cacheable(pattern, flags)) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(new Key(pattern, flags), compiled);
+        }
+    }
+
+    /**
+     * Returns the number of patterns cached.
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Drops all the cached patterns.
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static boolean cacheable(PyObject pattern, int flags) {
+        Class<?> type = pattern.getClass();
+        return Options.patternCacheSize > 0 && (flags & SRE_FLAG_DEBUG) == 0
+                && (type == PyString.class || type == PyUnicode.class);
+    }
+
+    private static class Key {
+
+        private final String pattern;
+
+        private final boolean unicode;
+
+        private final int flags;
+
+        Key(PyObject pattern, int flags) {
+            this.pattern = pattern.toString();
+            unicode = pattern instanceof PyUnicode;
+            this.flags = flags;
+        }
+
+        public int hashCode() {
+            return (pattern.hashCode() * 31 + flags) * 2 + (unicode ? 1 : 0);
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return flags == other.flags && unicode == other.unicode
+                    && pattern.equals(other.pattern);
+        }
+    }
+}
@@ -27,6 +27,8 @@ public class PatternObject extends PyObject {
     public int flags;
     org.python.core.PyObject indexgroup;
     public int codesize;
+    Prefilter prefilter; /* literals to search for, or null */
+    NFA nfa; /* the linear time matcher, or null to backtrack */
 
 
     public PatternObject(PyString pattern, int flags, int[] code,
@@ -40,6 +42,28 @@ public class PatternObject extends PyObject {
         this.groups  = groups;
         this.groupindex = groupindex;
         this.indexgroup = indexgroup;
+        this.prefilter = Prefilter.of(code);
+        if (Options.linearRegex)
+            this.nfa = NFA.compile(code, prefilter);
+    }
+
+    /**
+     * Matches at state.start, with the NFA if the pattern has one.
+     */
+    int match(SRE_STATE state) {
+        if (nfa != null)
+            return nfa.match(state);
+        state.ptr = state.start;
+        return state.SRE_MATCH(code, 0, 1);
+    }
+
+    /**
+     * Searches from state.start, with the NFA if the pattern has one.
+     */
+    int search(SRE_STATE state) {
+        if (nfa != null)
+            return nfa.search(state);
+        return state.SRE_SEARCH(code, 0, prefilter);
     }
 
     public MatchObject match(PyObject[] args, String[] kws) {
@@ -50,8 +74,7 @@ public class PatternObject extends PyObject {
         int end = ap.getInt(2, string.__len__());
         SRE_STATE state = new SRE_STATE(string, start, end, flags);
 
-        state.ptr = state.start;
-        int status = state.SRE_MATCH(code, 0, 1);
+        int status = match(state);
 
         return _pattern_new_match(state, string, status);
     }
@@ -65,7 +88,7 @@ public class PatternObject extends PyObject {
 
         SRE_STATE state = new SRE_STATE(string, start, end, flags);
 
-        int status = state.SRE_SEARCH(code, 0);
+        int status = search(state);
 
         return _pattern_new_match(state, string, status);
     }
@@ -126,7 +149,7 @@ public class PatternObject extends PyObject {
         while (count == 0 || n < count) {
             state.state_reset();
             state.ptr = state.start;
-            int status = state.SRE_SEARCH(code, 0);
+            int status = search(state);
             if (status <= 0) {
                 if (status == 0)
                     break;
@@ -196,7 +219,7 @@ public class PatternObject extends PyObject {
         while (maxsplit == 0 || n < maxsplit) {
             state.state_reset();
             state.ptr = state.start;
-            int status = state.SRE_SEARCH(code, 0);
+            int status = search(state);
             if (status <= 0) {
                 if (status == 0)
                     break;
@@ -251,7 +274,7 @@ public class PatternObject extends PyObject {
         while (state.start <= state.end) {
             state.state_reset();
             state.ptr = state.start;
-            int status = state.SRE_SEARCH(code, 0);
+            int status = search(state);
             if (status > 0) {
                 PyObject item;
 
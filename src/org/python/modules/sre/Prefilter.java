@@ -0,0 +1,137 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules.sre;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The literals a pattern's matches must contain, read once from its code so that
+ * {@link SRE_STATE#SRE_SEARCH} can find candidates, and give up on strings that can't match, with
+ * String.indexOf rather than trying SRE_MATCH at every position.
+ * <p>
+ * Only the top level of the code is read: a literal inside a branch, repeat or assertion isn't
+ * required, and reading stops at the first operator it doesn't know how to step over.
+ */
+class Prefilter {
+
+    /** The literal prefix from the INFO block, if it's longer than a character. */
+    final String prefix;
+
+    /** The other literals every match contains, longest first. */
+    final String[] literals;
+
+    private Prefilter(String prefix, String[] literals) {
+        this.prefix = prefix;
+        this.literals = literals;
+    }
+
+    /**
+     * Returns the prefilter for code, or null if it has no literals to look for.
+     */
+    static Prefilter of(int[] code) {
+        String prefix = null;
+        int pidx = 0;
+        if (code.length > 0 && code[0] == SRE_STATE.SRE_OP_INFO) {
+            if ((code[2] & SRE_STATE.SRE_INFO_PREFIX) != 0 && code[5] > 1) {
+                prefix = literal(code, 7, code[5]);
+            }
+            pidx = 1 + code[1];
+        }
+
+        List<String> literals = new ArrayList<String>();
+        StringBuilder run = new StringBuilder();
+        // A run at the very start is already searched for through the INFO prefix
+        boolean leading = true;
+        while (pidx < code.length) {
+            int op = code[pidx];
+            if (op == SRE_STATE.SRE_OP_LITERAL) {
+                if (!Character.isValidCodePoint(code[pidx + 1])) {
+                    break;
+                }
+                run.appendCodePoint(code[pidx + 1]);
+                pidx += 2;
+                continue;
+            }
+            if (op != SRE_STATE.SRE_OP_MARK) {
+                if (run.length() > 0 && !leading) {
+                    literals.add(run.toString());
+                }
+                run.setLength(0);
+                leading = false;
+            }
+            int next = next(code, pidx);
+            if (next < 0) {
+                break;
+            }
+            pidx = next;
+        }
+        if (run.length() > 0 && !leading) {
+            literals.add(run.toString());
+        }
+
+        if (prefix == null && literals.isEmpty()) {
+            return null;
+        }
+        Collections.sort(literals, new Comparator<String>() {
+
+            public int compare(String a, String b) {
+                return b.length() - a.length();
+            }
+        });
+        return new Prefilter(prefix, literals.toArray(new String[literals.size()]));
+    }
+
+    /**
+     * Returns the index of the operator after the one at pidx in the same sequence, or -1 if it
+     * ends the sequence or isn't known.
+     */
+    private static int next(int[] code, int pidx) {
+        switch (code[pidx]) {
+            case SRE_STATE.SRE_OP_ANY:
+            case SRE_STATE.SRE_OP_ANY_ALL:
+                return pidx + 1;
+            case SRE_STATE.SRE_OP_MARK:
+            case SRE_STATE.SRE_OP_NOT_LITERAL:
+            case SRE_STATE.SRE_OP_LITERAL_IGNORE:
+            case SRE_STATE.SRE_OP_NOT_LITERAL_IGNORE:
+            case SRE_STATE.SRE_OP_AT:
+            case SRE_STATE.SRE_OP_CATEGORY:
+            case SRE_STATE.SRE_OP_GROUPREF:
+            case SRE_STATE.SRE_OP_GROUPREF_IGNORE:
+                return pidx + 2;
+            case SRE_STATE.SRE_OP_IN:
+            case SRE_STATE.SRE_OP_IN_IGNORE:
+            case SRE_STATE.SRE_OP_REPEAT_ONE:
+            case SRE_STATE.SRE_OP_MIN_REPEAT_ONE:
+            case SRE_STATE.SRE_OP_ASSERT:
+            case SRE_STATE.SRE_OP_ASSERT_NOT:
+                /* <OP> <skip> ... tail */
+                return pidx + 1 + code[pidx + 1];
+            case SRE_STATE.SRE_OP_REPEAT:
+                /* <REPEAT> <skip> <1=min> <2=max> item <UNTIL> tail */
+                return pidx + 2 + code[pidx + 1];
+            case SRE_STATE.SRE_OP_BRANCH:
+                /* <BRANCH> <0=skip> code <JUMP> ... <NULL> tail */
+                int skip = pidx + 1;
+                while (code[skip] != 0) {
+                    skip += code[skip];
+                }
+                return skip + 1;
+            default:
+                return -1;
+        }
+    }
+
+    private static String literal(int[] code, int start, int length) {
+        StringBuilder literal = new StringBuilder(length);
+        for (int i = start; i < start + length; i++) {
+            if (!Character.isValidCodePoint(code[i])) {
+                return null;
+            }
+            literal.appendCodePoint(code[i]);
+        }
+        return literal.toString();
+    }
+}
@@ -16,7 +16,10 @@
 // Last updated to _sre.c: 2.52
 
 package org.python.modules.sre;
+import java.util.Arrays;
+
 import org.python.core.PyString;
+import org.python.core.PyUnicode;
 
 public class SRE_STATE {
     
@@ -311,13 +314,13 @@ for line in sys.stdin:
             return ptr == beginning;
 
         case SRE_AT_BEGINNING_LINE:
-            return (ptr == beginning || SRE_IS_LINEBREAK(str[ptr-1]));
+            return (ptr == beginning || SRE_IS_LINEBREAK(ch(ptr-1)));
 
         case SRE_AT_END:
-            return (ptr+1 == end && SRE_IS_LINEBREAK(str[ptr])) || ptr == end;
+            return (ptr+1 == end && SRE_IS_LINEBREAK(ch(ptr))) || ptr == end;
 
         case SRE_AT_END_LINE:
-            return ptr == end || SRE_IS_LINEBREAK(str[ptr]);
+            return ptr == end || SRE_IS_LINEBREAK(ch(ptr));
 
         case SRE_AT_END_STRING:
             return ptr == end;
@@ -326,24 +329,24 @@ for line in sys.stdin:
             /* word boundary */
             if (beginning == end)
                 return false;
-            thatp = (ptr > beginning) ? SRE_IS_WORD(str[ptr-1]) : false;
-            thisp = (ptr < end) ? SRE_IS_WORD(str[ptr]) : false;
+            thatp = (ptr > beginning) ? SRE_IS_WORD(ch(ptr-1)) : false;
+            thisp = (ptr < end) ? SRE_IS_WORD(ch(ptr)) : false;
             return thisp != thatp;
 
         case SRE_AT_NON_BOUNDARY:
             /* word non-boundary */
             if (beginning == end)
                 return false;
-            thatp = (ptr > beginning) ? SRE_IS_WORD(str[ptr-1]) : false;
-            thisp = (ptr < end) ? SRE_IS_WORD(str[ptr]) : false;
+            thatp = (ptr > beginning) ? SRE_IS_WORD(ch(ptr-1)) : false;
+            thisp = (ptr < end) ? SRE_IS_WORD(ch(ptr)) : false;
             return thisp == thatp;
 
         case SRE_AT_LOC_BOUNDARY:
         case SRE_AT_UNI_BOUNDARY:
             if (beginning == end)
                 return false;
-            thatp = (ptr > beginning) ? SRE_LOC_IS_WORD(str[ptr-1]) : false;
-            thisp = (ptr < end) ? SRE_LOC_IS_WORD(str[ptr]) : false;
+            thatp = (ptr > beginning) ? SRE_LOC_IS_WORD(ch(ptr-1)) : false;
+            thisp = (ptr < end) ? SRE_LOC_IS_WORD(ch(ptr)) : false;
             return thisp != thatp;
 
         case SRE_AT_LOC_NON_BOUNDARY:
@@ -351,8 +354,8 @@ for line in sys.stdin:
             /* word non-boundary */
             if (beginning == end)
                 return false;
-            thatp = (ptr > beginning) ? SRE_LOC_IS_WORD(str[ptr-1]) : false;
-            thisp = (ptr < end) ? SRE_LOC_IS_WORD(str[ptr]) : false;
+            thatp = (ptr > beginning) ? SRE_LOC_IS_WORD(ch(ptr-1)) : false;
+            thisp = (ptr < end) ? SRE_LOC_IS_WORD(ch(ptr)) : false;
             return thisp == thatp;
         }
 
@@ -465,14 +468,14 @@ for line in sys.stdin:
         case SRE_OP_IN:
             /* repeated set */
             TRACE(pidx, ptr, "COUNT IN");
-            while (ptr < end && SRE_CHARSET(pattern, pidx + 2, str[ptr]))
+            while (ptr < end && SRE_CHARSET(pattern, pidx + 2, ch(ptr)))
                 ptr++;
             break;
             
         case SRE_OP_ANY:
             /* repeated dot wildcard. */
             TRACE(pidx, ptr, "COUNT ANY");
-            while (ptr < end && !SRE_IS_LINEBREAK(str[ptr]))
+            while (ptr < end && !SRE_IS_LINEBREAK(ch(ptr)))
                 ptr++;
             break;
 
@@ -487,7 +490,7 @@ for line in sys.stdin:
             /* repeated literal */
             chr = pattern[pidx+1];
             TRACE(pidx, ptr, "COUNT LITERAL " + chr);
-            while (ptr < end && str[ptr] == chr)
+            while (ptr < end && ch(ptr) == chr)
                 ptr++;
             break;
 
@@ -495,7 +498,7 @@ for line in sys.stdin:
             /* repeated literal */
             chr = pattern[pidx+1];
             TRACE(pidx, ptr, "COUNT LITERAL_IGNORE " + (int) chr);
-            while (ptr < end && lower(str[ptr]) == chr)
+            while (ptr < end && lower(ch(ptr)) == chr)
                 ptr++;
             break;
 
@@ -503,7 +506,7 @@ for line in sys.stdin:
             /* repeated non-literal */
             chr = pattern[pidx+1];
             TRACE(pidx, ptr, "COUNT NOT_LITERAL " + (int) chr);
-            while (ptr < end && str[ptr] != chr)
+            while (ptr < end && ch(ptr) != chr)
                 ptr++;
             break;
 
@@ -511,7 +514,7 @@ for line in sys.stdin:
             /* repeated non-literal */
             chr = pattern[pidx+1];
             TRACE(pidx, ptr, "COUNT NOT_LITERAL_IGNORE " + (int) chr);
-            while (ptr < end && lower(str[ptr]) != chr)
+            while (ptr < end && lower(ch(ptr)) != chr)
                 ptr++;
             break;
 
@@ -579,7 +582,7 @@ for line in sys.stdin:
                 /* <LITERAL> <code> */
                 TRACE(pidx, ptr, "LITERAL " + (int) pattern[pidx]);
 
-                if (ptr >= end || str[ptr] != pattern[pidx])
+                if (ptr >= end || ch(ptr) != pattern[pidx])
                     return 0;
                 pidx++;
                 ptr++;
@@ -589,7 +592,7 @@ for line in sys.stdin:
                 /* match anything that is not literal character */
                 /* args: <code> */
                 TRACE(pidx, ptr, "NOT_LITERAL " + (int) pattern[pidx]);
-                if (ptr >= end || str[ptr] == pattern[pidx])
+                if (ptr >= end || ch(ptr) == pattern[pidx])
                     return 0;
                 pidx++;
                 ptr++;
@@ -615,7 +618,7 @@ for line in sys.stdin:
                 /* <CATEGORY> <code> */
                 TRACE(pidx, ptr, "CATEGORY " + (int)pattern[pidx]);
 
-                if (ptr >= end || !sre_category((int)pattern[pidx], str[ptr]))
+                if (ptr >= end || !sre_category((int)pattern[pidx], ch(ptr)))
                     return 0;
 
                 pidx++;
@@ -625,7 +628,7 @@ for line in sys.stdin:
             case SRE_OP_ANY:
                 /* match anything */
                 TRACE(pidx, ptr, "ANY");
-                if (ptr >= end || SRE_IS_LINEBREAK(str[ptr]))
+                if (ptr >= end || SRE_IS_LINEBREAK(ch(ptr)))
                     return 0;
                 ptr++;
                 break;
@@ -643,7 +646,7 @@ for line in sys.stdin:
                 /* match set member (or non_member) */
                 /* <IN> <skip> <set> */
                 TRACE(pidx, ptr, "IN");
-                if (ptr >= end || !SRE_CHARSET(pattern, pidx + 1, str[ptr]))
+                if (ptr >= end || !SRE_CHARSET(pattern, pidx + 1, ch(ptr)))
                     return 0;
                 pidx += pattern[pidx];
                 ptr++;
@@ -651,7 +654,7 @@ for line in sys.stdin:
 
             case SRE_OP_LITERAL_IGNORE:
                 TRACE(pidx, ptr, "LITERAL_IGNORE " + (int) pattern[pidx]);
-                if (ptr >= end || lower(str[ptr]) != lower(pattern[pidx]))
+                if (ptr >= end || lower(ch(ptr)) != lower(pattern[pidx]))
                     return 0;
                 pidx++;
                 ptr++;
@@ -659,7 +662,7 @@ for line in sys.stdin:
 
             case SRE_OP_NOT_LITERAL_IGNORE:
                 TRACE(pidx, ptr, "NOT_LITERAL_IGNORE " + (int) pattern[pidx]);
-                if (ptr >= end || lower(str[ptr]) == lower(pattern[pidx]))
+                if (ptr >= end || lower(ch(ptr)) == lower(pattern[pidx]))
                     return 0;
                 pidx++;
                 ptr++;
@@ -668,7 +671,7 @@ for line in sys.stdin:
             case SRE_OP_IN_IGNORE:
                 TRACE(pidx, ptr, "IN_IGNORE");
                 if (ptr >= end ||
-                        !SRE_CHARSET(pattern, pidx + 1, lower(str[ptr])))
+                        !SRE_CHARSET(pattern, pidx + 1, lower(ch(ptr))))
                     return 0;
                 pidx += pattern[pidx];
                 ptr++;
@@ -694,12 +697,12 @@ for line in sys.stdin:
                     }
                     for(; pattern[pidx] != 0; pidx += pattern[pidx]) {
                         if(pattern[pidx + 1] == SRE_OP_LITERAL
-                                && (ptr >= end || str[ptr] != pattern[pidx + 2]))
+                                && (ptr >= end || ch(ptr) != pattern[pidx + 2]))
                             continue;
                         if(pattern[pidx + 1] == SRE_OP_IN
                                 && (ptr >= end || !SRE_CHARSET(pattern,
                                                                pidx + 3,
-                                                               str[ptr])))
+                                                               ch(ptr))))
                             continue;
                         this.ptr = ptr;
                         i = SRE_MATCH(pattern, pidx + 1, level + 1);
@@ -759,7 +762,7 @@ for line in sys.stdin:
                     chr = pattern[pidx + pattern[pidx]+1];
                     for (;;) {
                         while (count >= mincount &&
-                               (ptr >= end || str[ptr] != chr)) {
+                               (ptr >= end || ch(ptr) != chr)) {
                             ptr--;
                             count--;
                         }
@@ -993,7 +996,7 @@ for line in sys.stdin:
                 if (p == -1 || e == -1 || e < p)
                     return 0;
                 while (p < e) {
-                    if (ptr >= end || str[ptr] != str[p])
+                    if (ptr >= end || ch(ptr) != ch(p))
                         return 0;
                     p++;
                     ptr++;
@@ -1010,7 +1013,7 @@ for line in sys.stdin:
                 if (p == -1 || e == -1 || e < p)
                     return 0;
                 while (p < e) {
-                    if (ptr >= end || lower(str[ptr]) != lower(str[p]))
+                    if (ptr >= end || lower(ch(ptr)) != lower(ch(p)))
                         return 0;
                     p++;
                     ptr++;
@@ -1083,6 +1086,16 @@ for line in sys.stdin:
     }
     
     int SRE_SEARCH(int[] pattern, int pidx) {
+        return SRE_SEARCH(pattern, pidx, null);
+    }
+
+    /**
+     * Searches like SRE_SEARCH(pattern, pidx), but when the string is read directly looks for
+     * the literals in prefilter, which must have been read from pattern, with String.indexOf:
+     * the prefix to find where matches may start, and the others to give up as soon as one of
+     * them doesn't occur in the rest of the string.
+     */
+    int SRE_SEARCH(int[] pattern, int pidx, Prefilter prefilter) {
         int ptr = this.start;
         int end = this.end;
         int status = 0;
@@ -1123,6 +1136,34 @@ for line in sys.stdin:
             pidx += 1 + pattern[pidx+1];
         }
 
+        String required = null;
+        int next = -1;
+        if (prefilter != null && text != null) {
+            for (int i = prefilter.literals.length - 1; i >= 0; i--) {
+                next = find(prefilter.literals[i], ptr);
+                if (next < 0)
+                    return 0;
+            }
+            if (prefilter.literals.length > 0)
+                required = prefilter.literals[0];
+
+            if (prefix_len > 1 && prefilter.prefix != null) {
+                /* find each occurrence of the prefix at once */
+                String prefixText = prefilter.prefix;
+                while ((ptr = find(prefixText, ptr)) >= 0) {
+                    TRACE(pidx, ptr, "SEARCH PREFIX " + prefix_skip + " " + prefix_len);
+                    this.start = ptr;
+                    this.ptr = ptr + prefix_skip;
+                    if ((flags & SRE_INFO_LITERAL) != 0)
+                        return 1; /* we got all of it */
+                    status = SRE_MATCH(pattern, pidx + 2*prefix_skip, 1);
+                    if (status != 0)
+                        return status;
+                    ptr++;
+                }
+                return 0;
+            }
+        }
 
         if (prefix_len > 1) {
             /* pattern starts with a known prefix.  use the overlap
@@ -1131,7 +1172,7 @@ for line in sys.stdin:
             end = this.end;
             while (ptr < end) {
                 for (;;) {
-                    if (str[ptr] != pattern[prefix+i]) {
+                    if (ch(ptr) != pattern[prefix+i]) {
                         if (i == 0)
                             break;
                         else
@@ -1165,7 +1206,7 @@ for line in sys.stdin:
             int chr = pattern[pidx + 1];
             end = this.end;
             for (;;) {
-                while (ptr < end && str[ptr] != chr)
+                while (ptr < end && ch(ptr) != chr)
                     ptr++;
                 if (ptr == end)
                     return 0;
@@ -1183,7 +1224,7 @@ for line in sys.stdin:
             /* pattern starts with a character from a known set */
             end = this.end;
             for (;;) {
-                while (ptr < end && !SRE_CHARSET(pattern, charset, str[ptr]))
+                while (ptr < end && !SRE_CHARSET(pattern, charset, ch(ptr)))
                     ptr++;
                 if (ptr == end)
                     return 0;
@@ -1199,6 +1240,12 @@ for line in sys.stdin:
         } else {
             /* general case */
             while (ptr <= end) {
+                if (required != null && ptr > next) {
+                    /* no match can start past the last required literal */
+                    next = find(required, ptr);
+                    if (next < 0)
+                        return 0;
+                }
                 TRACE(pidx, ptr, "SEARCH");
                 this.start = this.ptr = ptr++;
                 status = SRE_MATCH(pattern, pidx, 1);
@@ -1218,7 +1265,12 @@ for line in sys.stdin:
     int end; /* end of original string */
 
     /* attributes for the match object */
-    int[] str;
+
+    /** The string matched, read directly when all its characters are in the basic plane. */
+    String text;
+
+    /** The code points of the string matched, only copied out when it has surrogate pairs. */
+    int[] codePoints;
     int pos;
     int endpos;
 
@@ -1246,8 +1298,13 @@ for line in sys.stdin:
     int flags;
 
     public SRE_STATE(PyString str, int start, int end, int flags) {
-        this.str = str.toCodePoints();
+        if (str instanceof PyUnicode && !((PyUnicode)str).isBasicPlane()) {
+            codePoints = str.toCodePoints();
+        } else {
+            text = str.toString();
+        }
         int size = str.__len__();
+        Arrays.fill(mark, -1);
 
         this.charsize = 1;
 
@@ -1303,12 +1360,27 @@ for line in sys.stdin:
         return string.substring(i, j);
     }
 
-    void state_reset() {
-        lastmark = 0;
+    /**
+     * Returns the code point at index i of the string matched.
+     */
+    final int ch(int i) {
+        return codePoints == null ? text.charAt(i) : codePoints[i];
+    }
+
+    /**
+     * Returns the index of the first occurrence of literal in the string from index from that
+     * ends before end, or -1 if there is none. Only for strings read directly.
+     */
+    int find(String literal, int from) {
+        int found = text.indexOf(literal, from);
+        return found < 0 || found + literal.length() > end ? -1 : found;
+    }
 
-        /* FIXME: dynamic! */
-        for (int i = 0; i < mark.length; i++)
+    void state_reset() {
+        /* Marks above lastmark are always unset, so only those up to it need clearing */
+        for (int i = 0; i <= lastmark; i++)
             mark[i] = -1;
+        lastmark = 0;
 
         lastindex = -1;
         repeat = null;
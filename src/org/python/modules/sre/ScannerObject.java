@@ -26,7 +26,7 @@ public class ScannerObject extends PyObject {
         state.state_reset();
         state.ptr = state.start;
 
-        int status = state.SRE_MATCH(pattern.code, 0, 1);
+        int status = pattern.match(state);
         MatchObject match = pattern._pattern_new_match(state, string, status);
 
         if (status == 0 || state.ptr == state.start)
@@ -42,7 +42,7 @@ public class ScannerObject extends PyObject {
         state.state_reset();
         state.ptr = state.start;
 
-        int status = state.SRE_SEARCH(pattern.code, 0);
+        int status = pattern.search(state);
         MatchObject match = pattern._pattern_new_match(state, string, status);
 
         if (status == 0 || state.ptr == state.start)
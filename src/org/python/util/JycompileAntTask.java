@@ -0,0 +1,81 @@
+/* Copyright (c) Jython Developers */
+package org.python.util;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.taskdefs.MatchingTask;
+import org.python.core.PySystemState;
+
+/**
+ * Compiles the Python modules under srcdir to $py.class files next to them, on a pool of
+ * threads, with {@link ParallelCompiler}. The task is a directory based task, so includes
+ * and excludes select the modules; by default all *.py files under srcdir are compiled.
+ *
+ * <pre>
+ * &lt;taskdef name="jycompile" classname="org.python.util.JycompileAntTask"
+ *          classpath="jython.jar"/&gt;
+ * &lt;jycompile srcdir="Lib" threads="4"/&gt;
+ * </pre>
+ */
+public class JycompileAntTask extends MatchingTask {
+
+    protected File srcDir;
+
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    protected boolean force;
+
+    protected boolean failOnError = true;
+
+    public JycompileAntTask() {
+        setIncludes("**/*.py");
+    }
+
+    public void setSrcdir(File aFile) {
+        srcDir = aFile;
+    }
+
+    public void setThreads(int aValue) {
+        threads = aValue;
+    }
+
+    public void setForce(boolean aValue) {
+        force = aValue;
+    }
+
+    public void setFailonerror(boolean aValue) {
+        failOnError = aValue;
+    }
+
+    public void execute() throws BuildException {
+        if (srcDir == null || !srcDir.isDirectory()) {
+            throw new BuildException("srcdir must be a directory", getLocation());
+        }
+        Properties props = new Properties();
+        props.setProperty(PySystemState.PYTHON_CACHEDIR_SKIP, "true");
+        PySystemState.initialize(PySystemState.getBaseProperties(), props, new String[] {""});
+
+        ParallelCompiler compiler = new ParallelCompiler(Math.max(1, threads), force);
+        DirectoryScanner scanner = getDirectoryScanner(srcDir);
+        for (String name : scanner.getIncludedFiles()) {
+            compiler.submitModule(new File(srcDir, name));
+        }
+        int compiled;
+        try {
+            compiled = compiler.finish();
+        } catch (InterruptedException e) {
+            throw new BuildException(e, getLocation());
+        }
+        for (String error : compiler.getErrors()) {
+            log(error);
+        }
+        log("Compiled " + compiled + " modules in " + srcDir);
+        if (failOnError && !compiler.getErrors().isEmpty()) {
+            throw new BuildException(compiler.getErrors().size() + " modules failed to compile",
+                                     getLocation());
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/* Copyright (c) Jython Developers */
+package org.python.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.python.core.ModuleImage;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PySystemState;
+import org.python.core.imp;
+import org.python.modules._py_compile;
+
+/**
+ * Compiles all the Python modules under a set of directories to $py.class files ahead of
+ * time, on a pool of threads, so that their first import doesn't have to. Modules whose
+ * $py.class is newer than the source and of the current API version are skipped unless
+ * forced.
+ *
+ * Given a {@link ModuleImage.Builder} the modules are instead compiled into it, under their
+ * names relative to the directories they are found in, which act as sys.path entries.
+ *
+ * <pre>
+ * java org.python.util.ParallelCompiler [-f] [-q] [-j threads] [-o image] [directory ...]
+ * </pre>
+ *
+ * With no directories the directories on sys.path are compiled.
+ */
+public class ParallelCompiler {
+
+    private final ExecutorService pool;
+
+    private final boolean force;
+
+    private final ModuleImage.Builder image;
+
+    /** The names of the modules submitted for the image. */
+    private final Set<String> names = new HashSet<String>();
+
+    private final AtomicInteger compiled = new AtomicInteger();
+
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * @param threads the number of threads to compile on
+     * @param force if true, compile modules whose $py.class is up to date too
+     */
+    public ParallelCompiler(int threads, boolean force) {
+        this(threads, force, null);
+    }
+
+    /**
+     * @param threads the number of threads to compile on
+     * @param force if true, compile modules whose $py.class is up to date too
+     * @param image if not null, the image to compile the modules into instead of $py.class files
+     */
+    public ParallelCompiler(int threads, boolean force, ModuleImage.Builder image) {
+        pool = Executors.newFixedThreadPool(threads);
+        this.force = force;
+        this.image = image;
+    }
+
+    /**
+     * Walks dir, queueing every module in it and its subdirectories for compilation. When
+     * compiling into an image only the modules importable with dir on sys.path are queued, and
+     * modules already queued under the same name from an earlier directory are skipped.
+     */
+    public void submitTree(File dir) {
+        submitTree(dir, "");
+    }
+
+    private void submitTree(File dir, String prefix) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                if (image == null) {
+                    submitTree(file, prefix);
+                } else if (new File(file, "__init__.py").isFile()) {
+                    submitTree(file, prefix + name + ".");
+                }
+            } else if (name.endsWith(".py")) {
+                if (image == null) {
+                    submitModule(file);
+                } else if (name.equals("__init__.py")) {
+                    if (prefix.length() > 0) {
+                        submitImageModule(file, prefix.substring(0, prefix.length() - 1), true);
+                    }
+                } else {
+                    submitImageModule(file, prefix + name.substring(0, name.length() - 3), false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the module source for compilation, unless its $py.class is up to date.
+     */
+    public void submitModule(final File source) {
+        if (isCurrent(source)) {
+            return;
+        }
+        pool.execute(new Runnable() {
+
+            public void run() {
+                compile(source);
+            }
+        });
+    }
+
+    private void submitImageModule(final File source, final String name, final boolean pkg) {
+        if (!names.add(name)) {
+            return;
+        }
+        pool.execute(new Runnable() {
+
+            public void run() {
+                String path = source.getPath();
+                try {
+                    image.add(name, pkg, path, imp.compileSource(name, source, path, null));
+                    compiled.incrementAndGet();
+                } catch (Throwable t) {
+                    // Errors such as StackOverflowError are the module's, not the pool's
+                    errors.add(path + ": " + t);
+                }
+            }
+        });
+    }
+
+    private boolean isCurrent(File source) {
+        if (force) {
+            return false;
+        }
+        File compiledFile = new File(imp.makeCompiledFilename(source.getPath()));
+        if (compiledFile.lastModified() < source.lastModified()) {
+            return false;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(compiledFile);
+            return imp.readCode(source.getPath(), in, true) != null;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void compile(File source) {
+        String path = source.getPath();
+        String compiledPath = imp.makeCompiledFilename(path);
+        try {
+            if (_py_compile.compile(path, compiledPath, path)) {
+                compiled.incrementAndGet();
+            } else {
+                errors.add(path + ": unable to write '" + compiledPath + "'");
+            }
+        } catch (Throwable t) {
+            errors.add(path + ": " + t);
+        }
+    }
+
+    /**
+     * Waits for all queued modules to be compiled, and stops the threads.
+     *
+     * @return the number of modules compiled
+     */
+    public int finish() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        return compiled.get();
+    }
+
+    /**
+     * Returns a message for each module that failed to compile.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean force = false;
+        boolean quiet = false;
+        String imageFile = null;
+        List<File> dirs = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-f")) {
+                force = true;
+            } else if (args[i].equals("-q")) {
+                quiet = true;
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                imageFile = args[++i];
+            } else if (args[i].startsWith("-")) {
+                System.err.println("usage: ParallelCompiler [-f] [-q] [-j threads] [-o image] "
+                                   + "[directory ...]");
+                System.exit(2);
+            } else {
+                dirs.add(new File(args[i]));
+            }
+        }
+
+        Properties props = new Properties();
+        props.setProperty(PySystemState.PYTHON_CACHEDIR_SKIP, "true");
+        PySystemState.initialize(PySystemState.getBaseProperties(), props, new String[] {""});
+        if (dirs.isEmpty()) {
+            PySystemState sys = Py.getSystemState();
+            for (PyObject entry : sys.path.asIterable()) {
+                dirs.add(new File(sys.getPath(entry.toString())));
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        ModuleImage.Builder image = imageFile == null ? null : new ModuleImage.Builder();
+        ParallelCompiler compiler = new ParallelCompiler(Math.max(1, threads), force, image);
+        for (File dir : dirs) {
+            compiler.submitTree(dir);
+        }
+        int compiled = compiler.finish();
+        if (image != null) {
+            image.write(new File(imageFile));
+        }
+        for (String error : compiler.getErrors()) {
+            System.err.println(error);
+        }
+        if (!quiet) {
+            System.out.println("compiled " + compiled + " modules in "
+                               + (System.currentTimeMillis() - start) + " ms");
+        }
+        System.exit(compiler.getErrors().isEmpty() ? 0 : 1);
+    }
+}
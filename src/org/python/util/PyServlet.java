@@ -3,6 +3,15 @@ package org.python.util;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.servlet.*;
 import javax.servlet.http.*;
 import org.python.core.*;
@@ -57,13 +66,33 @@ import org.python.core.*;
  * &lt;/web-app>
  *
  * </pre>
+ * <p>
+ * Each Jython servlet is loaded once, however many requests for it arrive while it loads. By
+ * default the modification time of its file is checked on every request; the
+ * <code>pyservlet.checkInterval</code> parameter sets the milliseconds to wait between checks
+ * instead, or turns them off if negative. A servlet whose file changed is loaded again on a
+ * background thread, the old one serving requests until the new one is ready, unless
+ * <code>pyservlet.backgroundReload</code> is false, in which case the request that noticed the
+ * change loads it.
  */
 
 public class PyServlet extends HttpServlet {
+    public static final String CHECK_INTERVAL = "pyservlet.checkInterval";
+    public static final String BACKGROUND_RELOAD = "pyservlet.backgroundReload";
+
     private PythonInterpreter interp;
-    private Hashtable cache = new Hashtable();
+    private ConcurrentMap<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
     private String rootPath;
 
+    /**
+     * The milliseconds between checks whether the file of a servlet changed: 0 checks on every
+     * request, a negative value never.
+     */
+    private long checkInterval;
+
+    /** Reloads changed servlets, or null to reload them on the request thread. */
+    private ExecutorService reloader;
+
 
     public void init() {
         rootPath = getServletContext().getRealPath("/");
@@ -94,6 +123,17 @@ public class PyServlet extends HttpServlet {
                                              File.separator + "lib");
         }
 
+        checkInterval = Long.parseLong(props.getProperty(CHECK_INTERVAL, "0").trim());
+        if (Boolean.valueOf(props.getProperty(BACKGROUND_RELOAD, "true").trim())) {
+            reloader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PyServlet reloader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
         PySystemState.initialize(baseProps, props, new String[0]);
         reset();
 
@@ -139,7 +179,7 @@ public class PyServlet extends HttpServlet {
             throw new ServletException("No python servlet found at:" + spath);
     }
 
-    public void reset() {
+    public synchronized void reset() {
         destroyCache();
         interp = new PythonInterpreter(null, new PySystemState());
         cache.clear();
@@ -151,23 +191,53 @@ public class PyServlet extends HttpServlet {
         sys.path.append(new PyString(modulesDir));
     }
 
-    private synchronized HttpServlet getServlet(String path)
+    private HttpServlet getServlet(String path)
         throws ServletException, IOException
     {
-        CacheEntry entry = (CacheEntry) cache.get(path);
-        if (entry == null)
-            return loadServlet(path);
-        File file = new File(path);
-        if (file.lastModified() > entry.date)
-            return loadServlet(path);
+        CacheEntry entry = cache.get(path);
+        if (entry == null) {
+            CacheEntry loading = new CacheEntry(path);
+            entry = cache.putIfAbsent(path, loading);
+            if (entry == null) {
+                entry = loading;
+                entry.load.run();
+            }
+        }
+        entry.get();
+        if (entry.changed() && entry.reloading.compareAndSet(false, true)) {
+            reload(entry);
+        }
         return entry.servlet;
     }
 
-    private HttpServlet loadServlet(String path)
+    private void reload(final CacheEntry entry)
+        throws ServletException, IOException
+    {
+        if (reloader == null) {
+            try {
+                entry.reload();
+            } finally {
+                entry.reloading.set(false);
+            }
+            return;
+        }
+        reloader.execute(new Runnable() {
+            public void run() {
+                try {
+                    entry.reload();
+                } catch (Exception e) {
+                    log("Reloading " + entry.path + " failed, still serving the old version", e);
+                } finally {
+                    entry.reloading.set(false);
+                }
+            }
+        });
+    }
+
+    private synchronized HttpServlet loadServlet(String path)
         throws ServletException, IOException
     {
         HttpServlet servlet = null;
-        File file = new File(path);
 
         // Extract servlet name from path (strip ".../" and ".py")
         int start = path.lastIndexOf(File.separator);
@@ -181,6 +251,7 @@ public class PyServlet extends HttpServlet {
         String name = path.substring(start, end);
 
         try {
+            interp.set("__file__", path);
             interp.execfile(path);
             PyObject cls = interp.get(name);
             if (cls == null) {
@@ -198,30 +269,100 @@ public class PyServlet extends HttpServlet {
         } catch (PyException e) {
             throw new ServletException(e);
         }
-        CacheEntry entry = new CacheEntry(servlet, file.lastModified());
-        cache.put(path, entry);
         return servlet;
     }
 
     public void destroy() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
         destroyCache();
     }
 
     private void destroyCache() {
-        for (Enumeration e = cache.elements(); e.hasMoreElements(); ) {
-            CacheEntry entry = (CacheEntry) e.nextElement();
-            entry.servlet.destroy();
+        for (CacheEntry entry : cache.values()) {
+            if (entry.servlet != null) {
+                entry.servlet.destroy();
+            }
         }
     }
 
-}
+    /**
+     * A servlet loaded from path, or being loaded by whichever request first asked for it.
+     */
+    private class CacheEntry {
+        final String path;
+        final FutureTask<HttpServlet> load;
+        final AtomicBoolean reloading = new AtomicBoolean();
+        volatile HttpServlet servlet;
+        /** The modification time of the file when the servlet was last loaded from it. */
+        volatile long date;
+        /** When the modification time of the file was last checked. */
+        volatile long checked;
+
+        CacheEntry(String path) {
+            this.path = path;
+            load = new FutureTask<HttpServlet>(new Callable<HttpServlet>() {
+                public HttpServlet call() throws Exception {
+                    reload();
+                    return servlet;
+                }
+            });
+        }
 
-class CacheEntry {
-    public long date;
-    public HttpServlet servlet;
+        /**
+         * Loads the servlet again. A failed load isn't retried until the file changes again.
+         */
+        void reload() throws ServletException, IOException {
+            // Read before loading so changes made meanwhile are noticed next time
+            long modified = new File(path).lastModified();
+            checked = System.currentTimeMillis();
+            try {
+                servlet = loadServlet(path);
+            } finally {
+                date = modified;
+            }
+        }
+
+        /**
+         * Waits for the first load of the servlet, dropping this entry if it failed so that the
+         * next request tries again.
+         */
+        HttpServlet get() throws ServletException, IOException {
+            try {
+                return load.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                cache.remove(path, this);
+                Throwable cause = e.getCause();
+                if (cause instanceof ServletException) {
+                    throw (ServletException)cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException)cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new ServletException(cause);
+            }
+        }
 
-    CacheEntry(HttpServlet servlet, long date) {
-        this.servlet=  servlet;
-        this.date = date;
+        /**
+         * Returns whether the file changed since the servlet was loaded, if it's time to check.
+         */
+        boolean changed() {
+            if (checkInterval < 0) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            if (now - checked < checkInterval) {
+                return false;
+            }
+            checked = now;
+            return new File(path).lastModified() > date;
+        }
     }
 }
@@ -135,6 +135,29 @@ public class PythonInterpreter {
         Py.flushLine();
     }
 
+    /**
+     * Compile a string of Python source as a module, for executing with
+     * exec(PyObject). Code compiled from the same source and flags is
+     * shared with the other interpreters in the process.
+     *
+     * @param script the source to compile
+     */
+    public PyCode compile(String script) {
+        return compile(script, "<script>");
+    }
+
+    /**
+     * Compile a string of Python source as a module, for executing with
+     * exec(PyObject).
+     *
+     * @param script the source to compile
+     * @param filename the filename the code reports
+     */
+    public PyCode compile(String script, String filename) {
+        setState();
+        return (PyCode)Py.compile_flags(script, filename, "exec", cflags);
+    }
+
     /**
      * Execute a file of Python source in the local namespace
      *
@@ -0,0 +1,343 @@
+/* Copyright (c) Jython Developers */
+package org.python.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PySystemState;
+
+/**
+ * A pool of PythonInterpreters, each with a PySystemState of its own, for servers that run each
+ * request's script in an interpreter of its own without paying for setting one up every time.
+ * <p>
+ * {@link #borrow} hands out an idle interpreter, making a new one if there is none, and
+ * {@link #release} takes it back. Before an interpreter goes back to the idle interpreters its
+ * __main__ namespace, compiler flags, sys.modules, sys.path, sys.argv, sys.meta_path,
+ * sys.path_hooks, standard streams, display and except hooks, recursion limit and the other
+ * attributes set on sys are restored to what they were when it was made. Override
+ * {@link #create} to prepare interpreters before that state is recorded, for instance by
+ * importing the modules the scripts use, so that they are imported once per interpreter rather
+ * than once per request.
+ * <p>
+ * Only what lives in an interpreter's PySystemState is isolated: the __builtin__ module and
+ * Java classes, with their static state, are shared by every interpreter in the process.
+ *
+ * <pre>
+ * PythonInterpreter interp = pool.borrow();
+ * try {
+ *     interp.exec(script);
+ * } finally {
+ *     pool.release(interp);
+ * }
+ * </pre>
+ */
+public class PythonInterpreterPool {
+
+    private final List<PythonInterpreter> idle = new ArrayList<PythonInterpreter>();
+
+    /** The state to restore of every interpreter made by this pool and not yet discarded. */
+    private final Map<PythonInterpreter, Snapshot> snapshots =
+            new IdentityHashMap<PythonInterpreter, Snapshot>();
+
+    private int maxIdle;
+
+    private boolean resetModules = true;
+
+    private boolean closed;
+
+    private int active, created, borrowed, discarded;
+
+    /**
+     * @param maxIdle the most interpreters to keep while they aren't borrowed; any more are
+     *            dropped when released
+     */
+    public PythonInterpreterPool(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("negative pool size");
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Makes interpreters until count, or the most kept idle if fewer, are waiting to be borrowed,
+     * so that the first requests don't have to.
+     */
+    public void prestart(int count) {
+        while (true) {
+            synchronized (this) {
+                if (closed || idle.size() >= Math.min(count, maxIdle)) {
+                    return;
+                }
+            }
+            PythonInterpreter interp = add();
+            synchronized (this) {
+                if (closed || idle.size() >= maxIdle) {
+                    snapshots.remove(interp);
+                    discarded++;
+                    return;
+                }
+                idle.add(interp);
+            }
+        }
+    }
+
+    /**
+     * Makes a new interpreter for the pool. The state restored on release is recorded after this
+     * returns.
+     */
+    protected PythonInterpreter create() {
+        return new PythonInterpreter(null, new PySystemState());
+    }
+
+    private PythonInterpreter add() {
+        // Making an interpreter switches the current thread to its sys
+        PySystemState current = Py.getSystemState();
+        try {
+            PythonInterpreter interp = create();
+            Snapshot snapshot = new Snapshot(interp);
+            synchronized (this) {
+                snapshots.put(interp, snapshot);
+                created++;
+            }
+            return interp;
+        } finally {
+            Py.setSystemState(current);
+        }
+    }
+
+    /**
+     * Returns an idle interpreter, or a new one if none is idle. Every interpreter borrowed must
+     * be released exactly once.
+     */
+    public PythonInterpreter borrow() {
+        PythonInterpreter interp = null;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("pool is closed");
+            }
+            borrowed++;
+            active++;
+            if (!idle.isEmpty()) {
+                interp = idle.remove(idle.size() - 1);
+            }
+        }
+        if (interp == null) {
+            try {
+                interp = add();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    active--;
+                }
+                throw e;
+            }
+        }
+        synchronized (this) {
+            snapshots.get(interp).lent = true;
+        }
+        return interp;
+    }
+
+    /**
+     * Takes back interp, running its sys.exitfunc and resetting it for the next borrower. If the
+     * reset fails, too many interpreters are idle or the pool is closed, interp is dropped.
+     */
+    public void release(PythonInterpreter interp) {
+        Snapshot snapshot;
+        boolean reset;
+        synchronized (this) {
+            snapshot = snapshots.get(interp);
+            if (snapshot == null || !snapshot.lent) {
+                throw new IllegalArgumentException("interpreter not borrowed from this pool");
+            }
+            snapshot.lent = false;
+            active--;
+            reset = resetModules;
+        }
+        PySystemState current = Py.setSystemState(interp.systemState);
+        try {
+            try {
+                interp.cleanup();
+            } catch (PyException pye) {
+                // A script leaving sys.stdout broken doesn't stop the reset
+            }
+            snapshot.restore(interp, reset);
+        } catch (RuntimeException e) {
+            discard(interp);
+            return;
+        } finally {
+            Py.setSystemState(current);
+        }
+        synchronized (this) {
+            if (!closed && idle.size() < maxIdle) {
+                idle.add(interp);
+                return;
+            }
+        }
+        discard(interp);
+    }
+
+    private synchronized void discard(PythonInterpreter interp) {
+        snapshots.remove(interp);
+        discarded++;
+    }
+
+    /**
+     * Drops the idle interpreters. Interpreters borrowed can still be released, but are dropped
+     * then, and nothing more can be borrowed.
+     */
+    public synchronized void close() {
+        closed = true;
+        for (PythonInterpreter interp : idle) {
+            snapshots.remove(interp);
+            discarded++;
+        }
+        idle.clear();
+    }
+
+    public synchronized int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * Sets the most interpreters kept idle, dropping any idle ones beyond it.
+     */
+    public synchronized void setMaxIdle(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("negative pool size");
+        }
+        this.maxIdle = maxIdle;
+        while (idle.size() > maxIdle) {
+            snapshots.remove(idle.remove(0));
+            discarded++;
+        }
+    }
+
+    public synchronized boolean getResetModules() {
+        return resetModules;
+    }
+
+    /**
+     * Sets whether released interpreters drop the modules imported since they were made. True by
+     * default; turning it off lets scripts reuse the modules earlier ones imported, at the price
+     * of seeing any changes they made to them.
+     */
+    public synchronized void setResetModules(boolean resetModules) {
+        this.resetModules = resetModules;
+    }
+
+    /** Returns the number of interpreters waiting to be borrowed. */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /** Returns the number of interpreters borrowed and not yet released. */
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    /** Returns the number of interpreters made by this pool. */
+    public synchronized int getCreatedCount() {
+        return created;
+    }
+
+    /** Returns the number of times an interpreter was borrowed. */
+    public synchronized int getBorrowedCount() {
+        return borrowed;
+    }
+
+    /** Returns the number of interpreters dropped by this pool. */
+    public synchronized int getDiscardedCount() {
+        return discarded;
+    }
+
+    /**
+     * The state of an interpreter and its PySystemState restored on release.
+     */
+    private static class Snapshot {
+
+        private final PyObject main, modules, sysDict;
+
+        private final PyList argv, path, metaPath, pathHooks;
+
+        private final PyObject stdout, stderr, stdin, displayhook, excepthook;
+
+        private final int recursionLimit;
+
+        private final CompilerFlags cflags;
+
+        /** Whether the interpreter is borrowed. */
+        boolean lent;
+
+        Snapshot(PythonInterpreter interp) {
+            PySystemState sys = interp.systemState;
+            main = interp.module.__dict__.invoke("copy");
+            modules = sys.modules.invoke("copy");
+            sysDict = sys.__dict__.invoke("copy");
+            argv = copy(sys.argv);
+            path = copy(sys.path);
+            metaPath = copy(sys.meta_path);
+            pathHooks = copy(sys.path_hooks);
+            stdout = sys.stdout;
+            stderr = sys.stderr;
+            stdin = sys.stdin;
+            displayhook = sys.__displayhook__;
+            excepthook = sys.__excepthook__;
+            recursionLimit = sys.getrecursionlimit();
+            cflags = copy(interp.cflags);
+        }
+
+        void restore(PythonInterpreter interp, boolean resetModules) {
+            PySystemState sys = interp.systemState;
+            replace(interp.module.__dict__, main);
+            interp.setLocals(interp.module.__dict__);
+            interp.cflags = copy(cflags);
+            if (resetModules) {
+                replace(sys.modules, modules);
+            }
+            replace(sys.__dict__, sysDict);
+            sys.argv = copy(argv);
+            sys.path = copy(path);
+            sys.meta_path = copy(metaPath);
+            sys.path_hooks = copy(pathHooks);
+            sys.stdout = stdout;
+            sys.stderr = stderr;
+            sys.stdin = stdin;
+            sys.__displayhook__ = displayhook;
+            sys.__excepthook__ = excepthook;
+            sys.last_type = sys.last_value = sys.last_traceback = Py.None;
+            sys.setrecursionlimit(recursionLimit);
+        }
+
+        private static void replace(PyObject dict, PyObject contents) {
+            dict.invoke("clear");
+            dict.invoke("update", contents);
+        }
+
+        private static PyList copy(PyList list) {
+            PyList copy = new PyList();
+            copy.extend(list);
+            return copy;
+        }
+
+        private static CompilerFlags copy(CompilerFlags cflags) {
+            CompilerFlags copy = new CompilerFlags();
+            copy.nested_scopes = cflags.nested_scopes;
+            copy.division = cflags.division;
+            copy.generator_allowed = cflags.generator_allowed;
+            copy.with_statement = cflags.with_statement;
+            copy.absolute_import = cflags.absolute_import;
+            copy.only_ast = cflags.only_ast;
+            copy.dont_imply_dedent = cflags.dont_imply_dedent;
+            copy.source_is_utf8 = cflags.source_is_utf8;
+            copy.encoding = cflags.encoding;
+            return copy;
+        }
+    }
+}
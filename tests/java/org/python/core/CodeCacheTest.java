@@ -0,0 +1,77 @@
+package org.python.core;
+
+import org.python.util.PythonInterpreter;
+
+import junit.framework.TestCase;
+
+public class CodeCacheTest extends TestCase {
+
+    private int size;
+
+    public void setUp() {
+        PySystemState.initialize();
+        size = Options.codeCacheSize;
+        CodeCache.clear();
+    }
+
+    public void tearDown() {
+        Options.codeCacheSize = size;
+        CodeCache.clear();
+    }
+
+    public void testShared() {
+        PythonInterpreter one = new PythonInterpreter();
+        PythonInterpreter two = new PythonInterpreter();
+        PyCode code = one.compile("x = 6 * 7");
+        assertSame(code, two.compile("x = 6 * 7"));
+        assertNotSame(code, two.compile("x = 6 * 7", "other.py"));
+        assertNotSame(code, Py.compile_flags("x = 6 * 7", "<script>", "single", new CompilerFlags()));
+
+        one.exec(code);
+        two.exec(code);
+        assertEquals(42, one.get("x").asInt());
+        assertEquals(42, two.get("x").asInt());
+    }
+
+    public void testFutures() {
+        CompilerFlags cflags = new CompilerFlags();
+        PyObject code = Py.compile_flags("from __future__ import division", "<string>", "exec",
+                                         cflags);
+        assertTrue(cflags.division);
+
+        // The cached code is handed out, but the future import must still be seen
+        cflags = new CompilerFlags();
+        assertSame(code, Py.compile_flags("from __future__ import division", "<string>", "exec",
+                                          cflags));
+        assertTrue(cflags.division);
+
+        PyObject truediv = Py.compile_flags("1 / 2", "<string>", "eval", cflags);
+        assertNotSame(truediv, Py.compile_flags("1 / 2", "<string>", "eval", new CompilerFlags()));
+        assertEquals(Py.newFloat(0.5), Py.runCode((PyCode)truediv, null, new PyStringMap()));
+    }
+
+    public void testEviction() {
+        Options.codeCacheSize = 2;
+        PyObject a = Py.compile_flags("a = 1", "<string>", "exec", null);
+        Py.compile_flags("b = 1", "<string>", "exec", null);
+        assertSame(a, Py.compile_flags("a = 1", "<string>", "exec", null));
+        // b is the least recently used
+        Py.compile_flags("c = 1", "<string>", "exec", null);
+        assertEquals(2, CodeCache.size());
+        assertSame(a, Py.compile_flags("a = 1", "<string>", "exec", null));
+
+        Options.codeCacheSize = 0;
+        CodeCache.clear();
+        assertNotSame(Py.compile_flags("a = 1", "<string>", "exec", null),
+                      Py.compile_flags("a = 1", "<string>", "exec", null));
+        assertEquals(0, CodeCache.size());
+    }
+
+    public void testAst() {
+        CompilerFlags cflags = new CompilerFlags();
+        cflags.only_ast = true;
+        assertNotSame(Py.compile_flags("a = 1", "<string>", "exec", cflags),
+                      Py.compile_flags("a = 1", "<string>", "exec", cflags));
+        assertEquals(0, CodeCache.size());
+    }
+}
@@ -0,0 +1,55 @@
+package org.python.core;
+
+import junit.framework.TestCase;
+
+public class IntegerCacheTest extends TestCase {
+
+    public void setUp() {
+        PySystemState.initialize();
+    }
+
+    public void tearDown() {
+        assertTrue(Py.setIntegerCacheRange(Options.integerCacheMin, Options.integerCacheMax));
+    }
+
+    public void testRange() {
+        assertTrue(Py.setIntegerCacheRange(-5, 2000));
+        assertSame(Py.newInteger(1500), Py.newInteger(1500));
+        assertNotSame(Py.newInteger(2001), Py.newInteger(2001));
+    }
+
+    public void testLoopsReuse() {
+        // range() and enumerate() hand out the cached ints rather than new ones
+        PyObject range = __builtin__.range(Py.newInteger(500));
+        PyObject enumerate = new PyEnumerate(range);
+        for (int i = 0; i < 500; i++) {
+            PyObject item = range.__getitem__(i);
+            assertSame(Py.newInteger(i), item);
+            PyTuple pair = (PyTuple)enumerate.__iternext__();
+            assertSame(Py.newInteger(i), pair.__getitem__(0));
+            assertSame(item, pair.__getitem__(1));
+        }
+        assertNotSame(Py.newInteger(Options.integerCacheMax + 1),
+                      Py.newInteger(Options.integerCacheMax + 1));
+    }
+
+    public void testLongsAndFloats() {
+        assertSame(Py.newLong(-5), Py.newLong(-5));
+        assertSame(Py.newLong(256), Py.newLong(256L));
+        assertNotSame(Py.newLong(257), Py.newLong(257));
+        assertSame(Py.newFloat(0.0), Py.newFloat(0.0));
+        assertSame(Py.newFloat(1.0), Py.newFloat(1.0f));
+        // -0.0 == 0.0 but must keep its sign
+        assertNotSame(Py.newFloat(0.0), Py.newFloat(-0.0));
+    }
+
+    public void testBadRange() {
+        assertTrue(Py.setIntegerCacheRange(0, 10));
+        assertFalse(Py.setIntegerCacheRange(10, 0));
+        assertFalse(Py.setIntegerCacheRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertFalse(Py.setIntegerCacheRange(0, Py.MAX_INTEGER_CACHE_SIZE));
+        // The range set last is kept
+        assertSame(Py.newInteger(10), Py.newInteger(10));
+        assertNotSame(Py.newInteger(11), Py.newInteger(11));
+    }
+}
@@ -0,0 +1,63 @@
+package org.python.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.python.util.PythonInterpreter;
+
+public class ModuleImageTest extends TestCase {
+
+    private File file;
+
+    public void setUp() throws Exception {
+        System.setProperty(PySystemState.PYTHON_CACHEDIR_SKIP, "true");
+        PySystemState.initialize();
+        file = File.createTempFile("moduleimage", ".jyimage");
+    }
+
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static byte[] compile(String name, String source, String filename) {
+        return imp.compileSource(name, new ByteArrayInputStream(source.getBytes()), filename);
+    }
+
+    public void testImport() throws Exception {
+        ModuleImage.Builder builder = new ModuleImage.Builder();
+        assertTrue(builder.add("imgpkg", true, "/src/imgpkg/__init__.py",
+                               compile("imgpkg", "x = 1\n", "/src/imgpkg/__init__.py")));
+        assertTrue(builder.add("imgpkg.sub", false, "/src/imgpkg/sub.py",
+                               compile("imgpkg.sub", "from imgpkg import x\ny = x + 1\n",
+                                       "/src/imgpkg/sub.py")));
+        assertTrue(builder.add("imgmod", false, "/src/imgmod.py",
+                               compile("imgmod", "def f():\n    return 'f'\n", "/src/imgmod.py")));
+        assertFalse(builder.add("imgmod", false, "/other/imgmod.py", new byte[0]));
+        builder.write(file);
+
+        ModuleImage image = ModuleImage.open(file.getPath());
+        assertEquals(3, image.size());
+        assertEquals(Py.None, image.find_module("missing"));
+
+        PySystemState sys = new PySystemState();
+        sys.meta_path.insert(0, image);
+        PythonInterpreter interp = new PythonInterpreter(null, sys);
+        interp.exec("import imgpkg.sub, imgmod");
+        assertEquals(2, interp.eval("imgpkg.sub.y").asInt());
+        assertEquals("f", interp.eval("imgmod.f()").toString());
+        assertEquals("/src/imgmod.py", interp.eval("imgmod.__file__").toString());
+        assertEquals("['/src/imgpkg']", interp.eval("imgpkg.__path__").toString());
+    }
+
+    public void testNotAnImage() throws Exception {
+        try {
+            ModuleImage.open(file.getPath());
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.python.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class PyJavaTypeTest extends TestCase {
+
+    public static class Members extends PyObject {
+
+        public static PyString __doc__twice = new PyString("twice doc");
+
+        public int count;
+
+        private String label;
+
+        public int twice(int x) {
+            return 2 * x;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+    }
+
+    public static class Concurrent extends PyObject {
+
+        public int value() {
+            return 1;
+        }
+    }
+
+    public void setUp() {
+        PySystemState.initialize();
+    }
+
+    public void testLazyMembers() {
+        PyType type = PyType.fromClass(Members.class);
+        assertTrue(type instanceof PyJavaType);
+        // Only the constructor is reflected on up front
+        assertNull(type.dict.__finditem__("twice"));
+
+        PyObject twice = type.lookup("twice");
+        assertTrue(twice instanceof PyReflectedFunction);
+        assertEquals("twice doc", ((PyReflectedFunction)twice).__doc__.toString());
+        assertSame(twice, type.lookup("twice"));
+        assertNull(type.dict.__finditem__("count"));
+
+        assertTrue(type.lookup("count") instanceof PyReflectedField);
+        assertTrue(type.lookup("label") instanceof PyBeanProperty);
+        assertNull(type.lookup("missing"));
+
+        PyObject dict = type.fastGetDict();
+        assertSame(twice, dict.__finditem__("twice"));
+        assertNotNull(dict.__finditem__("getLabel"));
+        assertNotNull(dict.__finditem__("__new__"));
+    }
+
+    public void testConcurrentFromClass() throws Exception {
+        final PyType[] types = new PyType[8];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < types.length; i++) {
+            final int index = i;
+            threads.add(new Thread() {
+
+                public void run() {
+                    PyType type = PyType.fromClass(Concurrent.class);
+                    type.lookup("value");
+                    types[index] = type;
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (PyType type : types) {
+            assertSame(types[0], type);
+        }
+        assertNotNull(types[0].lookup("value"));
+    }
+}
@@ -0,0 +1,100 @@
+package org.python.core;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+public class PyReflectedFunctionTest extends TestCase {
+
+    public static class Overloads {
+
+        public static String f(char c) {
+            return "char";
+        }
+
+        public static String f(String s) {
+            return "String";
+        }
+
+        public static String f(long x) {
+            return "long";
+        }
+
+        public static String f(Object o) {
+            return "Object";
+        }
+
+        public int add(int x, double y) {
+            return x + (int)y;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    public void setUp() {
+        PySystemState.initialize();
+    }
+
+    private static PyReflectedFunction function(String name) {
+        PyReflectedFunction func = null;
+        for (Method method : Overloads.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                if (func == null) {
+                    func = new PyReflectedFunction(method);
+                } else {
+                    func.addMethod(method);
+                }
+            }
+        }
+        return func;
+    }
+
+    public void testDispatch() {
+        PyReflectedFunction f = function("f");
+        for (int i = 0; i < 3 * ReflectedInvoker.THRESHOLD; i++) {
+            assertEquals("String", f.__call__(new PyString("ab")).toString());
+            // Only strings of length one convert to char, whatever was called before
+            assertEquals("char", f.__call__(new PyString("a")).toString());
+            assertEquals("String", f.__call__(new PyUnicode("cd")).toString());
+            assertEquals("long", f.__call__(Py.newInteger(i)).toString());
+            assertEquals("long", f.__call__(Py.newLong(i)).toString());
+            assertEquals("Object", f.__call__(Py.newLong("100000000000000000000")).toString());
+            assertEquals("Object", f.__call__(new PyList()).toString());
+            assertEquals("String", f.__call__(Py.None).toString());
+        }
+    }
+
+    public void testInvoker() {
+        PyReflectedFunction add = function("add");
+        PyObject self = Py.java2py(new Overloads());
+        for (int i = 0; i < 3 * ReflectedInvoker.THRESHOLD; i++) {
+            assertEquals(i + 2, add.__call__(self, Py.newInteger(i), Py.newFloat(2.5)).asInt());
+        }
+
+        PyReflectedFunction fail = function("fail");
+        for (int i = 0; i < 3 * ReflectedInvoker.THRESHOLD; i++) {
+            try {
+                fail.__call__(self, new PyString("failed " + i));
+                fail();
+            } catch (PyException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                assertEquals("failed " + i, e.getCause().getMessage());
+            }
+        }
+    }
+
+    public void testInvokerMaker() throws Throwable {
+        Method add = Overloads.class.getMethod("add", Integer.TYPE, Double.TYPE);
+        ReflectedInvoker invoker = ReflectedInvoker.forMethod(add);
+        assertEquals(5, invoker.invoke(new Overloads(), new Object[] {3, 2.0}));
+
+        Method size = java.util.List.class.getMethod("size");
+        invoker = ReflectedInvoker.forMethod(size);
+        assertEquals(1, invoker.invoke(java.util.Collections.singletonList("x"), new Object[0]));
+
+        Method hidden = Class.forName("java.lang.AbstractStringBuilder").getMethod("length");
+        assertNull(ReflectedInvoker.forMethod(hidden));
+    }
+}
@@ -0,0 +1,156 @@
+package org.python.core;
+
+import junit.framework.TestCase;
+
+public class ReflectedAccessorTest extends TestCase {
+
+    public static class Fields {
+
+        public static final String CONSTANT = "constant";
+
+        public static long counter;
+
+        public int count;
+
+        public double ratio;
+
+        public boolean flag;
+
+        public char letter;
+
+        public byte small;
+
+        public String name;
+
+        private String label;
+
+        public String getLabel() {
+            return label;
+        }
+
+        public Fields setLabel(String label) {
+            if (label.length() == 0) {
+                throw new IllegalArgumentException("empty label");
+            }
+            this.label = label;
+            return this;
+        }
+    }
+
+    public void setUp() {
+        PySystemState.initialize();
+    }
+
+    private static PyReflectedField field(String name) throws Exception {
+        return new PyReflectedField(Fields.class.getField(name));
+    }
+
+    private static PyBeanProperty label() throws Exception {
+        return new PyBeanProperty("label", String.class, Fields.class.getMethod("getLabel"),
+                                  Fields.class.getMethod("setLabel", String.class));
+    }
+
+    public void testFields() throws Exception {
+        Fields fields = new Fields();
+        PyObject self = Py.java2py(fields);
+        PyReflectedField count = field("count");
+        PyReflectedField ratio = field("ratio");
+        PyReflectedField flag = field("flag");
+        PyReflectedField letter = field("letter");
+        PyReflectedField small = field("small");
+        PyReflectedField name = field("name");
+        PyReflectedField counter = field("counter");
+        PyReflectedField constant = field("CONSTANT");
+        for (int i = 0; i < 3 * ReflectedInvoker.THRESHOLD; i++) {
+            count._doset(self, Py.newInteger(i));
+            assertEquals(i, fields.count);
+            assertEquals(Py.newInteger(i), count._doget(self));
+
+            ratio._doset(self, Py.newFloat(i / 2.0));
+            assertEquals(Py.newFloat(i / 2.0), ratio._doget(self));
+
+            flag._doset(self, Py.newBoolean(i % 2 == 0));
+            assertSame(Py.newBoolean(i % 2 == 0), flag._doget(self));
+
+            letter._doset(self, Py.newString("x"));
+            assertEquals(Py.newString("x"), letter._doget(self));
+
+            small._doset(self, Py.newInteger(i));
+            assertEquals(Py.newInteger(i), small._doget(self));
+
+            name._doset(self, Py.newString("n" + i));
+            assertEquals("n" + i, name._doget(self).toString());
+            name._doset(self, Py.None);
+            assertSame(Py.None, name._doget(self));
+
+            counter._doset(null, Py.newInteger(i));
+            assertEquals(Py.newLong(i), counter._doget(null));
+
+            assertEquals("constant", constant._doget(null).toString());
+            try {
+                constant._doset(null, Py.newString("changed"));
+                fail();
+            } catch (PyException e) {
+                // Final fields can't be set, with or without an accessor
+            }
+        }
+    }
+
+    public void testProperty() throws Exception {
+        Fields fields = new Fields();
+        PyObject self = Py.java2py(fields);
+        PyBeanProperty label = label();
+        for (int i = 0; i < 3 * ReflectedInvoker.THRESHOLD; i++) {
+            label._doset(self, Py.newString("l" + i));
+            assertEquals("l" + i, fields.label);
+            assertEquals("l" + i, label._doget(self).toString());
+            try {
+                label._doset(self, Py.newString(""));
+                fail();
+            } catch (PyException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    public void testAccessorMaker() throws Throwable {
+        Fields fields = new Fields();
+        ReflectedAccessor accessor = ReflectedAccessor.forField(Fields.class.getField("count"));
+        accessor.set(fields, 7);
+        assertEquals(7, fields.count);
+        assertEquals(Py.newInteger(7), accessor.get(fields));
+
+        // Directions that can't be generated fall back to reflection
+        accessor = ReflectedAccessor.forField(Fields.class.getField("CONSTANT"));
+        assertEquals("constant", accessor.get(null).toString());
+        try {
+            accessor.set(null, "changed");
+            fail();
+        } catch (IllegalAccessException e) {
+            // final
+        }
+
+        accessor = ReflectedAccessor.forProperty(Fields.class.getMethod("getLabel"), null);
+        fields.label = "l";
+        assertEquals("l", accessor.get(fields).toString());
+        try {
+            accessor.set(fields, "changed");
+            fail();
+        } catch (PyException e) {
+            assertTrue(Py.matchException(e, Py.AttributeError));
+        }
+
+        accessor = ReflectedAccessor.forProperty(null,
+                Fields.class.getMethod("setLabel", String.class));
+        accessor.set(fields, "set");
+        assertEquals("set", fields.label);
+        try {
+            accessor.get(fields);
+            fail();
+        } catch (PyException e) {
+            assertTrue(Py.matchException(e, Py.AttributeError));
+        }
+
+        assertNull(ReflectedAccessor.forField(Fields.class.getDeclaredField("label")));
+    }
+}
@@ -0,0 +1,160 @@
+package org.python.core.packagecache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import junit.framework.TestCase;
+
+import org.python.core.PyJavaPackage;
+import org.python.core.PySystemState;
+
+public class CachedJarsPackageManagerTest extends TestCase {
+
+    private static List<String> messages = new ArrayList<String>();
+
+    private File dir;
+
+    private File jardir;
+
+    private File cachedir;
+
+    private static class RecordingPackageManager extends SysPackageManager {
+
+        RecordingPackageManager(File cachedir, Properties registry) {
+            super(cachedir, registry);
+        }
+
+        protected void message(String msg) {
+            messages.add(msg);
+        }
+    }
+
+    public void setUp() throws Exception {
+        System.setProperty(PySystemState.PYTHON_CACHEDIR_SKIP, "true");
+        PySystemState.initialize();
+        dir = File.createTempFile("cachedjars", "");
+        dir.delete();
+        jardir = new File(dir, "jars");
+        jardir.mkdirs();
+        cachedir = new File(dir, "cache");
+        messages.clear();
+    }
+
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static byte[] publicClass() throws IOException {
+        InputStream in = PySystemState.class.getResourceAsStream("PySystemState.class");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private void writeJar(String name, String... classes) throws IOException {
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(new File(jardir, name)));
+        byte[] code = publicClass();
+        for (String cls : classes) {
+            jar.putNextEntry(new ZipEntry(cls + ".class"));
+            jar.write(code);
+            jar.closeEntry();
+        }
+        jar.close();
+    }
+
+    private PackageManager load() {
+        Properties registry = new Properties();
+        registry.setProperty("python.packages.paths", "");
+        registry.setProperty("python.packages.directories", "test.jars");
+        registry.setProperty("test.jars", jardir.getPath());
+        messages.clear();
+        return new RecordingPackageManager(cachedir, registry);
+    }
+
+    private static PyJavaPackage pkg(PackageManager mgr, String name) {
+        return (PyJavaPackage)mgr.topLevelPackage.__dict__.__finditem__(name);
+    }
+
+    public void testIndex() throws Exception {
+        writeJar("one.jar", "p1/A", "p1/B");
+        writeJar("two.jar", "p2/C");
+
+        PackageManager mgr = load();
+        assertEquals(2, messages.size());
+        assertTrue(new File(cachedir, "packages.jpi").isFile());
+        assertNotNull(pkg(mgr, "p1").getClsSet().__finditem__("A"));
+        assertNotNull(pkg(mgr, "p1").getClsSet().__finditem__("B"));
+        assertNotNull(pkg(mgr, "p2").getClsSet().__finditem__("C"));
+
+        // Unchanged jars are read back from the index
+        mgr = load();
+        assertEquals(messages.toString(), 0, messages.size());
+        assertNotNull(pkg(mgr, "p1").getClsSet().__finditem__("B"));
+        assertNotNull(pkg(mgr, "p2").getClsSet().__finditem__("C"));
+        // The index is read, not mapped, so it can be replaced on any platform
+        assertFalse(((CachedJarsPackageManager)mgr).inOpenIndex().isDirect());
+
+        // Only the changed jar is scanned again
+        writeJar("two.jar", "p2/C", "p2/D", "p3/E");
+        mgr = load();
+        assertEquals(messages.toString(), 1, messages.size());
+        assertTrue(messages.get(0), messages.get(0).indexOf("two.jar") != -1);
+        assertNotNull(pkg(mgr, "p1").getClsSet().__finditem__("A"));
+        assertNotNull(pkg(mgr, "p2").getClsSet().__finditem__("D"));
+        assertNotNull(pkg(mgr, "p3").getClsSet().__finditem__("E"));
+    }
+
+    public void testOldCacheFiles() throws Exception {
+        writeJar("one.jar", "p1/A");
+        cachedir.mkdirs();
+        File oldIndex = new File(cachedir, "packages.idx");
+        File oldCacheFile = new File(cachedir, "one.pkc");
+        new FileOutputStream(oldIndex).close();
+        new FileOutputStream(oldCacheFile).close();
+
+        load();
+        assertTrue(new File(cachedir, "packages.jpi").isFile());
+        assertFalse(oldIndex.exists());
+        assertFalse(oldCacheFile.exists());
+    }
+
+    public void testInvalidIndex() throws Exception {
+        writeJar("one.jar", "p1/A");
+        cachedir.mkdirs();
+        FileOutputStream out = new FileOutputStream(new File(cachedir, "packages.jpi"));
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+
+        PackageManager mgr = load();
+        assertEquals(1, messages.size());
+        assertNotNull(pkg(mgr, "p1").getClsSet().__finditem__("A"));
+
+        // The index was written again
+        mgr = load();
+        assertEquals(messages.toString(), 0, messages.size());
+        assertNotNull(pkg(mgr, "p1").getClsSet().__finditem__("A"));
+    }
+}
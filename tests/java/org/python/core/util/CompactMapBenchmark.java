@@ -0,0 +1,123 @@
+package org.python.core.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares get, put and iteration throughput and the memory per entry of CompactMap and
+ * ConcurrentHashMap for small string keyed maps like instance dicts and keyword arguments.
+ *
+ * Run with java -cp build/classes:build/testclasses org.python.core.util.CompactMapBenchmark
+ */
+public class CompactMapBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static final int MAPS = 100000;
+
+    private static final String[] KEYS = new String[8];
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = ("attr" + i).intern();
+        }
+    }
+
+    private interface Factory {
+
+        Map<String, Object> create();
+    }
+
+    private static final Factory COMPACT = new Factory() {
+
+        public Map<String, Object> create() {
+            return new CompactMap<String, Object>();
+        }
+
+        public String toString() {
+            return "CompactMap";
+        }
+    };
+
+    private static final Factory CONCURRENT = new Factory() {
+
+        public Map<String, Object> create() {
+            return new ConcurrentHashMap<String, Object>();
+        }
+
+        public String toString() {
+            return "ConcurrentHashMap";
+        }
+    };
+
+    public static void main(String[] args) {
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("round " + round);
+            run(COMPACT);
+            run(CONCURRENT);
+        }
+    }
+
+    private static void run(Factory factory) {
+        Object value = new Object();
+        long start = System.nanoTime();
+        Map<String, Object>[] maps = fill(factory, value);
+        long put = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < 10; i++) {
+            for (Map<String, Object> map : maps) {
+                for (String key : KEYS) {
+                    if (map.get(key) == value) {
+                        found++;
+                    }
+                }
+            }
+        }
+        long get = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int seen = 0;
+        for (int i = 0; i < 10; i++) {
+            for (Map<String, Object> map : maps) {
+                for (Map.Entry<String, Object> entry : map.entrySet()) {
+                    if (entry.getValue() == value) {
+                        seen++;
+                    }
+                }
+            }
+        }
+        long iterate = System.nanoTime() - start;
+
+        maps = null;
+        long before = usedMemory();
+        maps = fill(factory, value);
+        long bytes = usedMemory() - before;
+
+        long ops = (long)MAPS * KEYS.length;
+        System.out.printf("  %-18s put %5.1f ns  get %5.1f ns  iterate %5.1f ns  %5.1f bytes/entry"
+                + " (%d %d %d)%n", factory, put / (double)ops, get / (10.0 * ops),
+                          iterate / (10.0 * ops), bytes / (double)ops, found, seen, maps.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] fill(Factory factory, Object value) {
+        Map<String, Object>[] maps = new Map[MAPS];
+        for (int i = 0; i < MAPS; i++) {
+            Map<String, Object> map = factory.create();
+            for (String key : KEYS) {
+                map.put(key, value);
+            }
+            maps[i] = map;
+        }
+        return maps;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
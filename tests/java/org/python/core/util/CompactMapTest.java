@@ -0,0 +1,148 @@
+package org.python.core.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class CompactMapTest extends TestCase {
+
+    private CompactMap<String, Integer> map = new CompactMap<String, Integer>();
+
+    private void fill(int n) {
+        for (int i = 0; i < n; i++) {
+            assertNull(map.put("k" + i, i));
+        }
+    }
+
+    public void testPutGetRemove() {
+        fill(1000);
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), map.get("k" + i));
+        }
+        assertNull(map.get("missing"));
+        assertEquals(Integer.valueOf(3), map.put("k3", -3));
+        assertEquals(Integer.valueOf(-3), map.remove("k3"));
+        assertNull(map.remove("k3"));
+        assertFalse(map.containsKey("k3"));
+        assertEquals(999, map.size());
+        assertFalse(map.isShared());
+    }
+
+    public void testInsertionOrder() {
+        fill(50);
+        for (int i = 0; i < 50; i += 2) {
+            map.remove("k" + i);
+        }
+        map.put("k0", 0);
+        Iterator<String> it = map.keySet().iterator();
+        for (int i = 1; i < 50; i += 2) {
+            assertEquals("k" + i, it.next());
+        }
+        assertEquals("k0", it.next());
+        assertFalse(it.hasNext());
+    }
+
+    public void testIteratorRemove() {
+        fill(100);
+        int n = 0;
+        for (Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Integer> entry = it.next();
+            if (entry.getValue() % 3 == 0) {
+                it.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+                n++;
+            }
+        }
+        assertEquals(n, map.size());
+        assertEquals(Integer.valueOf(-1), map.get("k1"));
+        assertNull(map.get("k3"));
+    }
+
+    public void testConcurrentMapMethods() {
+        assertNull(map.putIfAbsent("a", 1));
+        assertEquals(Integer.valueOf(1), map.putIfAbsent("a", 2));
+        assertNull(map.replace("b", 1));
+        assertEquals(Integer.valueOf(1), map.replace("a", 3));
+        assertFalse(map.replace("a", 1, 4));
+        assertTrue(map.replace("a", 3, 4));
+        assertFalse(map.remove("a", 3));
+        assertTrue(map.remove("a", 4));
+        assertTrue(map.isEmpty());
+    }
+
+    public void testEqualsAndClear() {
+        fill(10);
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < 10; i++) {
+            expected.put("k" + i, i);
+        }
+        assertEquals(expected, map);
+        assertEquals(map, new CompactMap<String, Integer>(expected));
+        map.clear();
+        assertTrue(map.isEmpty());
+        fill(3);
+        assertEquals(3, map.size());
+    }
+
+    public void testSharedByAnotherThread() throws InterruptedException {
+        fill(100);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int base = 1000 * (t + 1);
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = base; i < base + 1000; i++) {
+                        map.put("k" + i, i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int i = 100; i < 1000; i++) {
+            map.put("k" + i, i);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(map.isShared());
+        assertEquals(5000, map.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(Integer.valueOf(i), map.get("k" + i));
+        }
+    }
+
+    public void testSharedKeys() {
+        CompactMap.SharedKeys keys = new CompactMap.SharedKeys();
+        CompactMap<Object, Integer> a = new CompactMap<Object, Integer>(keys);
+        CompactMap<Object, Integer> b = new CompactMap<Object, Integer>(keys);
+        a.put("x", 1);
+        a.put("y", 2);
+        b.put("y", 3);
+        b.put("z", 4);
+        assertEquals(3, keys.size());
+        assertEquals(Integer.valueOf(2), a.get("y"));
+        assertNull(a.get("z"));
+        assertEquals(2, b.size());
+        assertEquals(Integer.valueOf(3), b.remove("y"));
+        assertEquals(1, b.size());
+        assertEquals("z", b.keySet().iterator().next());
+
+        // Keys that can't be shared turn the map into an ordinary one
+        a.put(7, 7);
+        for (int i = 0; i < CompactMap.SharedKeys.MAX_KEYS; i++) {
+            b.put("k" + i, i);
+        }
+        assertEquals(CompactMap.SharedKeys.MAX_KEYS, keys.size());
+        assertEquals(3, a.size());
+        assertEquals(Integer.valueOf(7), a.get(7));
+        assertEquals(Integer.valueOf(1), a.get("x"));
+        assertEquals(CompactMap.SharedKeys.MAX_KEYS + 1, b.size());
+        for (int i = 0; i < CompactMap.SharedKeys.MAX_KEYS; i++) {
+            assertEquals(Integer.valueOf(i), b.get("k" + i));
+        }
+    }
+}
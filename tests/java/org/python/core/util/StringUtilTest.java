@@ -0,0 +1,39 @@
+package org.python.core.util;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+public class StringUtilTest extends TestCase {
+
+    private static final byte[] BYTES = {'a', 'b', (byte)0xe9, 'c', (byte)0xff};
+
+    public void testRoundTrip() {
+        String s = StringUtil.fromBytes(BYTES);
+        assertEquals("ab\u00e9c\u00ff", s);
+        byte[] bytes = StringUtil.toBytes(s);
+        assertEquals(BYTES.length, bytes.length);
+        for (int i = 0; i < BYTES.length; i++) {
+            assertEquals(BYTES[i], bytes[i]);
+        }
+    }
+
+    public void testToBytesRange() {
+        byte[] bytes = {'x', 'x', 'x', 'x'};
+        StringUtil.toBytes("ab\u00e9c\u00ff", 2, 5, bytes, 1);
+        assertEquals('x', bytes[0]);
+        assertEquals(BYTES[2], bytes[1]);
+        assertEquals(BYTES[3], bytes[2]);
+        assertEquals(BYTES[4], bytes[3]);
+    }
+
+    public void testByteBuffer() {
+        ByteBuffer buf = ByteBuffer.wrap(BYTES);
+        assertEquals("ab\u00e9c\u00ff", StringUtil.fromBytes(buf));
+        buf.position(1).limit(4);
+        assertEquals("b\u00e9c", StringUtil.fromBytes(buf));
+        ByteBuffer slice = buf.slice();
+        slice.position(1);
+        assertEquals("\u00e9c", StringUtil.fromBytes(slice));
+    }
+}
@@ -0,0 +1,189 @@
+package org.python.modules.sre;
+
+import junit.framework.TestCase;
+
+import org.python.core.Options;
+import org.python.core.Py;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PyTuple;
+import org.python.core.PySystemState;
+
+public class NFATest extends TestCase {
+
+    /** Code for "(a+)+b", without its INFO block. */
+    private static final int[] NESTED = {
+        SRE_STATE.SRE_OP_REPEAT, 14, 1, 65535,
+            SRE_STATE.SRE_OP_MARK, 0,
+            SRE_STATE.SRE_OP_REPEAT_ONE, 6, 1, 65535,
+                SRE_STATE.SRE_OP_LITERAL, 'a',
+            SRE_STATE.SRE_OP_SUCCESS,
+            SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_MAX_UNTIL,
+        SRE_STATE.SRE_OP_LITERAL, 'b',
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "^(a)+" compiled with re.MULTILINE, without its INFO block. */
+    private static final int[] LINE_START = {
+        SRE_STATE.SRE_OP_AT, SRE_STATE.SRE_AT_BEGINNING_LINE,
+        SRE_STATE.SRE_OP_REPEAT, 9, 1, 65535,
+            SRE_STATE.SRE_OP_MARK, 0, SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_MAX_UNTIL,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "a+", without its INFO block. */
+    private static final int[] SINGLE = {
+        SRE_STATE.SRE_OP_REPEAT_ONE, 6, 1, 65535, SRE_STATE.SRE_OP_LITERAL, 'a',
+        SRE_STATE.SRE_OP_SUCCESS,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "(a)\1". */
+    private static final int[] BACKREF = {
+        SRE_STATE.SRE_OP_MARK, 0, SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_GROUPREF, 0,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "((b|c)((a)|[^a]))*", without its INFO block. */
+    private static final int[] NESTED_GROUPS = {
+        SRE_STATE.SRE_OP_REPEAT, 37, 0, 65535,
+            SRE_STATE.SRE_OP_MARK, 0,
+            SRE_STATE.SRE_OP_MARK, 2,
+            SRE_STATE.SRE_OP_IN, 5, SRE_STATE.SRE_OP_RANGE, 'b', 'c', SRE_STATE.SRE_OP_FAILURE,
+            SRE_STATE.SRE_OP_MARK, 3,
+            SRE_STATE.SRE_OP_MARK, 4,
+            SRE_STATE.SRE_OP_BRANCH, 9,
+                SRE_STATE.SRE_OP_MARK, 6, SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_MARK, 7,
+                SRE_STATE.SRE_OP_JUMP, 7,
+            5,
+                SRE_STATE.SRE_OP_NOT_LITERAL, 'a',
+                SRE_STATE.SRE_OP_JUMP, 2,
+            SRE_STATE.SRE_OP_FAILURE,
+            SRE_STATE.SRE_OP_MARK, 5,
+            SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_MAX_UNTIL,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /**
+     * Code for "(?:(b|c)(?:b[^a])+?(?:a|[ab])){0,2}?b(?:a(ab|a)|(?:(b|c)|a))", without its INFO
+     * block.
+     */
+    private static final int[] LAZY_REPEATS = {
+        SRE_STATE.SRE_OP_REPEAT, 28, 0, 2,
+            SRE_STATE.SRE_OP_MARK, 0,
+            SRE_STATE.SRE_OP_IN, 5, SRE_STATE.SRE_OP_RANGE, 'b', 'c', SRE_STATE.SRE_OP_FAILURE,
+            SRE_STATE.SRE_OP_MARK, 1,
+            SRE_STATE.SRE_OP_REPEAT, 7, 1, 65535,
+                SRE_STATE.SRE_OP_LITERAL, 'b', SRE_STATE.SRE_OP_NOT_LITERAL, 'a',
+            SRE_STATE.SRE_OP_MIN_UNTIL,
+            SRE_STATE.SRE_OP_IN, 5, SRE_STATE.SRE_OP_RANGE, 'a', 'b', SRE_STATE.SRE_OP_FAILURE,
+        SRE_STATE.SRE_OP_MIN_UNTIL,
+        SRE_STATE.SRE_OP_LITERAL, 'b',
+        SRE_STATE.SRE_OP_BRANCH, 21,
+            SRE_STATE.SRE_OP_LITERAL, 'a',
+            SRE_STATE.SRE_OP_MARK, 2,
+            SRE_STATE.SRE_OP_LITERAL, 'a',
+            SRE_STATE.SRE_OP_BRANCH, 5, SRE_STATE.SRE_OP_LITERAL, 'b', SRE_STATE.SRE_OP_JUMP, 5,
+            3, SRE_STATE.SRE_OP_JUMP, 2,
+            SRE_STATE.SRE_OP_FAILURE,
+            SRE_STATE.SRE_OP_MARK, 3,
+            SRE_STATE.SRE_OP_JUMP, 25,
+        23,
+            SRE_STATE.SRE_OP_BRANCH, 13,
+                SRE_STATE.SRE_OP_MARK, 4,
+                SRE_STATE.SRE_OP_IN, 5, SRE_STATE.SRE_OP_RANGE, 'b', 'c',
+                SRE_STATE.SRE_OP_FAILURE,
+                SRE_STATE.SRE_OP_MARK, 5,
+                SRE_STATE.SRE_OP_JUMP, 7,
+            5, SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_JUMP, 2,
+            SRE_STATE.SRE_OP_FAILURE,
+            SRE_STATE.SRE_OP_JUMP, 2,
+        SRE_STATE.SRE_OP_FAILURE,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    private boolean linearRegex;
+
+    public void setUp() {
+        PySystemState.initialize();
+        linearRegex = Options.linearRegex;
+        Options.linearRegex = true;
+    }
+
+    public void tearDown() {
+        Options.linearRegex = linearRegex;
+    }
+
+    private PatternObject compile(int[] code, int groups) {
+        return new PatternObject(null, 0, code, groups, null, null);
+    }
+
+    private PyObject findall(int[] code, int groups, String string) {
+        return compile(code, groups).findall(new PyObject[] {new PyString(string)},
+                                             Py.NoKeywords);
+    }
+
+    public void testCompile() {
+        assertNotNull(compile(NESTED, 1).nfa);
+        assertNotNull(compile(LINE_START, 1).nfa);
+        assertNull(compile(SINGLE, 0).nfa);
+        assertNull(compile(BACKREF, 1).nfa);
+        Options.linearRegex = false;
+        assertNull(compile(NESTED, 1).nfa);
+    }
+
+    public void testNestedRepeat() {
+        PyList found = (PyList)findall(NESTED, 1, "xaaabyab");
+        assertEquals(2, found.__len__());
+        assertEquals(new PyString("aaa"), found.__getitem__(0));
+        assertEquals(new PyString("a"), found.__getitem__(1));
+
+        // Takes as long as the universe is old to backtrack through
+        StringBuilder a = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            a.append('a');
+        }
+        assertEquals(0, findall(NESTED, 1, a.toString()).__len__());
+    }
+
+    public void testLineStart() {
+        // A search carries on past positions where every thread fails an assertion
+        PyList found = (PyList)findall(LINE_START, 1, "ba\nab\na");
+        assertEquals(2, found.__len__());
+        PatternObject pattern = compile(LINE_START, 1);
+        MatchObject match = pattern.search(new PyObject[] {new PyString("ba\nab\na")},
+                                           Py.NoKeywords);
+        assertEquals(Py.newInteger(3), match.start());
+    }
+
+    // The results below are CPython's. Backtracking gives lastindex 2 for the first, and leaves
+    // group 1 set by the repeat it backed out of, or fails, for the others.
+
+    public void testLastIndex() {
+        assertNotNull(compile(NESTED_GROUPS, 4).nfa);
+        MatchObject match = compile(NESTED_GROUPS, 4).match(new PyObject[] {new PyString("cx")},
+                                                             Py.NoKeywords);
+        assertEquals(Py.newInteger(1), match.__findattr__("lastindex"));
+        assertEquals(new PyTuple(Py.newInteger(0), Py.newInteger(2)), match.span());
+        assertEquals(new PyString("x"), match.group(new PyObject[] {Py.newInteger(3)}));
+        assertEquals(Py.None, match.group(new PyObject[] {Py.newInteger(4)}));
+    }
+
+    public void testBackedOutGroups() {
+        assertNotNull(compile(LAZY_REPEATS, 3).nfa);
+        MatchObject match = compile(LAZY_REPEATS, 3).search(
+                new PyObject[] {new PyString("cba")}, Py.NoKeywords);
+        assertEquals(new PyTuple(Py.newInteger(1), Py.newInteger(3)), match.span());
+        assertEquals(Py.None, match.group(new PyObject[] {Py.newInteger(1)}));
+        assertEquals(Py.None, match.__findattr__("lastindex"));
+
+        PyList found = (PyList)findall(LAZY_REPEATS, 3, "cbba");
+        assertEquals(1, found.__len__());
+        assertEquals(new PyTuple(Py.EmptyString, Py.EmptyString, new PyString("b")),
+                     found.__getitem__(0));
+    }
+
+    public void testFallback() {
+        PyList found = (PyList)findall(BACKREF, 1, "abaaxaa");
+        assertEquals(2, found.__len__());
+    }
+}
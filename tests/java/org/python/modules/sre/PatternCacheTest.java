@@ -0,0 +1,61 @@
+package org.python.modules.sre;
+
+import junit.framework.TestCase;
+
+import org.python.core.Options;
+import org.python.core.Py;
+import org.python.core.PyString;
+import org.python.core.PySystemState;
+import org.python.core.PyUnicode;
+import org.python.modules._sre;
+
+public class PatternCacheTest extends TestCase {
+
+    private int size;
+
+    public void setUp() {
+        PySystemState.initialize();
+        size = Options.patternCacheSize;
+        PatternCache.clear();
+    }
+
+    public void tearDown() {
+        Options.patternCacheSize = size;
+        PatternCache.clear();
+    }
+
+    private PatternObject compile(PyString pattern) {
+        return new PatternObject(pattern, 0, new int[] {SRE_STATE.SRE_OP_SUCCESS}, 0, null, null);
+    }
+
+    public void testCached() {
+        PyString a = new PyString("a");
+        PatternObject compiled = compile(a);
+        assertSame(Py.None, _sre.getcached(a, 0));
+        _sre.putcached(a, 0, compiled);
+        assertSame(compiled, _sre.getcached(new PyString("a"), 0));
+        assertSame(Py.None, _sre.getcached(a, SRE_STATE.SRE_FLAG_IGNORECASE));
+        assertSame(Py.None, _sre.getcached(new PyUnicode("a"), 0));
+
+        // Debugging prints as the pattern is parsed, so it must be parsed every time
+        _sre.putcached(a, 128, compiled);
+        assertSame(Py.None, _sre.getcached(a, 128));
+    }
+
+    public void testEviction() {
+        Options.patternCacheSize = 2;
+        PyString a = new PyString("a"), b = new PyString("b"), c = new PyString("c");
+        PatternCache.put(a, 0, compile(a));
+        PatternCache.put(b, 0, compile(b));
+        assertNotNull(PatternCache.get(a, 0));
+        // b is the least recently used
+        PatternCache.put(c, 0, compile(c));
+        assertEquals(2, PatternCache.size());
+        assertNull(PatternCache.get(b, 0));
+        assertNotNull(PatternCache.get(a, 0));
+
+        Options.patternCacheSize = 0;
+        PatternCache.put(b, 0, compile(b));
+        assertNull(PatternCache.get(b, 0));
+    }
+}
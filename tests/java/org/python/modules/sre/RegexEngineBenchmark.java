@@ -0,0 +1,86 @@
+package org.python.modules.sre;
+
+import org.python.core.Options;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PySystemState;
+
+/**
+ * Compares the time findall takes with the linear time NFA and with SRE_MATCH backtracking, on a
+ * pattern both handle well and on one that backtracks exponentially.
+ *
+ * Run with java -cp build/classes:build/testclasses org.python.modules.sre.RegexEngineBenchmark
+ */
+public class RegexEngineBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    /** Code for "(\w+)=(\d+)(, )?", without its INFO block. */
+    private static final int[] ASSIGNMENT = {
+        SRE_STATE.SRE_OP_MARK, 0,
+        SRE_STATE.SRE_OP_REPEAT_ONE, 9, 1, 65535,
+            SRE_STATE.SRE_OP_IN, 4, SRE_STATE.SRE_OP_CATEGORY, SRE_STATE.SRE_CATEGORY_WORD,
+            SRE_STATE.SRE_OP_FAILURE,
+        SRE_STATE.SRE_OP_SUCCESS,
+        SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_LITERAL, '=',
+        SRE_STATE.SRE_OP_MARK, 2,
+        SRE_STATE.SRE_OP_REPEAT_ONE, 9, 1, 65535,
+            SRE_STATE.SRE_OP_IN, 4, SRE_STATE.SRE_OP_CATEGORY, SRE_STATE.SRE_CATEGORY_DIGIT,
+            SRE_STATE.SRE_OP_FAILURE,
+        SRE_STATE.SRE_OP_SUCCESS,
+        SRE_STATE.SRE_OP_MARK, 3,
+        SRE_STATE.SRE_OP_REPEAT, 11, 0, 1,
+            SRE_STATE.SRE_OP_MARK, 4, SRE_STATE.SRE_OP_LITERAL, ',',
+            SRE_STATE.SRE_OP_LITERAL, ' ', SRE_STATE.SRE_OP_MARK, 5,
+        SRE_STATE.SRE_OP_MAX_UNTIL,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "(a+)+b", without its INFO block. */
+    private static final int[] NESTED = {
+        SRE_STATE.SRE_OP_REPEAT, 14, 1, 65535,
+            SRE_STATE.SRE_OP_MARK, 0,
+            SRE_STATE.SRE_OP_REPEAT_ONE, 6, 1, 65535,
+                SRE_STATE.SRE_OP_LITERAL, 'a',
+            SRE_STATE.SRE_OP_SUCCESS,
+            SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_MAX_UNTIL,
+        SRE_STATE.SRE_OP_LITERAL, 'b',
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    public static void main(String[] args) {
+        PySystemState.initialize();
+        StringBuilder assignments = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            assignments.append("name").append(i).append('=').append(i * 7).append(", ");
+        }
+        StringBuilder as = new StringBuilder();
+        for (int i = 0; i < 22; i++) {
+            as.append('a');
+        }
+        // A b the prefilter finds but no match can reach
+        as.append("cb");
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("round " + round);
+            run("(\\w+)=(\\d+)(, )?", ASSIGNMENT, 3, assignments.toString());
+            run("(a+)+b", NESTED, 1, as.toString());
+        }
+    }
+
+    private static void run(String name, int[] code, int groups, String string) {
+        long linear = time(true, code, groups, string);
+        long backtracking = time(false, code, groups, string);
+        System.out.printf("  %-18s NFA %8.2f ms  SRE_MATCH %8.2f ms%n", name, linear / 1e6,
+                          backtracking / 1e6);
+    }
+
+    private static long time(boolean linearRegex, int[] code, int groups, String string) {
+        Options.linearRegex = linearRegex;
+        PatternObject pattern = new PatternObject(null, 0, code, groups, null, null);
+        PyObject[] args = new PyObject[] {new PyString(string)};
+        long start = System.nanoTime();
+        pattern.findall(args, Py.NoKeywords);
+        return System.nanoTime() - start;
+    }
+}
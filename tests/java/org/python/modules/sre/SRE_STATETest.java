@@ -0,0 +1,115 @@
+package org.python.modules.sre;
+
+import junit.framework.TestCase;
+
+import org.python.core.Py;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PySystemState;
+import org.python.core.PyUnicode;
+
+public class SRE_STATETest extends TestCase {
+
+    /** Code for ".", as compiled by sre_compile. */
+    private static final int[] ANY = {SRE_STATE.SRE_OP_ANY, SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "(a)|b", as compiled by sre_compile. */
+    private static final int[] A_OR_B = {
+        SRE_STATE.SRE_OP_BRANCH, 9,
+            SRE_STATE.SRE_OP_MARK, 0, SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_MARK, 1,
+            SRE_STATE.SRE_OP_JUMP, 7,
+        5,
+            SRE_STATE.SRE_OP_LITERAL, 'b',
+            SRE_STATE.SRE_OP_JUMP, 2,
+        0,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for "abc", as compiled by sre_compile. */
+    private static final int[] ABC = {
+        SRE_STATE.SRE_OP_INFO, 12, SRE_STATE.SRE_INFO_PREFIX | SRE_STATE.SRE_INFO_LITERAL, 3, 3,
+            3, 3, 'a', 'b', 'c', 0, 0, 0,
+        SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_LITERAL, 'b',
+        SRE_STATE.SRE_OP_LITERAL, 'c',
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    /** Code for ".ab(x|y)", without its INFO block. */
+    private static final int[] ANY_AB = {
+        SRE_STATE.SRE_OP_ANY, SRE_STATE.SRE_OP_LITERAL, 'a', SRE_STATE.SRE_OP_MARK, 0,
+        SRE_STATE.SRE_OP_LITERAL, 'b',
+        SRE_STATE.SRE_OP_BRANCH, 5,
+            SRE_STATE.SRE_OP_LITERAL, 'x', SRE_STATE.SRE_OP_JUMP, 7,
+        5,
+            SRE_STATE.SRE_OP_LITERAL, 'y', SRE_STATE.SRE_OP_JUMP, 2,
+        0,
+        SRE_STATE.SRE_OP_MARK, 1,
+        SRE_STATE.SRE_OP_SUCCESS};
+
+    public void setUp() {
+        PySystemState.initialize();
+    }
+
+    private PyObject findall(int[] code, int groups, PyString string) {
+        PatternObject pattern = new PatternObject(null, 0, code, groups, null, null);
+        return pattern.findall(new PyObject[] {string}, Py.NoKeywords);
+    }
+
+    private PyObject findall(int[] code, PyString string, int end) {
+        PatternObject pattern = new PatternObject(null, 0, code, 0, null, null);
+        return pattern.findall(new PyObject[] {string, Py.Zero, Py.newInteger(end)},
+                               Py.NoKeywords);
+    }
+
+    public void testBasicPlane() {
+        PyObject found = findall(ANY, 0, new PyUnicode("a\u00e9b"));
+        assertEquals(3, found.__len__());
+        assertEquals(new PyUnicode("\u00e9"), found.__getitem__(1));
+    }
+
+    public void testSupplementary() {
+        String s = "a" + new String(Character.toChars(0x10000)) + "b";
+        PyObject found = findall(ANY, 0, new PyUnicode(s));
+        assertEquals(3, found.__len__());
+        assertEquals(new PyUnicode(new String(Character.toChars(0x10000))), found.__getitem__(1));
+        assertEquals(new PyUnicode("b"), found.__getitem__(2));
+    }
+
+    public void testMarksReset() {
+        // The group set matching "a" must not show up in the match of "b"
+        PyList found = (PyList)findall(A_OR_B, 1, new PyString("ab"));
+        assertEquals(2, found.__len__());
+        assertEquals(new PyString("a"), found.__getitem__(0));
+        assertEquals(new PyString(""), found.__getitem__(1));
+    }
+
+    public void testPrefilter() {
+        Prefilter prefilter = Prefilter.of(ABC);
+        assertEquals("abc", prefilter.prefix);
+        assertEquals(0, prefilter.literals.length);
+
+        prefilter = Prefilter.of(ANY_AB);
+        assertNull(prefilter.prefix);
+        assertEquals(1, prefilter.literals.length);
+        assertEquals("ab", prefilter.literals[0]);
+
+        assertNull(Prefilter.of(A_OR_B));
+    }
+
+    public void testPrefix() {
+        PyString s = new PyString("xxabcyabcab");
+        assertEquals(2, findall(ABC, 0, s).__len__());
+        assertEquals(1, findall(ABC, s, 8).__len__());
+        String supplementary = new String(Character.toChars(0x10000));
+        s = new PyUnicode(supplementary + "abcyabc" + supplementary + "ab");
+        assertEquals(2, findall(ABC, 0, s).__len__());
+    }
+
+    public void testRequired() {
+        PyObject found = findall(ANY_AB, 0, new PyString("zabxzzabqzaby"));
+        assertEquals(2, found.__len__());
+        assertEquals(new PyString("zabx"), found.__getitem__(0));
+        assertEquals(new PyString("zaby"), found.__getitem__(1));
+        assertEquals(0, findall(ANY_AB, 0, new PyString("zazb")).__len__());
+        assertEquals(0, findall(ANY_AB, new PyString("zabx"), 3).__len__());
+    }
+}
@@ -0,0 +1,76 @@
+package org.python.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.python.core.PySystemState;
+import org.python.core.imp;
+
+public class ParallelCompilerTest extends TestCase {
+
+    private File dir;
+
+    public void setUp() throws Exception {
+        System.setProperty(PySystemState.PYTHON_CACHEDIR_SKIP, "true");
+        PySystemState.initialize();
+        dir = File.createTempFile("parallelcompiler", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private void write(String name, String source) throws IOException {
+        File file = new File(dir, name);
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        writer.write(source);
+        writer.close();
+    }
+
+    private int compile() throws InterruptedException {
+        ParallelCompiler compiler = new ParallelCompiler(2, false);
+        compiler.submitTree(dir);
+        int compiled = compiler.finish();
+        assertEquals(compiler.getErrors().toString(), 1, compiler.getErrors().size());
+        return compiled;
+    }
+
+    public void testCompileTree() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            write("mod" + i + ".py", "x = " + i + "\n");
+        }
+        write("pkg/__init__.py", "");
+        write("pkg/sub.py", "def f():\n    return 1\n");
+        write("bad.py", "def (:\n");
+
+        assertEquals(22, compile());
+        for (String name : new String[] {"mod0", "mod19", "pkg/__init__", "pkg/sub"}) {
+            File compiled = new File(dir, name + "$py.class");
+            assertNotNull(name, imp.readCode(name, new FileInputStream(compiled), true));
+        }
+        assertFalse(new File(dir, "bad$py.class").exists());
+        for (String name : dir.list()) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+
+        // Up to date modules aren't compiled again
+        assertEquals(0, compile());
+    }
+}
@@ -0,0 +1,217 @@
+package org.python.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import junit.framework.TestCase;
+
+import org.python.core.PySystemState;
+
+public class PyServletTest extends TestCase {
+
+    private static final AtomicInteger loads = new AtomicInteger();
+
+    /** Holds up loading the servlet while set. */
+    private static volatile CountDownLatch gate;
+
+    private File dir;
+
+    private File file;
+
+    private PyServlet servlet;
+
+    /**
+     * Called by the servlet module as it's loaded.
+     */
+    public static void loaded() throws InterruptedException {
+        loads.incrementAndGet();
+        CountDownLatch g = gate;
+        if (g != null) {
+            g.await();
+        }
+    }
+
+    public void setUp() throws Exception {
+        PySystemState.initialize();
+        dir = File.createTempFile("pyservlet", "");
+        dir.delete();
+        dir.mkdir();
+        file = new File(dir, "hello.py");
+        loads.set(0);
+        gate = null;
+    }
+
+    public void tearDown() {
+        if (gate != null) {
+            gate.countDown();
+        }
+        if (servlet != null) {
+            servlet.destroy();
+        }
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Writes a servlet that sets the request's version attribute to version, with a modification
+     * time later than the last one.
+     */
+    private void write(int version) throws IOException {
+        long modified = file.lastModified();
+        FileWriter writer = new FileWriter(file);
+        writer.write("from javax.servlet.http import HttpServlet\n"
+                + "from org.python.util import PyServletTest\n"
+                + "PyServletTest.loaded()\n"
+                + "class hello(HttpServlet):\n"
+                + "    def service(self, req, res):\n"
+                + "        req.setAttribute('version', " + version + ")\n");
+        writer.close();
+        if (modified != 0) {
+            file.setLastModified(modified + 10000);
+        }
+    }
+
+    /** Answers calls to an interface from a map of method names to results. */
+    private static Object stub(Class<?> type, final Map<String, Object> results) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                                      new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("setAttribute")) {
+                    results.put((String)args[0], args[1]);
+                    return null;
+                } else if (name.equals("getAttribute") || name.equals("getInitParameter")) {
+                    return results.get(args[0]);
+                } else if (name.equals("getRealPath")) {
+                    return results.get("root") + (String)args[0];
+                } else if (name.equals("getInitParameterNames")) {
+                    return Collections.enumeration(((Properties)results.get("params")).keySet());
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+                return results.get(name);
+            }
+        });
+    }
+
+    private void init(Properties params) throws Exception {
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("root", dir.getPath());
+        context.put("params", new Properties());
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put("getServletContext", stub(ServletContext.class, context));
+        config.put("getServletName", "PyServlet");
+        config.put("params", params);
+        for (Object name : params.keySet()) {
+            config.put((String)name, params.get(name));
+        }
+        servlet = new PyServlet();
+        servlet.init((ServletConfig)stub(ServletConfig.class, config));
+    }
+
+    /**
+     * Serves a request for the servlet, returning the version that answered it.
+     */
+    private Object request() throws Exception {
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put("getServletPath", "/hello.py");
+        servlet.service((HttpServletRequest)stub(HttpServletRequest.class, attributes),
+                        (ServletResponse)stub(ServletResponse.class,
+                                              new HashMap<String, Object>()));
+        return attributes.get("version");
+    }
+
+    public void testSingleLoad() throws Exception {
+        write(1);
+        init(new Properties());
+        gate = new CountDownLatch(1);
+        final Object[] versions = new Object[8];
+        Thread[] threads = new Thread[versions.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        versions[n] = request();
+                    } catch (Exception e) {
+                        versions[n] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        // Let the other requests arrive while the first is loading
+        Thread.sleep(200);
+        gate.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, loads.get());
+        for (Object version : versions) {
+            assertEquals(1, version);
+        }
+    }
+
+    public void testBackgroundReload() throws Exception {
+        write(1);
+        init(new Properties());
+        assertEquals(1, request());
+
+        gate = new CountDownLatch(1);
+        write(2);
+        // Starts the reload and is answered by the old servlet
+        assertEquals(1, request());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (loads.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, loads.get());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, request());
+        }
+
+        gate.countDown();
+        Object version = request();
+        while (!version.equals(2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            version = request();
+        }
+        assertEquals(2, version);
+        assertEquals(2, loads.get());
+    }
+
+    public void testCheckInterval() throws Exception {
+        write(1);
+        Properties params = new Properties();
+        params.setProperty(PyServlet.CHECK_INTERVAL, "60000");
+        params.setProperty(PyServlet.BACKGROUND_RELOAD, "false");
+        init(params);
+        assertEquals(1, request());
+
+        // The change isn't looked for until the interval is up
+        write(2);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, request());
+        }
+        assertEquals(1, loads.get());
+    }
+}
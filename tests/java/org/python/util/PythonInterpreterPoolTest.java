@@ -0,0 +1,129 @@
+package org.python.util;
+
+import junit.framework.TestCase;
+
+import org.python.core.Py;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+import org.python.core.PySystemState;
+
+public class PythonInterpreterPoolTest extends TestCase {
+
+    private PythonInterpreterPool pool;
+
+    public void setUp() {
+        PySystemState.initialize();
+        pool = new PythonInterpreterPool(2);
+    }
+
+    public void tearDown() {
+        pool.close();
+    }
+
+    public void testReuse() {
+        PySystemState current = Py.getSystemState();
+        pool.prestart(1);
+        assertSame(current, Py.getSystemState());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getCreatedCount());
+
+        PythonInterpreter interp = pool.borrow();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getActiveCount());
+        interp.exec("x = 1");
+        pool.release(interp);
+
+        assertSame(interp, pool.borrow());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowedCount());
+        assertNull(interp.get("x"));
+        assertEquals("__main__", interp.get("__name__").toString());
+        pool.release(interp);
+
+        try {
+            pool.release(interp);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Released twice
+        }
+        try {
+            pool.release(new PythonInterpreter());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Not from the pool
+        }
+    }
+
+    public void testReset() {
+        PythonInterpreter interp = pool.borrow();
+        interp.exec("import sys");
+        PySystemState sys = (PySystemState)interp.get("sys");
+        int pathLength = sys.path.__len__();
+        int argvLength = sys.argv.__len__();
+        sys.path.append(Py.newString("/extra"));
+        sys.argv.append(Py.newString("arg"));
+        sys.modules.__setitem__("injected", new PyModule("injected", null));
+        interp.exec("sys.marker = 1");
+        interp.exec("sys.setrecursionlimit(50)");
+        sys.stdout = Py.None;
+        interp.cflags.division = true;
+        PyObject other = new PyStringMap();
+        interp.setLocals(other);
+        pool.release(interp);
+
+        assertSame(interp, pool.borrow());
+        assertEquals(pathLength, sys.path.__len__());
+        assertEquals(argvLength, sys.argv.__len__());
+        assertNull(sys.modules.__finditem__("injected"));
+        assertNull(sys.modules.__finditem__("sys"));
+        assertNotSame(Py.None, sys.stdout);
+        assertNull(sys.__findattr__("marker"));
+        assertEquals(1000, sys.getrecursionlimit());
+        assertFalse(interp.cflags.division);
+        assertNotSame(other, interp.getLocals());
+        assertNull(interp.get("sys"));
+        pool.release(interp);
+    }
+
+    public void testKeepModules() {
+        pool.setResetModules(false);
+        PythonInterpreter interp = pool.borrow();
+        interp.exec("import sys");
+        PySystemState sys = (PySystemState)interp.get("sys");
+        sys.modules.__setitem__("kept", new PyModule("kept", null));
+        pool.release(interp);
+        assertSame(interp, pool.borrow());
+        assertNotNull(sys.modules.__finditem__("kept"));
+        pool.release(interp);
+    }
+
+    public void testSizing() {
+        PythonInterpreter[] interps = new PythonInterpreter[3];
+        for (int i = 0; i < interps.length; i++) {
+            interps[i] = pool.borrow();
+        }
+        assertEquals(3, pool.getActiveCount());
+        for (PythonInterpreter interp : interps) {
+            pool.release(interp);
+        }
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getDiscardedCount());
+
+        pool.setMaxIdle(1);
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(2, pool.getDiscardedCount());
+
+        PythonInterpreter interp = pool.borrow();
+        pool.close();
+        pool.release(interp);
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+        try {
+            pool.borrow();
+            fail();
+        } catch (IllegalStateException e) {
+            // Closed
+        }
+    }
+}